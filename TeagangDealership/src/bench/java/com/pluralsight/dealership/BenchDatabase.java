@@ -0,0 +1,32 @@
+package com.pluralsight.dealership;
+
+/**
+ * The tables the application expects, as the bench tools create them in a
+ * throwaway local Postgres. Each tool adds the triggers it needs
+ * (ContractReports.install, InventoryChangeFeed.install) and its own rows.
+ */
+final class BenchDatabase {
+
+    static final String SCHEMA = """
+        CREATE TABLE dealerships (
+            dealership_id INT PRIMARY KEY,
+            name TEXT, address TEXT, phone TEXT
+        );
+        CREATE TABLE vehicles (
+            vin TEXT PRIMARY KEY,
+            make TEXT, model TEXT, type TEXT, year INT,
+            price NUMERIC(10, 2), color TEXT, sold BOOLEAN DEFAULT false,
+            dealership_id INT REFERENCES dealerships, odometer INT
+        );
+        CREATE TABLE sales_contracts (
+            contract_id SERIAL PRIMARY KEY,
+            customer_name TEXT, customer_email TEXT, vehicle_vin TEXT, financial_option BOOLEAN
+        );
+        CREATE TABLE lease_contracts (
+            contract_id SERIAL PRIMARY KEY,
+            customer_name TEXT, customer_email TEXT, vehicle_vin TEXT
+        );
+        """;
+
+    private BenchDatabase() { }
+}
@@ -0,0 +1,246 @@
+package com.pluralsight.dealership;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs InventoryChangeFeed against a throwaway local Postgres and checks
+ * that the in-memory lots end up identical to the vehicles table.
+ *
+ * Writer threads insert, update, move between lots and delete vehicles in
+ * small transactions; some roll back and some stay open for a while so
+ * sequence numbers commit out of order. After the writers stop, the lots must
+ * converge to the table. The snapshot fingerprint query is checked against
+ * the Java computation on the same data.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.ChangeFeedCheck
+ *     -Dexec.args="[seconds] [writers] [inventory]"
+ */
+public class ChangeFeedCheck {
+
+    private static final int LOTS = 3;
+    private static final String[] MAKES = {"Toyota", "Honda", "Ford", "BMW", "Kia"};
+    private static final String[] COLORS = {"Black", "White", "Red", "Blue"};
+    private static final String[] TYPES = {"Car", "Truck", "SUV", "Van"};
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int inventory = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            DataSource ds = pg.getPostgresDatabase();
+            try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+                st.execute(BenchDatabase.SCHEMA);
+                InventoryChangeFeed.install(conn);
+                seed(conn, inventory);
+            }
+
+            long position;
+            DealershipRegistry registry;
+            try (Connection conn = ds.getConnection()) {
+                position = InventoryChangeFeed.startPosition(conn);
+                registry = load(conn).concurrent();
+            }
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong commits = new AtomicLong();
+            AtomicLong rollbacks = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            try (InventoryChangeFeed feed = new InventoryChangeFeed(position, registry, ds::getConnection)) {
+                feed.start();
+                for (int w = 0; w < writers; w++) {
+                    Random random = new Random(w);
+                    threads.add(new Thread(() -> write(ds, random, inventory, running, commits, rollbacks), "writer-" + w));
+                }
+                threads.forEach(Thread::start);
+                Thread.sleep(seconds * 1000L);
+                running.set(false);
+                for (Thread t : threads) t.join();
+
+                System.out.printf("%,d transactions committed, %,d rolled back%n", commits.get(), rollbacks.get());
+
+                // Converged once the lots match the table; the feed polls at least every 30 s
+                List<String> differences = List.of();
+                long deadline = System.nanoTime() + 60_000_000_000L;
+                while (System.nanoTime() < deadline) {
+                    try (Connection conn = ds.getConnection()) {
+                        differences = compare(load(conn), registry);
+                    }
+                    if (differences.isEmpty()) break;
+                    Thread.sleep(500);
+                }
+                if (!differences.isEmpty()) {
+                    System.out.println("❌ Lots did not converge:");
+                    differences.stream().limit(20).forEach(d -> System.out.println("   " + d));
+                    System.exit(1);
+                }
+                System.out.println("✅ In-memory lots match the vehicles table");
+            }
+
+            try (Connection conn = ds.getConnection()) {
+                InventorySnapshot.Fingerprint database = InventorySnapshot.queryFingerprint(conn);
+                InventorySnapshot.Fingerprint memory = InventorySnapshot.fingerprint(registry.getDealerships());
+                if (!database.equals(memory)) {
+                    System.out.println("❌ Fingerprint differs: database " + database + ", memory " + memory);
+                    for (Dealership lot : registry.getDealerships()) {
+                        InventorySnapshot.Fingerprint lotDatabase = InventorySnapshot.queryLotFingerprint(conn, lot.getId());
+                        InventorySnapshot.Fingerprint lotMemory = InventorySnapshot.lotFingerprint(lot.getId(), lot.getAllVehicles());
+                        if (!lotDatabase.equals(lotMemory)) {
+                            System.out.println("   lot " + lot.getId() + ": database " + lotDatabase + ", memory " + lotMemory);
+                        }
+                    }
+                    System.exit(1);
+                }
+                System.out.println("✅ Snapshot fingerprint matches the database: " + database);
+            }
+        }
+    }
+
+    private static void seed(Connection conn, int inventory) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO dealerships VALUES (?, ?, ?, ?)")) {
+            for (int lot = 1; lot <= LOTS; lot++) {
+                ps.setInt(1, lot);
+                ps.setString(2, "Lot " + lot);
+                ps.setString(3, lot + " Main St");
+                ps.setString(4, "555-000" + lot);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        Random random = new Random(42);
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            for (int vin = 1; vin <= inventory; vin++) {
+                bindVehicle(ps, vin, random);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO vehicles (vin, make, model, type, year, price, color, dealership_id, odometer)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (vin) DO UPDATE SET
+          make = EXCLUDED.make, model = EXCLUDED.model, type = EXCLUDED.type, year = EXCLUDED.year,
+          price = EXCLUDED.price, color = EXCLUDED.color, dealership_id = EXCLUDED.dealership_id,
+          odometer = EXCLUDED.odometer
+        """;
+
+    private static void bindVehicle(PreparedStatement ps, int vin, Random random) throws SQLException {
+        ps.setString(1, String.valueOf(vin));
+        ps.setString(2, MAKES[random.nextInt(MAKES.length)]);
+        ps.setString(3, "Model" + random.nextInt(20));
+        ps.setString(4, TYPES[random.nextInt(TYPES.length)]);
+        ps.setInt(5, 2000 + random.nextInt(25));
+        ps.setBigDecimal(6, BigDecimal.valueOf(500_000 + random.nextInt(9_000_000), 2));
+        ps.setString(7, COLORS[random.nextInt(COLORS.length)]);
+        ps.setInt(8, 1 + random.nextInt(LOTS));
+        ps.setInt(9, random.nextInt(200_000));
+    }
+
+    // Random upserts (including lot moves) and deletes, some rolled back, some held open
+    private static void write(DataSource ds, Random random, int inventory, AtomicBoolean running,
+                              AtomicLong commits, AtomicLong rollbacks) {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL);
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM vehicles WHERE vin = ?")) {
+            conn.setAutoCommit(false);
+            while (running.get()) {
+                try {
+                    int changes = 1 + random.nextInt(5);
+                    for (int i = 0; i < changes; i++) {
+                        int vin = 1 + random.nextInt(inventory * 2);
+                        if (random.nextInt(4) == 0) {
+                            delete.setString(1, String.valueOf(vin));
+                            delete.executeUpdate();
+                        } else {
+                            bindVehicle(upsert, vin, random);
+                            upsert.executeUpdate();
+                        }
+                    }
+                    if (random.nextInt(20) == 0) {
+                        Thread.sleep(random.nextInt(3_000)); // commits after later seqs
+                    }
+                    if (random.nextInt(10) == 0) {
+                        conn.rollback();
+                        rollbacks.incrementAndGet();
+                    } else {
+                        conn.commit();
+                        commits.incrementAndGet();
+                    }
+                } catch (SQLException e) {
+                    conn.rollback(); // deadlock between writers
+                    rollbacks.incrementAndGet();
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ " + Thread.currentThread().getName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DealershipRegistry load(Connection conn) throws SQLException {
+        DealershipRegistry registry = new DealershipRegistry();
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT dealership_id, name, address, phone FROM dealerships")) {
+                while (rs.next()) {
+                    registry.add(new Dealership(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT vin, make, model, type, year, price, color, odometer, dealership_id FROM vehicles")) {
+                while (rs.next()) {
+                    registry.get(rs.getInt(9)).loadVehicle(new Vehicle(Integer.parseInt(rs.getString(1)),
+                            rs.getInt(5), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(7),
+                            rs.getInt(8), rs.getDouble(6)));
+                }
+            }
+        }
+        return registry;
+    }
+
+    private static List<String> compare(DealershipRegistry expected, DealershipRegistry actual) {
+        List<String> differences = new ArrayList<>();
+        for (Dealership lot : expected.getDealerships()) {
+            Dealership other = actual.get(lot.getId());
+            Map<Integer, Vehicle> remaining = new HashMap<>();
+            for (Vehicle v : other.getAllVehicles()) remaining.put(v.getVin(), v);
+            for (Vehicle v : lot.getAllVehicles()) {
+                Vehicle seen = remaining.remove(v.getVin());
+                if (seen == null) {
+                    differences.add("lot " + lot.getId() + " is missing VIN " + v.getVin());
+                } else if (!sameFields(v, seen)) {
+                    differences.add("lot " + lot.getId() + " has stale VIN " + v.getVin() + ": " + seen + " vs " + v);
+                }
+            }
+            remaining.keySet().forEach(vin -> differences.add("lot " + lot.getId() + " still has VIN " + vin));
+            if (other.hasPendingChanges()) {
+                differences.add("lot " + lot.getId() + " has pending changes after remote updates");
+            }
+        }
+        return differences;
+    }
+
+    private static boolean sameFields(Vehicle a, Vehicle b) {
+        return a.getYear() == b.getYear() && a.getOdometer() == b.getOdometer() && a.getPrice() == b.getPrice()
+                && Objects.equals(a.getMake(), b.getMake()) && Objects.equals(a.getModel(), b.getModel())
+                && Objects.equals(a.getType(), b.getType()) && Objects.equals(a.getColor(), b.getColor());
+    }
+}
@@ -0,0 +1,220 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hammers one ConcurrentDealership with writer and reader threads and checks
+ * that every read is consistent with some point between its start and end.
+ *
+ * Each writer owns its own VINs and publishes, per VIN, a stamp of
+ * (sequence, in flight, present) around every add/remove. A reader that sees
+ * the same settled stamp before and after its read knows the true state for
+ * that whole interval, so the VIN lookup, the VIN query and an exact-price
+ * search must all agree with it. One writer adds and removes VIN pairs in a
+ * single batch; no snapshot may ever hold half a pair. Snapshot views from
+ * getAllVehicles must never change after they are taken.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.ConcurrentDealershipStressTest
+ *     -Dexec.args="[seconds] [readers] [writers] [inventory]"
+ */
+public class ConcurrentDealershipStressTest {
+
+    private static final int KEYS_PER_WRITER = 256;
+    private static final int PAIRS = 128;
+    private static final int WRITER_VIN_BASE = 10_000_000;
+    private static final int PAIR_VIN_BASE = 90_000_000;
+    // Writer vehicles get a price no generated vehicle can have, unique per VIN
+    private static final double PRICE_BASE = 1_000_000;
+
+    private static final long IN_FLIGHT = 1;
+    private static final long PRESENT = 2;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int writers = Math.max(1, args.length > 2 ? Integer.parseInt(args[2]) : 2);
+        int inventory = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        ConcurrentDealership dealership = new ConcurrentDealership(InventoryGenerator.dealership(inventory, 42));
+        AtomicLongArray stamps = new AtomicLongArray(writers * KEYS_PER_WRITER);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong checkedReads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        List<String> violations = new ArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                await(start);
+                Random random = new Random(writer);
+                boolean[] present = new boolean[KEYS_PER_WRITER];
+                long count = 0;
+                while (running.get()) {
+                    int key = random.nextInt(KEYS_PER_WRITER);
+                    int slot = writer * KEYS_PER_WRITER + key;
+                    long seq = stamps.get(slot) >>> 2;
+                    stamps.set(slot, seq << 2 | IN_FLIGHT | (present[key] ? PRESENT : 0));
+
+                    boolean ok = present[key]
+                            ? dealership.removeVehicleByVin(vinOf(slot))
+                            : dealership.addVehicle(vehicleFor(slot));
+                    if (!ok) record(violations, "write on VIN " + vinOf(slot) + " was refused");
+                    present[key] = !present[key];
+
+                    stamps.set(slot, (seq + 1) << 2 | (present[key] ? PRESENT : 0));
+                    count++;
+                }
+                writes.addAndGet(count);
+            }, "writer-" + w));
+        }
+
+        threads.add(new Thread(() -> {
+            await(start);
+            Random random = new Random(-1);
+            boolean[] present = new boolean[PAIRS];
+            long count = 0;
+            while (running.get()) {
+                int pair = random.nextInt(PAIRS);
+                int vin = PAIR_VIN_BASE + pair * 2;
+                boolean adding = !present[pair];
+                dealership.batch(d -> {
+                    if (adding) {
+                        d.addVehicle(new Vehicle(vin, 2024, "Pair", "Left", "car", "White", 0, 1));
+                        d.addVehicle(new Vehicle(vin + 1, 2024, "Pair", "Right", "car", "White", 0, 1));
+                    } else {
+                        d.removeVehicleByVin(vin);
+                        d.removeVehicleByVin(vin + 1);
+                    }
+                });
+                present[pair] = adding;
+                count++;
+            }
+            writes.addAndGet(count);
+        }, "pair-writer"));
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long checked = 0;
+                while (running.get()) {
+                    switch (random.nextInt(4)) {
+                        case 0, 1 -> {
+                            int slot = random.nextInt(stamps.length());
+                            long before = stamps.get(slot);
+                            boolean byVin = dealership.getVehicleByVin(vinOf(slot)) != null;
+                            boolean byQuery = !dealership.query(new VehicleQuery().vin(vinOf(slot))).isEmpty();
+                            double price = priceOf(slot);
+                            boolean bySearch = !dealership.getVehiclesByPrice(price, price).isEmpty();
+                            long after = stamps.get(slot);
+                            if (before == after && (before & IN_FLIGHT) == 0) {
+                                boolean expected = (before & PRESENT) != 0;
+                                if (byVin != expected || byQuery != expected || bySearch != expected) {
+                                    record(violations, "VIN " + vinOf(slot) + " expected present=" + expected
+                                            + " but lookup=" + byVin + " query=" + byQuery + " search=" + bySearch);
+                                }
+                                checked++;
+                            }
+                        }
+                        case 2 -> {
+                            Dealership snapshot = dealership.snapshot();
+                            int vin = PAIR_VIN_BASE + random.nextInt(PAIRS) * 2;
+                            boolean left = snapshot.getVehicleByVin(vin) != null;
+                            boolean right = snapshot.getVehicleByVin(vin + 1) != null;
+                            if (left != right) {
+                                record(violations, "snapshot holds half of pair " + vin);
+                            }
+                            checked++;
+                        }
+                        default -> {
+                            List<Vehicle> view = dealership.getAllVehicles();
+                            int size = view.size();
+                            Vehicle last = size == 0 ? null : view.get(size - 1);
+                            Thread.yield();
+                            if (view.size() != size || (size > 0 && view.get(size - 1) != last)) {
+                                record(violations, "getAllVehicles view changed after it was taken");
+                            }
+                            checked++;
+                        }
+                    }
+                    count++;
+                }
+                reads.addAndGet(count);
+                checkedReads.addAndGet(checked);
+            }, "reader-" + r));
+        }
+
+        threads.forEach(Thread::start);
+        long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) t.join();
+        double elapsed = (System.nanoTime() - began) / 1e9;
+
+        // Final state must match every writer's own record exactly
+        int expectedCount = inventory;
+        for (int slot = 0; slot < stamps.length(); slot++) {
+            boolean expected = (stamps.get(slot) & PRESENT) != 0;
+            if (expected) expectedCount++;
+            if ((dealership.getVehicleByVin(vinOf(slot)) != null) != expected) {
+                record(violations, "final state wrong for VIN " + vinOf(slot));
+            }
+        }
+        for (int pair = 0; pair < PAIRS; pair++) {
+            if (dealership.getVehicleByVin(PAIR_VIN_BASE + pair * 2) != null) expectedCount += 2;
+        }
+        if (dealership.getVehicleCount() != expectedCount) {
+            record(violations, "final count " + dealership.getVehicleCount() + " != " + expectedCount);
+        }
+
+        System.out.printf("%d readers, %d writers, %d vehicles, %.1fs%n", readers, writers + 1, inventory, elapsed);
+        System.out.printf("reads:  %,d (%,.0f/s), %,d checked%n", reads.get(), reads.get() / elapsed, checkedReads.get());
+        System.out.printf("writes: %,d (%,.0f/s)%n", writes.get(), writes.get() / elapsed);
+        System.out.println(dealership.getQueryCacheStats());
+        if (violations.isEmpty()) {
+            System.out.println("✅ No consistency violations");
+        } else {
+            System.out.println("❌ " + violations.size() + " violations, first: " + violations.get(0));
+            System.exit(1);
+        }
+    }
+
+    private static int vinOf(int slot) {
+        return WRITER_VIN_BASE + slot;
+    }
+
+    private static double priceOf(int slot) {
+        return PRICE_BASE + slot;
+    }
+
+    private static Vehicle vehicleFor(int slot) {
+        return new Vehicle(vinOf(slot), 2020, "Stress", "Writer", "car", "Black", slot, priceOf(slot));
+    }
+
+    private static void record(List<String> violations, String message) {
+        synchronized (violations) {
+            violations.add(message);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pluralsight.dealership;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monthly payment math for both contract types, including building the contract,
+ * against the FinanceQuoteEngine batch kernel over the same prices (per vehicle).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractMathBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private Vehicle[] vehicles;
+    private SalesContract[] sales;
+    private LeaseContract[] leases;
+    private double[] prices;
+    private double[] saleTotals;
+    private double[] financeMonthly;
+    private double[] leaseMonthly;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        vehicles = InventoryGenerator.vehicles(SAMPLES, 42);
+        sales = new SalesContract[SAMPLES];
+        leases = new LeaseContract[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            sales[i] = new SalesContract("20250101", "Bench Buyer", "buyer@example.com", vehicles[i], true);
+            leases[i] = new LeaseContract("20250101", "Bench Buyer", "buyer@example.com", vehicles[i]);
+        }
+        prices = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) prices[i] = vehicles[i].getPrice();
+        saleTotals = new double[SAMPLES];
+        financeMonthly = new double[SAMPLES];
+        leaseMonthly = new double[SAMPLES];
+    }
+
+    @Benchmark
+    public double salesMonthlyPayment() {
+        return sales[next++ & (SAMPLES - 1)].getMonthlyPayment();
+    }
+
+    @Benchmark
+    public double leaseMonthlyPayment() {
+        return leases[next++ & (SAMPLES - 1)].getMonthlyPayment();
+    }
+
+    @Benchmark
+    public double salesContractBuildAndPrice() {
+        Vehicle v = vehicles[next++ & (SAMPLES - 1)];
+        return new SalesContract("20250101", "Bench Buyer", "buyer@example.com", v, true).getMonthlyPayment();
+    }
+
+    @Benchmark
+    public double leaseContractBuildAndPrice() {
+        Vehicle v = vehicles[next++ & (SAMPLES - 1)];
+        return new LeaseContract("20250101", "Bench Buyer", "buyer@example.com", v).getMonthlyPayment();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double contractsPerVehicle() {
+        double sum = 0;
+        for (Vehicle v : vehicles) {
+            sum += new SalesContract("20250101", "Bench Buyer", "buyer@example.com", v, true).getMonthlyPayment();
+            sum += new LeaseContract("20250101", "Bench Buyer", "buyer@example.com", v).getMonthlyPayment();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] quoteEngineBatch() {
+        FinanceQuoteEngine.price(prices, saleTotals, financeMonthly, leaseMonthly);
+        return leaseMonthly;
+    }
+}
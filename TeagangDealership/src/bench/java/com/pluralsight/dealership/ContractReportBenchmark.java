@@ -0,0 +1,197 @@
+package com.pluralsight.dealership;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import javax.sql.DataSource;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * ContractReports over a synthetic million-contract history in a throwaway
+ * local Postgres.
+ *
+ * Contracts are spread over two years, about 70% sales (two in three
+ * financed) and 30% leases. Times the SQL-side summary and top-makes
+ * reports cold and cached, one month and one year at a time, and the
+ * streamed CSV export, against the old approach of pulling every contract
+ * row into the application and adding it up there. The summary must agree
+ * with that full scan.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.ContractReportBenchmark
+ *     -Dexec.args="[contracts] [vehicles]"
+ */
+public class ContractReportBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 731;
+
+    private static final String SEED_VEHICLES = """
+        INSERT INTO dealerships VALUES (1, 'Bench Lot', '1 Main St', '555-0001');
+        INSERT INTO vehicles (vin, make, model, type, year, price, color, dealership_id, odometer)
+        SELECT g::text,
+               (ARRAY['Toyota','Honda','Ford','BMW','Kia','Tesla','Subaru'])[1 + g %% 7],
+               'Model' || (g %% 23),
+               (ARRAY['car','truck','suv','van'])[1 + g %% 4],
+               2000 + g %% 25,
+               round((3000 + (g::bigint * 7919) %% 87000)::numeric + (g %% 100) / 100.0, 2),
+               (ARRAY['Black','White','Red','Blue'])[1 + g %% 4],
+               1, (g::bigint * 104729) %% 200000
+        FROM generate_series(1, %d) g
+        """;
+
+    // Dated evenly over DAYS; the trigger from contract_reports.sql fills price, make and model
+    private static final String SEED_SALES = """
+        INSERT INTO sales_contracts (customer_name, customer_email, vehicle_vin, financial_option, created_at)
+        SELECT 'Customer ' || g, 'customer' || g || '@example.com', (1 + (g::bigint * 31) %% %d)::text, g %% 3 <> 0,
+               timestamptz '%s' + ((g::bigint * 7) %% %d) * interval '1 day' + (g %% 86400) * interval '1 second'
+        FROM generate_series(1, %d) g
+        """;
+
+    private static final String SEED_LEASES = """
+        INSERT INTO lease_contracts (customer_name, customer_email, vehicle_vin, created_at)
+        SELECT 'Lessee ' || g, 'lessee' || g || '@example.com', (1 + (g::bigint * 37) %% %d)::text,
+               timestamptz '%s' + ((g::bigint * 11) %% %d) * interval '1 day' + (g %% 86400) * interval '1 second'
+        FROM generate_series(1, %d) g
+        """;
+
+    public static void main(String[] args) throws Exception {
+        int contracts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int vehicles = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int sales = contracts * 7 / 10;
+        int leases = contracts - sales;
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            DataSource ds = pg.getPostgresDatabase();
+            long start = System.nanoTime();
+            try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+                st.execute(BenchDatabase.SCHEMA);
+                ContractReports.install(conn);
+                st.execute(String.format(SEED_VEHICLES, vehicles));
+                st.execute(String.format(SEED_SALES, vehicles, FIRST_DAY, DAYS, sales));
+                st.execute(String.format(SEED_LEASES, vehicles, FIRST_DAY, DAYS, leases));
+                st.execute("ANALYZE");
+            }
+            System.out.printf("Seeded %,d sales and %,d leases over %,d vehicles in %,d ms%n",
+                    sales, leases, vehicles, (System.nanoTime() - start) / 1_000_000);
+
+            ContractReports reports = new ContractReports(ds::getConnection);
+            ContractReports.Period month = ContractReports.Period.month(YearMonth.of(2024, 6));
+            ContractReports.Period year = new ContractReports.Period(FIRST_DAY, FIRST_DAY.plusYears(1));
+            ContractReports.Period all = new ContractReports.Period(FIRST_DAY, FIRST_DAY.plusDays(DAYS));
+
+            time("summary, one month (SQL)", () -> { reports.clearCache(); reports.summary(month); });
+            time("summary, one year (SQL)", () -> { reports.clearCache(); reports.summary(year); });
+            time("summary, one year (cached)", () -> reports.summary(year));
+            time("top 10 makes/models, one year (SQL)", () -> { reports.clearCache(); reports.topMakeModels(year, 10); });
+            time("top 10 makes/models, one year (cached)", () -> reports.topMakeModels(year, 10));
+
+            long[] rows = new long[1];
+            time("CSV export, everything (cursor)", () -> rows[0] = reports.exportContracts(all, new CountingWriter()));
+            System.out.printf("   %,d rows exported%n", rows[0]);
+
+            ContractReports.Summary[] scanned = new ContractReports.Summary[1];
+            time("summary, one year (every row to the app)", () -> {
+                try (Connection conn = ds.getConnection()) {
+                    scanned[0] = scan(conn, year);
+                }
+            });
+
+            reports.clearCache();
+            ContractReports.Summary summary = reports.summary(year);
+            System.out.println("\n" + summary);
+            if (!agrees(summary, scanned[0])) {
+                System.out.println("❌ SQL summary differs from the full scan: " + scanned[0]);
+                System.exit(1);
+            }
+            System.out.println("✅ SQL summary matches the full scan");
+        }
+    }
+
+    private interface Run {
+        void run() throws Exception;
+    }
+
+    private static void time(String label, Run run) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-44s best of %d: %,12.3f ms%n", label, ROUNDS, best / 1e6);
+    }
+
+    // The spreadsheet approach: fetch each contract and add it up with the contract rules
+    private static ContractReports.Summary scan(Connection conn, ContractReports.Period period) throws SQLException {
+        long cash = 0, financed = 0, leases = 0, unpriced = 0;
+        double salesRevenue = 0, leaseRevenue = 0;
+        String sql = """
+            SELECT financial_option, vehicle_price FROM sales_contracts WHERE created_at >= ? AND created_at < ?
+            UNION ALL
+            SELECT NULL, vehicle_price FROM lease_contracts WHERE created_at >= ? AND created_at < ?
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, period.from());
+            ps.setObject(2, period.to());
+            ps.setObject(3, period.from());
+            ps.setObject(4, period.to());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Boolean option = (Boolean) rs.getObject(1);
+                    double price = rs.getDouble(2);
+                    boolean priced = !rs.wasNull();
+                    if (!priced) unpriced++;
+                    if (option == null) {
+                        leases++;
+                        if (priced) leaseRevenue += LeaseContract.totalPrice(price);
+                    } else {
+                        if (option) financed++; else cash++;
+                        if (priced) salesRevenue += SalesContract.totalPrice(price, SalesContract.processingFee(price));
+                    }
+                }
+            }
+        }
+        return new ContractReports.Summary(period, cash, financed, leases, unpriced, salesRevenue, leaseRevenue);
+    }
+
+    private static boolean agrees(ContractReports.Summary a, ContractReports.Summary b) {
+        return a.cashSales() == b.cashSales() && a.financedSales() == b.financedSales()
+                && a.leases() == b.leases() && a.unpriced() == b.unpriced()
+                && Math.abs(a.salesRevenue() - b.salesRevenue()) <= 1e-9 * Math.abs(b.salesRevenue()) + 0.01
+                && Math.abs(a.leaseRevenue() - b.leaseRevenue()) <= 1e-9 * Math.abs(b.leaseRevenue()) + 0.01;
+    }
+
+    // Discards the export, so only the query and formatting are timed
+    private static final class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            chars += len;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            chars += csq.length();
+            return this;
+        }
+
+        @Override
+        public void write(String str) {
+            chars += str.length();
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
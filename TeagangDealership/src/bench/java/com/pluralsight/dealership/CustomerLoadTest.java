@@ -0,0 +1,472 @@
+package com.pluralsight.dealership;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Soak test for the application itself: simulated sessions running a mix of
+ * searches, adds, removes, sales and leases through Dealership,
+ * DealershipFileManager and ContractFileManager, against a throwaway local
+ * Postgres with the production triggers installed.
+ *
+ * Lots are loaded through DealershipFileManager (DatabaseUtil pointed at the
+ * local database) and shared as ConcurrentDealerships, the way
+ * DealershipServer serves them. Sessions start one by one over the ramp-up
+ * and then loop with no think time until the end. Every add and remove is
+ * saved straight away, as the menu does. Only operations started after the
+ * ramp-up count towards the final numbers.
+ *
+ * Progress is printed every few seconds. At the end each operation gets its
+ * count, rate, error rate, refusals (a sale of a vehicle someone else just
+ * sold) and latency percentiles, and every lot is compared with the database
+ * by fingerprint. What the application prints during the run is not shown;
+ * the first few KB of its error output are, after the report.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.CustomerLoadTest
+ *     -Dexec.args="[seconds] [sessions] [rampSeconds] [mix] [vehicles] [poolSize]"
+ *
+ * mix is op=weight pairs over search, add, remove, sale and lease, e.g. the
+ * default search=80,add=6,remove=4,sale=7,lease=3. poolSize defaults to 10,
+ * the .env default.
+ */
+public class CustomerLoadTest {
+
+    private static final int LOTS = 3;
+    private static final String DEFAULT_MIX = "search=80,add=6,remove=4,sale=7,lease=3";
+    private static final String[] MAKES = {"Toyota", "Honda", "Ford", "BMW", "Kia", "Tesla", "Subaru"};
+    private static final String[] COLORS = {"Black", "White", "Red", "Blue"};
+    private static final String[] TYPES = {"Car", "Truck", "SUV", "Van"};
+    private static final int MODELS = 23;
+
+    // Tries at finding an unsold vehicle to sell before selling a sold one anyway
+    private static final int SALE_PICKS = 8;
+
+    // VIN g belongs to lot 1 + g % LOTS
+    private static final String SEED = """
+        INSERT INTO dealerships
+        SELECT l, 'Lot ' || l, l || ' Main St', '555-000' || l FROM generate_series(1, %d) l;
+        INSERT INTO vehicles (vin, make, model, type, year, price, color, dealership_id, odometer)
+        SELECT g::text,
+               (ARRAY['Toyota','Honda','Ford','BMW','Kia','Tesla','Subaru'])[1 + g %% 7],
+               'Model' || (g %% 23),
+               (ARRAY['Car','Truck','SUV','Van'])[1 + g %% 4],
+               2000 + g %% 25,
+               3000 + (g::bigint * 7919) %% 87000 + (g %% 100) / 100.0,
+               (ARRAY['Black','White','Red','Blue'])[1 + g %% 4],
+               1 + g %% %d, (g::bigint * 104729) %% 200000
+        FROM generate_series(1, %d) g;
+        """;
+
+    private enum Op { SEARCH, ADD, REMOVE, SALE, LEASE }
+
+    // --- Shared by the sessions and the progress printer ---
+    private static final LongAdder OPS = new LongAdder();
+    private static final LongAdder ERRORS = new LongAdder();
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int rampSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Mix mix = Mix.parse(args.length > 3 ? args[3] : DEFAULT_MIX);
+        int vehicles = args.length > 4 ? Integer.parseInt(args[4]) : 60_000;
+        int poolSize = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            try (Connection conn = pg.getPostgresDatabase().getConnection(); Statement st = conn.createStatement()) {
+                st.execute(BenchDatabase.SCHEMA);
+                ContractReports.install(conn);
+                InventoryChangeFeed.install(conn);
+                st.execute(String.format(SEED, LOTS, LOTS, vehicles));
+                st.execute("ANALYZE");
+            }
+            DatabaseUtil.useDatabase(pg.getJdbcUrl("postgres", "postgres"), "postgres", "postgres", poolSize);
+
+            DealershipFileManager loader = new DealershipFileManager();
+            loader.setSnapshotPath(null);
+            long loadStart = System.nanoTime();
+            DealershipRegistry registry = loader.getDealerships().concurrent();
+            System.out.printf("Loaded %,d vehicles in %d lots in %,d ms%n", registry.getTotalVehicleCount(),
+                    registry.size(), (System.nanoTime() - loadStart) / 1_000_000);
+            System.out.printf("%d sessions, %ds ramp-up + %ds, pool of %d, mix %s%n%n",
+                    sessions, rampSeconds, seconds, poolSize, mix);
+
+            Session[] all = new Session[sessions];
+            AtomicInteger nextVin = new AtomicInteger(vehicles + 1);
+            for (int s = 0; s < sessions; s++) {
+                all[s] = new Session(s, registry.get(1 + s % LOTS), mix, vehicles, nextVin);
+            }
+
+            FirstBytes appErrors = new FirstBytes(4096);
+            PrintStream console = System.out;
+            PrintStream consoleErr = System.err;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            System.setErr(new PrintStream(appErrors, true, StandardCharsets.UTF_8));
+            long measureFrom;
+            long end;
+            try {
+                long start = System.nanoTime();
+                measureFrom = start + rampSeconds * 1_000_000_000L;
+                end = measureFrom + seconds * 1_000_000_000L;
+                List<Thread> threads = new ArrayList<>();
+                for (Session session : all) {
+                    long startAt = start + rampSeconds * 1_000_000_000L * session.id / sessions;
+                    Thread t = new Thread(() -> session.run(startAt, measureFrom, end), "session-" + session.id);
+                    threads.add(t);
+                    t.start();
+                }
+                printProgress(console, start, end, sessions, Math.max(1, (rampSeconds + seconds) / 12));
+                for (Thread t : threads) t.join();
+            } finally {
+                System.setOut(console);
+                System.setErr(consoleErr);
+            }
+
+            report(all, seconds);
+            boolean consistent = compareWithDatabase(registry, loader);
+            if (appErrors.size() > 0) {
+                System.out.println("\nFirst application errors:\n" + appErrors);
+            }
+            if (!consistent) System.exit(1);
+        }
+    }
+
+    private static void printProgress(PrintStream console, long start, long end, int sessions, int everySeconds)
+            throws InterruptedException {
+        long lastOps = 0, lastErrors = 0;
+        long lastTime = start;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(everySeconds * 1000L, Math.max(1, (end - System.nanoTime()) / 1_000_000)));
+            long now = System.nanoTime();
+            long ops = OPS.sum(), errors = ERRORS.sum();
+            console.printf("[%4ds] %2d/%d sessions %,10.0f ops/s   %,d errors%n",
+                    (now - start) / 1_000_000_000L, RUNNING.get(), sessions,
+                    (ops - lastOps) * 1e9 / (now - lastTime), errors - lastErrors);
+            lastOps = ops;
+            lastErrors = errors;
+            lastTime = now;
+        }
+    }
+
+    private static void report(Session[] sessions, int seconds) {
+        System.out.printf("%n%-7s %10s %10s %8s %8s %9s %9s %9s %9s %9s%n",
+                "op", "count", "ops/s", "errors", "refused", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram();
+        long totalErrors = 0, totalRefused = 0;
+        for (Op op : Op.values()) {
+            Histogram h = new Histogram();
+            long errors = 0, refused = 0;
+            for (Session s : sessions) {
+                h.add(s.latencies[op.ordinal()]);
+                errors += s.errors[op.ordinal()];
+                refused += s.refused[op.ordinal()];
+            }
+            if (h.count() == 0) continue;
+            total.add(h);
+            totalErrors += errors;
+            totalRefused += refused;
+            printRow(op.name().toLowerCase(Locale.ROOT), h, errors, refused, seconds);
+        }
+        if (total.count() > 0) {
+            printRow("all", total, totalErrors, totalRefused, seconds);
+        }
+    }
+
+    private static void printRow(String label, Histogram h, long errors, long refused, int seconds) {
+        System.out.printf("%-7s %,10d %,10.1f %7.2f%% %,8d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                label, h.count(), h.count() / (double) seconds, 100.0 * errors / h.count(), refused,
+                h.percentile(0.50) / 1e3, h.percentile(0.90) / 1e3, h.percentile(0.99) / 1e3,
+                h.percentile(0.999) / 1e3, h.max() / 1e6);
+    }
+
+    // Saves anything still pending, then checks each lot against its rows
+    private static boolean compareWithDatabase(DealershipRegistry registry, DealershipFileManager fileManager)
+            throws SQLException {
+        boolean consistent = true;
+        System.out.println();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            for (Dealership lot : registry.getDealerships()) {
+                if (lot.hasPendingChanges()) fileManager.saveDealership(lot);
+                InventorySnapshot.Fingerprint memory = InventorySnapshot.lotFingerprint(lot.getId(), lot.getAllVehicles());
+                InventorySnapshot.Fingerprint database = InventorySnapshot.queryLotFingerprint(conn, lot.getId());
+                boolean same = memory.equals(database);
+                consistent &= same;
+                System.out.printf("%s %s: %,d vehicles in memory, %,d in the database%s%n",
+                        same ? "✅" : "❌", lot.getName(), memory.rows(), database.rows(),
+                        same ? "" : " (contents differ)");
+            }
+        }
+        return consistent;
+    }
+
+    /** One simulated customer-facing terminal. */
+    private static final class Session {
+        final int id;
+        final Dealership lot;
+        final Mix mix;
+        final int seededVehicles;
+        final AtomicInteger nextVin;
+        final Random random;
+        final DealershipFileManager fileManager = new DealershipFileManager();
+        final ContractFileManager contracts = new ContractFileManager();
+        // VINs this session added and saved, for its removes
+        final Deque<Integer> added = new ArrayDeque<>();
+
+        final Histogram[] latencies = new Histogram[Op.values().length];
+        final long[] errors = new long[Op.values().length];
+        final long[] refused = new long[Op.values().length];
+
+        Session(int id, Dealership lot, Mix mix, int seededVehicles, AtomicInteger nextVin) {
+            this.id = id;
+            this.lot = lot;
+            this.mix = mix;
+            this.seededVehicles = seededVehicles;
+            this.nextVin = nextVin;
+            this.random = new Random(id);
+            for (int i = 0; i < latencies.length; i++) latencies[i] = new Histogram();
+        }
+
+        void run(long startAt, long measureFrom, long end) {
+            try {
+                long wait = startAt - System.nanoTime();
+                if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                return;
+            }
+            RUNNING.incrementAndGet();
+            try {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    Op op = mix.next(random);
+                    if (op == Op.REMOVE && added.isEmpty()) op = Op.ADD;
+
+                    Outcome outcome;
+                    try {
+                        outcome = perform(op);
+                    } catch (SQLException | RuntimeException e) {
+                        outcome = Outcome.ERROR;
+                    }
+                    long elapsed = System.nanoTime() - now;
+
+                    OPS.increment();
+                    if (outcome == Outcome.ERROR) ERRORS.increment();
+                    if (now >= measureFrom) {
+                        latencies[op.ordinal()].record(elapsed);
+                        if (outcome == Outcome.ERROR) errors[op.ordinal()]++;
+                        if (outcome == Outcome.REFUSED) refused[op.ordinal()]++;
+                    }
+                }
+            } finally {
+                RUNNING.decrementAndGet();
+            }
+        }
+
+        private Outcome perform(Op op) throws SQLException {
+            return switch (op) {
+                case SEARCH -> search();
+                case ADD -> add();
+                case REMOVE -> remove();
+                case SALE, LEASE -> sell(op == Op.LEASE);
+            };
+        }
+
+        private Outcome search() {
+            int price = 3_000 + random.nextInt(85_000);
+            int year = 2000 + random.nextInt(25);
+            switch (random.nextInt(4)) {
+                case 0 -> lot.getVehiclesByPrice(price, price + 5_000);
+                case 1 -> lot.getVehiclesByMakeModel(MAKES[random.nextInt(MAKES.length)], "Model" + random.nextInt(MODELS));
+                case 2 -> lot.getVehiclesByYear(year, year + 2);
+                default -> lot.query(new VehicleQuery()
+                        .priceBetween(price, price + 20_000)
+                        .colorContains(COLORS[random.nextInt(COLORS.length)])
+                        .sortBy(VehicleQuery.SortField.PRICE, false)
+                        .limit(20));
+            }
+            return Outcome.OK;
+        }
+
+        // Saved at once, as the menu does
+        private Outcome add() {
+            int vin = nextVin.getAndIncrement();
+            Vehicle v = new Vehicle(vin, 2000 + random.nextInt(25), MAKES[random.nextInt(MAKES.length)],
+                    "Model" + random.nextInt(MODELS), TYPES[random.nextInt(TYPES.length)],
+                    COLORS[random.nextInt(COLORS.length)], random.nextInt(200_000),
+                    3_000 + random.nextInt(8_700_000) / 100.0);
+            if (!lot.addVehicle(v)) return Outcome.ERROR;
+            if (!fileManager.saveDealership(lot)) return Outcome.ERROR;
+            added.add(vin);
+            return Outcome.OK;
+        }
+
+        private Outcome remove() {
+            int vin = added.poll();
+            if (!lot.removeVehicleByVin(vin)) return Outcome.ERROR;
+            return fileManager.saveDealership(lot) ? Outcome.OK : Outcome.ERROR;
+        }
+
+        // Seeded vehicles only, so sales never collide with this session's removes
+        private Outcome sell(boolean lease) throws SQLException {
+            Vehicle v = null;
+            for (int i = 0; i < SALE_PICKS && (v == null || v.isSold()); i++) {
+                int vin = random.nextInt(seededVehicles / LOTS) * LOTS + lot.getId() - 1;
+                if (vin >= 1) v = lot.getVehicleByVin(vin);
+            }
+            if (v == null) return Outcome.REFUSED;
+
+            String name = "Customer " + id + "-" + random.nextInt(1_000_000);
+            String email = "customer" + id + "@example.com";
+            String date = java.time.LocalDate.now().toString();
+            Contract contract = lease
+                    ? new LeaseContract(date, name, email, v)
+                    : new SalesContract(date, name, email, v, random.nextBoolean());
+            return contracts.sell(lot, contract) == ContractFileManager.SaleResult.SOLD
+                    ? Outcome.OK
+                    : Outcome.REFUSED;
+        }
+    }
+
+    private enum Outcome { OK, REFUSED, ERROR }
+
+    /** Weighted choice of the next operation. */
+    private static final class Mix {
+        private final int[] cumulative = new int[Op.values().length];
+        private final String text;
+
+        private Mix(int[] weights, String text) {
+            int sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            if (sum <= 0) throw new IllegalArgumentException("Mix needs at least one positive weight: " + text);
+            this.text = text;
+        }
+
+        static Mix parse(String text) {
+            int[] weights = new int[Op.values().length];
+            for (String part : text.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2) throw new IllegalArgumentException("Expected op=weight, got \"" + part + "\"");
+                Op op = Op.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+                weights[op.ordinal()] = Integer.parseInt(pair[1].trim());
+            }
+            return new Mix(weights, text);
+        }
+
+        Op next(Random random) {
+            int pick = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (pick < cumulative[i]) return Op.values()[i];
+            }
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * Latency histogram in microseconds: exact below 128 us, then 64 buckets
+     * per power of two (under 1.6% error), so a long soak needs no more
+     * memory than a short one.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 7;
+        private static final int HALF = 1 << (SUB_BITS - 1);
+
+        private final long[] counts = new long[64 * HALF];
+        private long count;
+        private long maxNanos;
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1_000);
+            counts[index(micros)]++;
+            count++;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            count += other.count;
+            maxNanos = Math.max(maxNanos, other.maxNanos);
+        }
+
+        long count() {
+            return count;
+        }
+
+        long max() {
+            return maxNanos;
+        }
+
+        /** The smallest bucket value (us) with at least fraction p of the samples at or below it. */
+        long percentile(double p) {
+            long target = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return value(i);
+            }
+            return 0;
+        }
+
+        private static int index(long micros) {
+            int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(micros) - SUB_BITS);
+            return shift == 0 ? (int) micros : (shift << (SUB_BITS - 1)) + (int) (micros >>> shift);
+        }
+
+        private static long value(int index) {
+            if (index < 2 * HALF) return index;
+            int shift = (index >>> (SUB_BITS - 1)) - 1;
+            return (long) (index - shift * HALF) << shift;
+        }
+    }
+
+    // Keeps the first bytes written to it and drops the rest
+    private static final class FirstBytes extends OutputStream {
+        private final ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        private final int limit;
+
+        FirstBytes(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (kept.size() < limit) kept.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = Math.min(len, limit - kept.size());
+            if (room > 0) kept.write(b, off, room);
+        }
+
+        synchronized int size() {
+            return kept.size();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return kept.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
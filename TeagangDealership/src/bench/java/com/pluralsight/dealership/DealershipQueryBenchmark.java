@@ -0,0 +1,101 @@
+package com.pluralsight.dealership;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every Dealership query method over a synthetic inventory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealershipQueryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    // Without the result cache every call runs the search; with it repeats are lookups
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private Dealership dealership;
+    private VehicleQuery combined;
+    private int existingVin;
+
+    @Setup
+    public void setUp() {
+        dealership = InventoryGenerator.dealership(size, 42);
+        if (!cache) {
+            dealership.setQueryCacheLimits(0, 0);
+        }
+        existingVin = 10_000 + size / 2;
+        combined = new VehicleQuery()
+                .priceBetween(10_000, 20_000)
+                .makeContains("honda")
+                .yearBetween(2018, Integer.MAX_VALUE);
+        // Build the lazy range indexes outside the measurement
+        dealership.getVehiclesByPrice(0, 1);
+        dealership.getVehiclesByYear(0, 1);
+        dealership.getVehiclesByMileage(0, 1);
+    }
+
+    @Benchmark
+    public List<Vehicle> getAllVehicles() {
+        return dealership.getAllVehicles();
+    }
+
+    @Benchmark
+    public Vehicle getVehicleByVin() {
+        return dealership.getVehicleByVin(existingVin);
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByPrice() {
+        return dealership.getVehiclesByPrice(15_000, 17_500);
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByYear() {
+        return dealership.getVehiclesByYear(2019, 2020);
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByMileage() {
+        return dealership.getVehiclesByMileage(20_000, 30_000);
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByMakeModel() {
+        return dealership.getVehiclesByMakeModel("toyota", "camry");
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByColor() {
+        return dealership.getVehiclesByColor("blue");
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclesByType() {
+        return dealership.getVehiclesByType("truck");
+    }
+
+    @Benchmark
+    public List<Vehicle> queryCombined() {
+        return dealership.query(combined);
+    }
+}
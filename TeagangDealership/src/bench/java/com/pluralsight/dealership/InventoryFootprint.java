@@ -0,0 +1,142 @@
+package com.pluralsight.dealership;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Heap used by a million vehicles as List&lt;Vehicle&gt;, as a
+ * CompactVehicleStore and as a MappedVehicleStore (in a temporary
+ * directory), alone and as a fully indexed Dealership.
+ *
+ * Rows are built the way a JDBC load builds them, with fresh String objects
+ * per row, since that is what a loaded lot holds. Heap is measured as used
+ * memory after repeated full GCs, so run it with nothing else in the JVM and
+ * a fixed heap (e.g. -Xms4g -Xmx4g) for stable numbers.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.InventoryFootprint
+ *     -Dexec.args="[vehicles]"
+ */
+public class InventoryFootprint {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%,d vehicles%n", count);
+        System.out.printf("%-30s %10s %14s %12s%n", "layout", "heap MB", "bytes/vehicle", "scan ms");
+
+        measure("List<Vehicle>", count, () -> {
+            List<Vehicle> list = new ArrayList<>();
+            loadRows(count, list::add);
+            return list;
+        }, list -> {
+            double sum = 0;
+            for (int i = 0; i < list.size(); i++) sum += list.get(i).getPrice();
+            return sum;
+        });
+
+        measure("CompactVehicleStore", count, () -> {
+            VehicleStore store = VehicleStore.compact();
+            loadRows(count, store::add);
+            return store;
+        }, store -> {
+            double sum = 0;
+            for (int i = 0; i < store.size(); i++) sum += store.get(i).getPrice();
+            return sum;
+        });
+
+        Path directory = Files.createTempDirectory("inventory-footprint");
+        measure("MappedVehicleStore", count, () -> {
+            VehicleStore store = mapped(directory.resolve("store"));
+            loadRows(count, store::add);
+            return store;
+        }, store -> {
+            double sum = 0;
+            for (int i = 0; i < store.size(); i++) sum += store.get(i).getPrice();
+            return sum;
+        });
+
+        measure("Dealership (heap store)", count, () -> {
+            Dealership d = new Dealership(1, "Heap", "", "");
+            loadRows(count, d::loadVehicle);
+            d.buildRangeIndexes();
+            return d;
+        }, d -> d.getVehiclesByPrice(15_000, 17_500).size());
+
+        measure("Dealership (compact store)", count, () -> {
+            Dealership d = new Dealership(1, "Compact", "", "", VehicleStore.compact());
+            loadRows(count, d::loadVehicle);
+            d.buildRangeIndexes();
+            return d;
+        }, d -> d.getVehiclesByPrice(15_000, 17_500).size());
+
+        measure("Dealership (mapped store)", count, () -> {
+            Dealership d = new Dealership(1, "Mapped", "", "", mapped(directory.resolve("lot")));
+            loadRows(count, d::loadVehicle);
+            d.buildRangeIndexes();
+            return d;
+        }, d -> d.getVehiclesByPrice(15_000, 17_500).size());
+        System.out.println("Mapped stores left in " + directory);
+    }
+
+    private static VehicleStore mapped(Path directory) {
+        try {
+            return VehicleStore.mapped(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface Sink {
+        void accept(Vehicle v);
+    }
+
+    // new String(...) per field, like ResultSet.getString
+    private static void loadRows(int count, Sink sink) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            Vehicle v = InventoryGenerator.randomVehicle(random, 10_000 + i);
+            sink.accept(new Vehicle(v.getVin(), v.getYear(), new String(v.getMake()), new String(v.getModel()),
+                    new String(v.getType()), new String(v.getColor()), v.getOdometer(), v.getPrice()));
+        }
+    }
+
+    // Keeps the scans from being optimized away
+    private static volatile double sink;
+
+    private static <T> void measure(String label, int count, Supplier<T> build, ToDoubleFunction<T> scan) {
+        long before = usedAfterGc();
+        T built = build.get();
+        long after = usedAfterGc();
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            sink = scan.applyAsDouble(built);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long bytes = after - before;
+        System.out.printf("%-30s %10.1f %14.1f %12.1f%n",
+                label, bytes / 1048576.0, (double) bytes / count, best / 1e6);
+    }
+
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,59 @@
+package com.pluralsight.dealership;
+
+import java.util.Random;
+
+/**
+ * Builds reproducible synthetic inventories for benchmarks.
+ */
+public final class InventoryGenerator {
+
+    static final String[] MAKES = {
+            "Toyota", "Honda", "Ford", "Chevrolet", "Nissan", "Hyundai", "Kia", "Subaru",
+            "Mazda", "Jeep", "Dodge", "Ram", "GMC", "BMW", "Audi", "Lexus", "Tesla", "Volkswagen"
+    };
+    static final String[][] MODELS = {
+            {"Camry", "Corolla", "RAV4", "Tacoma"}, {"Civic", "Accord", "CR-V", "Pilot"},
+            {"F-150", "Escape", "Explorer", "Mustang"}, {"Silverado", "Malibu", "Equinox", "Tahoe"},
+            {"Altima", "Rogue", "Sentra", "Frontier"}, {"Elantra", "Sonata", "Tucson", "Santa Fe"},
+            {"Forte", "Sorento", "Sportage", "Telluride"}, {"Outback", "Forester", "Crosstrek", "Impreza"},
+            {"Mazda3", "CX-5", "CX-30", "MX-5"}, {"Wrangler", "Cherokee", "Compass", "Gladiator"},
+            {"Charger", "Durango", "Challenger", "Journey"}, {"1500", "2500", "ProMaster", "3500"},
+            {"Sierra", "Yukon", "Acadia", "Canyon"}, {"3 Series", "X3", "X5", "5 Series"},
+            {"A4", "Q5", "Q7", "A6"}, {"RX", "ES", "NX", "IS"},
+            {"Model 3", "Model Y", "Model S", "Model X"}, {"Jetta", "Tiguan", "Atlas", "Golf"}
+    };
+    static final String[] TYPES = {"car", "truck", "suv", "van"};
+    static final String[] COLORS = {
+            "Black", "White", "Silver", "Gray", "Red", "Blue", "Green", "Brown", "Orange", "Yellow"
+    };
+
+    private InventoryGenerator() { }
+
+    public static Vehicle randomVehicle(Random random, int vin) {
+        int makeIndex = random.nextInt(MAKES.length);
+        String[] models = MODELS[makeIndex];
+        int year = 1995 + random.nextInt(31);
+        long odometer = (long) (random.nextDouble() * 250_000);
+        double price = Math.round((2_000 + random.nextDouble() * 78_000) * 100) / 100.0;
+        return new Vehicle(vin, year, MAKES[makeIndex], models[random.nextInt(models.length)],
+                TYPES[random.nextInt(TYPES.length)], COLORS[random.nextInt(COLORS.length)],
+                odometer, price);
+    }
+
+    public static Vehicle[] vehicles(int count, long seed) {
+        Random random = new Random(seed);
+        Vehicle[] vehicles = new Vehicle[count];
+        for (int i = 0; i < count; i++) {
+            vehicles[i] = randomVehicle(random, 10_000 + i);
+        }
+        return vehicles;
+    }
+
+    public static Dealership dealership(int count, long seed) {
+        Dealership dealership = new Dealership("Bench Motors", "1 Benchmark Way", "555-000-0000");
+        for (Vehicle v : vehicles(count, seed)) {
+            dealership.loadVehicle(v);
+        }
+        return dealership;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pluralsight.dealership;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addVehicle and removeVehicleByVin at several inventory sizes.
+ *
+ * Each invocation removes an existing vehicle and adds it back, so the
+ * inventory size stays fixed; the reported time is per single operation.
+ * With rangeIndexesBuilt=true every mutation also maintains the sorted
+ * price/year/mileage indexes, which is the steady state after the first search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryMutationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean rangeIndexesBuilt;
+
+    private Dealership dealership;
+    private Vehicle[] vehicles;
+    private int[] order;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        vehicles = InventoryGenerator.vehicles(size, 42);
+        dealership = new Dealership("Bench Motors", "1 Benchmark Way", "555-000-0000");
+        for (Vehicle v : vehicles) {
+            dealership.loadVehicle(v);
+        }
+        if (rangeIndexesBuilt) {
+            dealership.getVehiclesByPrice(0, 1);
+            dealership.getVehiclesByYear(0, 1);
+            dealership.getVehiclesByMileage(0, 1);
+        }
+
+        // Visit vehicles in random order so we don't always hit the list tail
+        Random random = new Random(7);
+        order = new int[65_536]; // power of two for cheap masking
+        for (int i = 0; i < order.length; i++) {
+            order[i] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public boolean removeThenAdd() {
+        Vehicle v = vehicles[order[next++ & (order.length - 1)]];
+        dealership.removeVehicleByVin(v.getVin());
+        return dealership.addVehicle(v);
+    }
+}
@@ -0,0 +1,82 @@
+package com.pluralsight.dealership;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the sorted range indexes with the old full-inventory stream scans.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.RangeQueryBenchmark
+ */
+public class RangeQueryBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-8s %14s %14s %10s%n", "vehicles", "query", "scan µs/op", "index µs/op", "speedup");
+        for (int size : SIZES) {
+            Dealership dealership = InventoryGenerator.dealership(size, 42);
+            dealership.setQueryCacheLimits(0, 0); // measure the index, not the result cache
+            List<Vehicle> all = dealership.getAllVehicles();
+
+            // Narrow ranges, like a customer would actually ask for
+            run(size, "price",
+                    () -> scan(all, "price"),
+                    () -> dealership.getVehiclesByPrice(15_000, 17_500));
+            run(size, "year",
+                    () -> scan(all, "year"),
+                    () -> dealership.getVehiclesByYear(2019, 2020));
+            run(size, "mileage",
+                    () -> scan(all, "mileage"),
+                    () -> dealership.getVehiclesByMileage(20_000, 30_000));
+        }
+    }
+
+    // The pre-index implementations, kept here as the baseline
+    private static List<Vehicle> scan(List<Vehicle> all, String field) {
+        return switch (field) {
+            case "price" -> all.stream()
+                    .filter(v -> v.getPrice() >= 15_000 && v.getPrice() <= 17_500)
+                    .collect(Collectors.toList());
+            case "year" -> all.stream()
+                    .filter(v -> v.getYear() >= 2019 && v.getYear() <= 2020)
+                    .collect(Collectors.toList());
+            default -> all.stream()
+                    .filter(v -> v.getOdometer() >= 20_000 && v.getOdometer() <= 30_000)
+                    .collect(Collectors.toList());
+        };
+    }
+
+    private static void run(int size, String name, QueryTask scan, QueryTask indexed) {
+        // Warm up both paths (this also builds the lazy index)
+        int expected = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            expected = scan.run().size();
+            if (indexed.run().size() != expected) {
+                throw new IllegalStateException(name + " results differ between scan and index");
+            }
+        }
+
+        double scanMicros = time(scan);
+        double indexMicros = time(indexed);
+        System.out.printf("%-10d %-8s %14.1f %14.1f %9.1fx   (%d matches)%n",
+                size, name, scanMicros, indexMicros, scanMicros / indexMicros, expected);
+    }
+
+    private static double time(QueryTask task) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            sink += task.run().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink < 0) System.out.println(sink);
+        return elapsed / 1000.0 / QUERIES;
+    }
+
+    @FunctionalInterface
+    private interface QueryTask {
+        List<Vehicle> run();
+    }
+}
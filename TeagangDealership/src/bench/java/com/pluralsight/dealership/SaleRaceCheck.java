@@ -0,0 +1,186 @@
+package com.pluralsight.dealership;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races ContractFileManager.sell between sessions against a throwaway local
+ * Postgres and checks that no vehicle is sold twice.
+ *
+ * Each session is its own terminal: its own copy of the lot and its own
+ * ContractFileManager. All of them try to sell every vehicle, starting
+ * together. Afterwards every vehicle must be sold exactly once, with one
+ * contract, and each session's lot must show the vehicles it sold as sold.
+ * Then times one sale the old way (contract insert, then the sold flag on a
+ * second connection) against one sell() round trip.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.SaleRaceCheck
+ *     -Dexec.args="[sessions] [vehicles]"
+ */
+public class SaleRaceCheck {
+
+    private static final int ROUNDS = 200;
+
+    private static final String SEED = """
+        INSERT INTO dealerships VALUES (1, 'Bench Lot', '1 Main St', '555-0001');
+        INSERT INTO vehicles (vin, make, model, type, year, price, color, dealership_id, odometer)
+        SELECT g::text, 'Honda', 'Civic', 'Car', 2020, 15000 + g, 'Blue', 1, g * 10
+        FROM generate_series(1, %d) g
+        """;
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int vehicles = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            DataSource ds = pg.getPostgresDatabase();
+            try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+                st.execute(BenchDatabase.SCHEMA);
+                st.execute(String.format(SEED, vehicles + 2 * ROUNDS));
+            }
+
+            Dealership loaded = new Dealership(1, "Bench Lot", "1 Main St", "555-0001");
+            for (int vin = 1; vin <= vehicles + 2 * ROUNDS; vin++) {
+                loaded.loadVehicle(new Vehicle(vin, 2020, "Honda", "Civic", "Car", "Blue", vin * 10L, 15000 + vin));
+            }
+
+            boolean ok = race(ds, loaded, sessions, vehicles);
+            time(ds, loaded, vehicles);
+            if (!ok) System.exit(1);
+        }
+    }
+
+    private static boolean race(DataSource ds, Dealership loaded, int sessions, int vehicles) throws Exception {
+        ConcurrentDealership[] lots = new ConcurrentDealership[sessions];
+        int[][] soldBy = new int[sessions][];
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int s = 0; s < sessions; s++) {
+            int session = s;
+            lots[s] = new ConcurrentDealership(loaded);
+            threads.add(new Thread(() -> {
+                ContractFileManager contracts = new ContractFileManager(ds::getConnection);
+                List<Integer> mine = new ArrayList<>();
+                try {
+                    start.await();
+                    // Sessions walk the VINs from different starting points, so they collide all along
+                    for (int i = 0; i < vehicles; i++) {
+                        int vin = 1 + (i + session * vehicles / sessions) % vehicles;
+                        Vehicle v = lots[session].getVehicleByVin(vin);
+                        Contract contract = session % 2 == 0
+                                ? new SalesContract("2025-01-01", "Session " + session, "s@example.com", v, i % 3 == 0)
+                                : new LeaseContract("2025-01-01", "Session " + session, "s@example.com", v);
+                        try {
+                            if (contracts.sell(lots[session], contract) == ContractFileManager.SaleResult.SOLD) {
+                                mine.add(vin);
+                            } else {
+                                refused.incrementAndGet();
+                            }
+                        } catch (SQLException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                soldBy[session] = mine.stream().mapToInt(Integer::intValue).toArray();
+            }, "session-" + s));
+        }
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - begin;
+
+        int[] sales = new int[vehicles + 1];
+        boolean ok = errors.get() == 0;
+        for (int s = 0; s < sessions; s++) {
+            for (int vin : soldBy[s]) {
+                sales[vin]++;
+                if (!lots[s].getVehicleByVin(vin).isSold()) {
+                    System.out.println("❌ Session " + s + " sold VIN " + vin + " but its lot does not show it sold");
+                    ok = false;
+                }
+            }
+        }
+        long wrong = Arrays.stream(sales, 1, vehicles + 1).filter(n -> n != 1).count();
+
+        try (Connection conn = ds.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("""
+                 SELECT
+                   (SELECT count(*) FROM vehicles WHERE sold AND vin::int <= %d),
+                   (SELECT count(*) FROM (SELECT vehicle_vin FROM sales_contracts
+                                          UNION ALL SELECT vehicle_vin FROM lease_contracts) c),
+                   (SELECT count(*) FROM (SELECT vehicle_vin FROM sales_contracts
+                                          UNION ALL SELECT vehicle_vin FROM lease_contracts) c
+                    GROUP BY vehicle_vin HAVING count(*) > 1 LIMIT 1)
+                 """.formatted(vehicles))) {
+            rs.next();
+            long soldRows = rs.getLong(1);
+            long contracts = rs.getLong(2);
+            long doubled = rs.getLong(3);
+            System.out.printf("%d sessions, %,d vehicles: %,d sold, %,d refused, %d errors in %,d ms%n",
+                    sessions, vehicles, vehicles - wrong, refused.get(), errors.get(), elapsed / 1_000_000);
+            System.out.printf("   database: %,d sold, %,d contracts, %s%n",
+                    soldRows, contracts, doubled > 0 ? "❌ some vehicle has two contracts" : "no vehicle has two contracts");
+            ok &= wrong == 0 && soldRows == vehicles && contracts == vehicles && doubled == 0;
+        }
+        System.out.println(ok ? "✅ Every vehicle sold exactly once" : "❌ Double or missing sales");
+        return ok;
+    }
+
+    // The old path: saveContract on one connection, the sold flag saved on another
+    private static void time(DataSource ds, Dealership loaded, int vehicles) throws SQLException {
+        Dealership lot = new Dealership(loaded);
+        ContractFileManager contracts = new ContractFileManager(ds::getConnection);
+
+        long[] twoTrips = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            Vehicle v = lot.getVehicleByVin(vehicles + 1 + i);
+            long start = System.nanoTime();
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(ContractFileManager.SALES_INSERT_SQL)) {
+                ContractFileManager.bindSale(ps, new SalesContract("2025-01-01", "Old", "o@example.com", v, false));
+                ps.executeUpdate();
+            }
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("UPDATE vehicles SET sold = true WHERE vin = ?")) {
+                ps.setString(1, String.valueOf(v.getVin()));
+                ps.executeUpdate();
+            }
+            twoTrips[i] = System.nanoTime() - start;
+        }
+
+        long[] oneTrip = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            Vehicle v = lot.getVehicleByVin(vehicles + ROUNDS + 1 + i);
+            long start = System.nanoTime();
+            contracts.sell(lot, new SalesContract("2025-01-01", "New", "n@example.com", v, false));
+            oneTrip[i] = System.nanoTime() - start;
+        }
+
+        System.out.printf("%nSale latency over %d sales (median / p99):%n", ROUNDS);
+        print("insert, then sold flag (2 connections)", twoTrips);
+        print("sell() (1 statement)", oneTrip);
+    }
+
+    private static void print(String label, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("   %-40s %8.3f ms %8.3f ms%n", label,
+                nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,138 @@
+package com.pluralsight.dealership;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sustained-load test for DealershipServer: closed-loop clients firing a
+ * kiosk-like request mix for a fixed time, reporting requests per second
+ * and latency percentiles.
+ *
+ * Without a URL it serves a synthetic in-memory lot (nothing is saved). With
+ * one it drives a running server (java Program --server), read-only.
+ *
+ * mvn -Pbench compile exec:java -Dbench.main=com.pluralsight.dealership.ServerLoadTest
+ *     -Dexec.args="[seconds] [clients] [inventory] [url]"
+ */
+public class ServerLoadTest {
+
+    private static final String[] MAKES = {"toyota", "honda", "ford", "bmw", "kia"};
+    private static final String[] COLORS = {"black", "white", "red", "blue"};
+    private static final String[] TYPES = {"car", "truck", "suv", "van"};
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int inventory = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        String url = args.length > 3 ? args[3] : null;
+
+        DealershipServer server = null;
+        if (url == null) {
+            DealershipRegistry registry = new DealershipRegistry();
+            registry.add(InventoryGenerator.dealership(inventory, 42));
+            server = new DealershipServer(registry, null, null);
+            server.start(0);
+            url = "http://localhost:" + server.getPort();
+        }
+        String base = url;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        // Warm up the JIT and the query cache before measuring
+        runFor(client, base, clients, 3, inventory);
+        Result result = runFor(client, base, clients, seconds, inventory);
+
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("%d clients, %d vehicles, %ds against %s%n", clients, inventory, seconds, base);
+        System.out.printf("requests: %,d (%,.0f req/s), errors: %d%n",
+                latencies.length, latencies.length / (double) seconds, result.errors);
+        System.out.printf("latency µs: p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+
+        if (server != null) server.stop(0);
+    }
+
+    private record Result(long[] latencies, long errors) { }
+
+    private static Result runFor(HttpClient client, String base, int clients, int seconds, int inventory)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<long[]> perClient = new ArrayList<>();
+        long[] errors = new long[clients];
+        int[] counts = new int[clients];
+        List<Thread> threads = new ArrayList<>();
+
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            long[] samples = new long[1 << 16];
+            perClient.add(samples);
+            threads.add(new Thread(() -> {
+                long[] mine = samples;
+                int n = 0;
+                while (running.get()) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + nextPath(inventory))).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 500) errors[id]++;
+                    } catch (Exception e) {
+                        errors[id]++;
+                        continue;
+                    }
+                    if (n == mine.length) mine = Arrays.copyOf(mine, n << 1);
+                    mine[n++] = (System.nanoTime() - start) / 1_000;
+                }
+                perClient.set(id, mine);
+                counts[id] = n;
+            }, "client-" + c));
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) t.join();
+
+        int total = 0;
+        for (int n : counts) total += n;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(perClient.get(c), 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        return new Result(all, Arrays.stream(errors).sum());
+    }
+
+    // Roughly what a kiosk does: mostly filtered, paged searches plus VIN lookups
+    private static String nextPath(int inventory) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        int price = 5_000 * (1 + r.nextInt(12));
+        return switch (r.nextInt(6)) {
+            case 0 -> "/vehicles/" + (10_000 + r.nextInt(Math.max(1, inventory)));
+            case 1 -> "/vehicles?minPrice=" + price + "&maxPrice=" + (price + 5_000) + "&limit=50";
+            case 2 -> "/vehicles?make=" + MAKES[r.nextInt(MAKES.length)] + "&sort=price&limit=20";
+            case 3 -> "/vehicles?type=" + TYPES[r.nextInt(TYPES.length)] + "&color=" + COLORS[r.nextInt(COLORS.length)]
+                    + "&minYear=2015&limit=50";
+            case 4 -> "/vehicles?minMileage=0&maxMileage=" + (10_000 + r.nextInt(40_000)) + "&sort=mileage&limit=25";
+            default -> "/health";
+        };
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+}
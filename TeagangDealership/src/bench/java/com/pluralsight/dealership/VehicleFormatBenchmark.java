@@ -0,0 +1,72 @@
+package com.pluralsight.dealership;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipe-format parsing and the text renderings of a Vehicle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleFormatBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private Vehicle[] vehicles;
+    private String[] lines;
+    private final StringBuilder row = new StringBuilder(128);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        vehicles = InventoryGenerator.vehicles(SAMPLES, 42);
+        lines = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            lines[i] = vehicles[i].toPipe();
+        }
+    }
+
+    @Benchmark
+    public Vehicle fromPipe() {
+        return Vehicle.fromPipe(lines[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public String toPipe() {
+        return vehicles[next++ & (SAMPLES - 1)].toPipe();
+    }
+
+    @Benchmark
+    public String toStringRow() {
+        return vehicles[next++ & (SAMPLES - 1)].toString();
+    }
+
+    // What Vehicle.toString did before appendRow, for comparison
+    @Benchmark
+    public String rowWithFormatter() {
+        Vehicle v = vehicles[next++ & (SAMPLES - 1)];
+        return String.format("%-6d %-4d %-10s %-12s %-6s %-10s %9d $%,10.2f", v.getVin(), v.getYear(),
+                v.getMake(), v.getModel(), v.getType(), v.getColor(), v.getOdometer(), v.getPrice());
+    }
+
+    @Benchmark
+    public int appendRowReused() {
+        row.setLength(0);
+        vehicles[next++ & (SAMPLES - 1)].appendRow(row);
+        return row.length();
+    }
+}
@@ -0,0 +1,197 @@
+package com.pluralsight.dealership;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Vehicles as parallel primitive columns instead of objects.
+ *
+ * Make, model, type and color are stored as codes into the shared
+ * SymbolTables, two bytes each until a table outgrows that; VIN, year,
+ * odometer and price are plain arrays. A vehicle costs about 32 bytes and
+ * no objects, against a Vehicle object plus four Strings per row on the
+ * heap. {@link #get} builds a new Vehicle from the columns each time, with
+ * the dictionary's String instances, so callers see ordinary Vehicles.
+ */
+final class CompactVehicleStore implements VehicleStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private int[] vins;
+    private int[] years;
+    private long[] odometers;
+    private double[] prices;
+    private final Codes makes;
+    private final Codes models;
+    private final Codes types;
+    private final Codes colors;
+
+    CompactVehicleStore() {
+        vins = new int[INITIAL_CAPACITY];
+        years = new int[INITIAL_CAPACITY];
+        odometers = new long[INITIAL_CAPACITY];
+        prices = new double[INITIAL_CAPACITY];
+        makes = new Codes(SymbolTable.MAKES, INITIAL_CAPACITY);
+        models = new Codes(SymbolTable.MODELS, INITIAL_CAPACITY);
+        types = new Codes(SymbolTable.TYPES, INITIAL_CAPACITY);
+        colors = new Codes(SymbolTable.COLORS, INITIAL_CAPACITY);
+    }
+
+    private CompactVehicleStore(CompactVehicleStore other) {
+        size = other.size;
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+        vins = Arrays.copyOf(other.vins, capacity);
+        years = Arrays.copyOf(other.years, capacity);
+        odometers = Arrays.copyOf(other.odometers, capacity);
+        prices = Arrays.copyOf(other.prices, capacity);
+        makes = other.makes.copy(capacity);
+        models = other.models.copy(capacity);
+        types = other.types.copy(capacity);
+        colors = other.colors.copy(capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Vehicle get(int position) {
+        checkPosition(position);
+        return new Vehicle(vins[position], years[position], makes.symbol(position), models.symbol(position),
+                types.symbol(position), colors.symbol(position), odometers[position], prices[position]);
+    }
+
+    @Override
+    public void add(Vehicle vehicle) {
+        if (size == vins.length) {
+            grow(Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        }
+        write(size++, vehicle);
+    }
+
+    @Override
+    public void set(int position, Vehicle vehicle) {
+        checkPosition(position);
+        write(position, vehicle);
+    }
+
+    @Override
+    public Vehicle removeLast() {
+        Vehicle last = get(size - 1);
+        size--;
+        return last;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public VehicleStore copy() {
+        return new CompactVehicleStore(this);
+    }
+
+    @Override
+    public List<Vehicle> asList() {
+        return new View();
+    }
+
+    private void write(int position, Vehicle v) {
+        vins[position] = v.getVin();
+        years[position] = v.getYear();
+        odometers[position] = v.getOdometer();
+        prices[position] = v.getPrice();
+        makes.set(position, v.getMake());
+        models.set(position, v.getModel());
+        types.set(position, v.getType());
+        colors.set(position, v.getColor());
+    }
+
+    private void grow(int capacity) {
+        vins = Arrays.copyOf(vins, capacity);
+        years = Arrays.copyOf(years, capacity);
+        odometers = Arrays.copyOf(odometers, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        makes.grow(capacity);
+        models.grow(capacity);
+        types.grow(capacity);
+        colors.grow(capacity);
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        }
+    }
+
+    private final class View extends AbstractList<Vehicle> implements RandomAccess {
+        @Override
+        public Vehicle get(int index) {
+            return CompactVehicleStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * One field's dictionary codes: a char per vehicle while every code fits
+     * in 16 bits, widened to an int per vehicle the first time one does not.
+     */
+    private static final class Codes {
+        private final SymbolTable table;
+        private char[] narrow;
+        private int[] wide;
+
+        Codes(SymbolTable table, int capacity) {
+            this.table = table;
+            this.narrow = new char[capacity];
+        }
+
+        private Codes(Codes other, int capacity) {
+            this.table = other.table;
+            if (other.wide != null) {
+                this.wide = Arrays.copyOf(other.wide, capacity);
+            } else {
+                this.narrow = Arrays.copyOf(other.narrow, capacity);
+            }
+        }
+
+        Codes copy(int capacity) {
+            return new Codes(this, capacity);
+        }
+
+        String symbol(int position) {
+            return table.symbol(wide != null ? wide[position] : narrow[position]);
+        }
+
+        void set(int position, String value) {
+            int code = table.code(value);
+            if (wide == null && code > Character.MAX_VALUE) {
+                wide = new int[narrow.length];
+                for (int i = 0; i < narrow.length; i++) wide[i] = narrow[i];
+                narrow = null;
+            }
+            if (wide != null) {
+                wide[position] = code;
+            } else {
+                narrow[position] = (char) code;
+            }
+        }
+
+        void grow(int capacity) {
+            if (wide != null) {
+                wide = Arrays.copyOf(wide, capacity);
+            } else {
+                narrow = Arrays.copyOf(narrow, capacity);
+            }
+        }
+    }
+}
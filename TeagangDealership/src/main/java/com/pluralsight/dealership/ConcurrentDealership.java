@@ -0,0 +1,239 @@
+package com.pluralsight.dealership;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A Dealership that many sessions can share.
+ *
+ * Readers never lock. Each read works against an immutable snapshot: the
+ * inventory plus every index, fully built and published through one volatile
+ * field. Writers serialize on a single lock. Each write copies the current
+ * snapshot, applies the change and publishes the copy. A write is visible to
+ * every read that starts after it returns, and a read sees either all of a
+ * write or none of it. Use {@link #batch(Consumer)} to apply many changes
+ * with one copy.
+ *
+ * Vehicles are shared between snapshots, so change a vehicle by passing a new
+ * object to updateVehicle rather than calling its setters. Bulk-load into a
+ * plain Dealership and wrap it; loadVehicle here pays for one copy per row.
+ * A lot in a MappedVehicleStore works, but each write rewrites its whole
+ * records file, so the constructor warns; share a compact or heap lot instead.
+ *
+ * The inherited fields of this object are left empty; every inventory method,
+ * package-private ones included, delegates to the current snapshot. Search
+ * results are cached in a cache of this lot's own, shared by its snapshots.
+ */
+public class ConcurrentDealership extends Dealership {
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final QueryCache queryCache;
+    private volatile Dealership current;
+
+    /**
+     * Takes a copy of {@code initial}; later changes to it are not seen here.
+     */
+    public ConcurrentDealership(Dealership initial) {
+        super(initial.getId(), initial.getName(), initial.getAddress(), initial.getPhone());
+        QueryCache.CacheStats limits = initial.getQueryCacheStats();
+        this.queryCache = new QueryCache(limits.maxEntries(), limits.maxVehicles());
+        Dealership first = new Dealership(initial, queryCache);
+        first.buildRangeIndexes();
+        this.current = first;
+
+        if (first.isStoredOnDisk()) {
+            System.err.printf("⚠️ Lot %d keeps its vehicles in memory-mapped files: shared this way, every change"
+                    + " rewrites all %,d of them (%,.0f MB). Use -Ddealership.store=compact for the server.%n",
+                    getId(), first.getVehicleCount(),
+                    (double) first.getVehicleCount() * MappedVehicleStore.RECORD_BYTES / (1 << 20));
+        }
+    }
+
+    // --- Snapshots ---
+
+    /** The snapshot reads currently go to. Must not be modified. */
+    Dealership snapshot() {
+        return current;
+    }
+
+    /**
+     * Applies several changes as one write: one copy, published atomically.
+     */
+    public void batch(Consumer<Dealership> changes) {
+        write(d -> {
+            changes.accept(d);
+            return null;
+        });
+    }
+
+    private <T> T write(Function<Dealership, T> change) {
+        writeLock.lock();
+        try {
+            Dealership next = new Dealership(current, queryCache);
+            T result = change.apply(next);
+            // Finish lazy work now so readers never modify a shared snapshot
+            next.buildRangeIndexes();
+            current = next;
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // --- Writes ---
+    @Override
+    public boolean addVehicle(Vehicle vehicle) {
+        return write(d -> d.addVehicle(vehicle));
+    }
+
+    @Override
+    public int addVehicles(Collection<Vehicle> vehicles) {
+        return write(d -> d.addVehicles(vehicles));
+    }
+
+    @Override
+    boolean loadVehicle(Vehicle vehicle) {
+        return write(d -> d.loadVehicle(vehicle));
+    }
+
+    // Every snapshot is published with its range indexes built
+    @Override
+    void buildRangeIndexes() {
+    }
+
+    @Override
+    public boolean updateVehicle(Vehicle vehicle) {
+        return write(d -> d.updateVehicle(vehicle));
+    }
+
+    @Override
+    public boolean removeVehicleByVin(int vin) {
+        return write(d -> d.removeVehicleByVin(vin));
+    }
+
+    @Override
+    boolean markSold(int vin) {
+        return write(d -> d.markSold(vin));
+    }
+
+    @Override
+    boolean applyRemoteUpsert(Vehicle vehicle) {
+        return write(d -> d.applyRemoteUpsert(vehicle));
+    }
+
+    @Override
+    boolean applyRemoteRemove(int vin) {
+        return write(d -> d.applyRemoteRemove(vin));
+    }
+
+    @Override
+    public void markSaved(Map<Integer, PendingChange> saved) {
+        batch(d -> d.markSaved(saved));
+    }
+
+    @Override
+    public void clearPendingChanges() {
+        batch(Dealership::clearPendingChanges);
+    }
+
+    // --- Reads (lock-free) ---
+    @Override
+    public boolean hasPendingChanges() {
+        return current.hasPendingChanges();
+    }
+
+    @Override
+    public Map<Integer, ChangeType> getPendingChanges() {
+        return current.getPendingChanges();
+    }
+
+    @Override
+    public Map<Integer, PendingChange> getChangesToSave() {
+        return current.getChangesToSave();
+    }
+
+    @Override
+    public Vehicle getVehicleByVin(int vin) {
+        return current.getVehicleByVin(vin);
+    }
+
+    @Override
+    public int getVehicleCount() {
+        return current.getVehicleCount();
+    }
+
+    /**
+     * Read-only view of the current snapshot; O(1), and later writes never change it.
+     */
+    @Override
+    public List<Vehicle> getAllVehicles() {
+        return Collections.unmodifiableList(current.inventoryView());
+    }
+
+    // The current snapshot's store; never modified, like getAllVehicles
+    @Override
+    List<Vehicle> inventoryView() {
+        return current.inventoryView();
+    }
+
+    @Override
+    boolean isStoredOnDisk() {
+        return current.isStoredOnDisk();
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByPrice(double min, double max) {
+        return current.getVehiclesByPrice(min, max);
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByMakeModel(String make, String model) {
+        return current.getVehiclesByMakeModel(make, model);
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByYear(int minYear, int maxYear) {
+        return current.getVehiclesByYear(minYear, maxYear);
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByColor(String color) {
+        return current.getVehiclesByColor(color);
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByMileage(long min, long max) {
+        return current.getVehiclesByMileage(min, max);
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesByType(String type) {
+        return current.getVehiclesByType(type);
+    }
+
+    @Override
+    public List<Vehicle> query(VehicleQuery q) {
+        return current.query(q);
+    }
+
+    @Override
+    public String explain(VehicleQuery q) {
+        return current.explain(q);
+    }
+
+    // --- Result cache (shared by every snapshot of this lot) ---
+    @Override
+    public QueryCache.CacheStats getQueryCacheStats() {
+        return queryCache.getStats();
+    }
+
+    @Override
+    public void setQueryCacheLimits(int maxEntries, int maxVehicles) {
+        queryCache.resize(maxEntries, maxVehicles);
+    }
+}
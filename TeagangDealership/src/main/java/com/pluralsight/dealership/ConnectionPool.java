@@ -0,0 +1,356 @@
+package com.pluralsight.dealership;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool.
+ *
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it, so existing
+ * try-with-resources code keeps working unchanged.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    // Connections used this recently are trusted without a validation round trip
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    // Wait for a permit plus validation or connect, i.e. what getConnection() costs the caller
+    private static final Metrics.Timer ACQUIRE_TIMER =
+            Metrics.timer("db_connection_acquire_seconds", "Time to get a connection from the pool");
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutMs;
+    private final long connectionTimeoutMs;
+    private final long leakThresholdMs;
+    private final boolean captureBorrowSites;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // --- Statistics ---
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password,
+                          int maxSize, int minIdle,
+                          long idleTimeoutMs, long connectionTimeoutMs, long leakThresholdMs) {
+        this(url, user, password, maxSize, minIdle, idleTimeoutMs, connectionTimeoutMs, leakThresholdMs, false);
+    }
+
+    /**
+     * @param captureBorrowSites record a stack trace on every borrow so a leak
+     *                           report shows where the connection was taken;
+     *                           costs a stack walk per borrow, so for debugging only
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int maxSize, int minIdle,
+                          long idleTimeoutMs, long connectionTimeoutMs, long leakThresholdMs,
+                          boolean captureBorrowSites) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.captureBorrowSites = captureBorrowSites;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs, 30_000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the connection timeout if the pool is exhausted.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        waitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                created.incrementAndGet();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = captureBorrowSites && leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            inUse.add(pooled);
+            borrowed.incrementAndGet();
+            ACQUIRE_TIMER.recordSince(start);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Pops idle connections (most recently used first) until one passes validation
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (isAlive(candidate)) {
+                return candidate;
+            }
+            invalidated.incrementAndGet();
+            closeQuietly(candidate.physical);
+        }
+    }
+
+    private boolean isAlive(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) return false;
+            if (System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MS) return true;
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Called by a handle's close(): reset session state and park the connection again
+    private void release(PooledConnection pooled) {
+        inUse.remove(pooled);
+        boolean reusable = !closed;
+        try {
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.lastUsed = System.currentTimeMillis();
+            pooled.borrowSite = null;
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } else {
+            invalidated.incrementAndGet();
+            closeQuietly(pooled.physical);
+        }
+        permits.release();
+    }
+
+    // Evicts idle connections past their timeout and reports suspected leaks
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (idle) {
+            // Oldest idle connections sit at the tail
+            while (idle.size() > minIdle) {
+                PooledConnection oldest = idle.peekLast();
+                if (oldest == null || now - oldest.lastUsed < idleTimeoutMs) break;
+                expired.add(idle.pollLast());
+            }
+        }
+        for (PooledConnection p : expired) {
+            evicted.incrementAndGet();
+            closeQuietly(p.physical);
+        }
+
+        if (leakThresholdMs > 0) {
+            for (PooledConnection p : inUse) {
+                if (!p.leakReported && now - p.borrowedAt > leakThresholdMs) {
+                    p.leakReported = true;
+                    leaks.incrementAndGet();
+                    System.err.println("⚠️ Possible connection leak: held for "
+                            + (now - p.borrowedAt) + " ms without being closed.");
+                    if (p.borrowSite != null) {
+                        p.borrowSite.printStackTrace();
+                    } else {
+                        System.err.println("   Set POOL_LEAK_STACK_TRACES=true to see where it was borrowed.");
+                    }
+                }
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        long borrows = borrowed.get();
+        return new PoolStats(
+                maxSize,
+                inUse.size(),
+                idleCount,
+                permits.getQueueLength(),
+                created.get(),
+                borrows,
+                timeouts.get(),
+                evicted.get(),
+                invalidated.get(),
+                leaks.get(),
+                borrows == 0 ? 0 : waitNanos.get() / borrows / 1000
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection p : idle) {
+                closeQuietly(p.physical);
+            }
+            idle.clear();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    /**
+     * Snapshot of pool counters. avgWaitMicros is the mean time spent waiting for a permit.
+     */
+    public record PoolStats(int maxSize, int active, int idle, int waiting,
+                            long created, long borrowed, long timeouts,
+                            long evicted, long invalidated, long leaks, long avgWaitMicros) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "pool[max=%d active=%d idle=%d waiting=%d created=%d borrowed=%d timeouts=%d evicted=%d invalid=%d leaks=%d avgWait=%dµs]",
+                    maxSize, active, idle, waiting, created, borrowed, timeouts, evicted, invalidated, leaks, avgWaitMicros);
+        }
+    }
+
+    // --- One physical connection owned by the pool ---
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Exception borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    // --- Per-borrow proxy: close() returns to the pool, and the handle is dead afterwards ---
+    private final class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close" -> {
+                    PooledConnection p = pooled;
+                    pooled = null;
+                    if (p != null) release(p);
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.physical.isClosed();
+                }
+                case "unwrap" -> {
+                    Class<?> iface = (Class<?>) args[0];
+                    if (iface.isInstance(proxy)) return proxy;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                }
+                default -> { }
+            }
+
+            PooledConnection p = pooled;
+            if (p == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(p.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
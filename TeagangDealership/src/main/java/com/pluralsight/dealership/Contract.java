@@ -21,4 +21,13 @@ public abstract class Contract {
     // Abstract methods for polymorphism
     public abstract double getTotalPrice();
     public abstract double getMonthlyPayment();
+
+    /**
+     * Monthly payment per dollar financed: payment = principal * factor.
+     * Computed once per term and rate; same expression the contracts always used.
+     */
+    static double amortizationFactor(double annualRate, int months) {
+        double monthlyRate = annualRate / 12.0;
+        return monthlyRate / (1 - Math.pow(1 + monthlyRate, -months));
+    }
 }
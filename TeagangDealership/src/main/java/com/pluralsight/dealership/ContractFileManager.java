@@ -3,23 +3,11 @@ package com.pluralsight.dealership;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
-public class ContractFileManager {
+public class ContractFileManager implements AutoCloseable {
 
-    public void saveContract(Contract contract) {
-        if (contract instanceof SalesContract sale) {
-            saveSalesContract(sale);
-        } else if (contract instanceof LeaseContract lease) {
-            saveLeaseContract(lease);
-        } else {
-            throw new IllegalArgumentException(
-                    "Unsupported contract type: " + contract.getClass().getName()
-            );
-        }
-    }
-
-    private void saveSalesContract(SalesContract sale) {
-        String sql = """
+    static final String SALES_INSERT_SQL = """
             INSERT INTO sales_contracts (
                 customer_name,
                 customer_email,
@@ -29,51 +17,230 @@ public class ContractFileManager {
             VALUES (?, ?, ?, ?)
             """;
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    static final String LEASE_INSERT_SQL = """
+            INSERT INTO lease_contracts (
+                customer_name,
+                customer_email,
+                vehicle_vin
+            )
+            VALUES (?, ?, ?)
+            """;
+
+    // Sets the sold flag only while it is unset, and inserts the contract only if it did
+    static final String SALE_SQL = """
+            WITH sold AS (
+                UPDATE vehicles SET sold = true
+                WHERE vin = ? AND dealership_id = ? AND sold IS NOT TRUE
+                RETURNING vin
+            )
+            INSERT INTO sales_contracts (
+                customer_name,
+                customer_email,
+                vehicle_vin,
+                financial_option
+            )
+            SELECT ?, ?, vin, ? FROM sold
+            """;
+
+    static final String LEASE_SALE_SQL = """
+            WITH sold AS (
+                UPDATE vehicles SET sold = true
+                WHERE vin = ? AND dealership_id = ? AND sold IS NOT TRUE
+                RETURNING vin
+            )
+            INSERT INTO lease_contracts (
+                customer_name,
+                customer_email,
+                vehicle_vin
+            )
+            SELECT ?, ?, vin FROM sold
+            """;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1_000;
+    private static final int DEFAULT_BATCH_SIZE = 200;
+
+    private static final Metrics.Timer SAVE_TIMER =
+            Metrics.timer("contract_save_seconds", "Time to store contracts", "mode=\"sync\"");
+    static final Metrics.Counter SAVED = Metrics.counter("contracts_saved_total", "Contracts stored");
+    static final Metrics.Counter FAILED = Metrics.counter("contracts_failed_total", "Contracts that could not be stored");
+    private static final Metrics.Timer SALE_TIMER =
+            Metrics.timer("contract_save_seconds", "Time to store contracts", "mode=\"sale\"");
+    private static final Metrics.Counter UNAVAILABLE =
+            Metrics.counter("sales_unavailable_total", "Sales refused because the vehicle was already sold");
+
+    public enum SaleResult { SOLD, UNAVAILABLE }
+
+    private final InventoryChangeFeed.ConnectionSource connections;
 
-            ps.setString(1, sale.getCustomerName());
-            ps.setString(2, sale.getCustomerEmail());
+    // Background writer for saveContractAsync, started on first use
+    private ContractWriteQueue writeQueue;
 
-            // Adjust if your Vehicle class exposes VIN differently
-            String vin = String.valueOf(sale.getVehicleSold().getVin());
-            ps.setString(3, vin);
+    public ContractFileManager() {
+        this(DatabaseUtil::getConnection);
+    }
 
-            ps.setBoolean(4, sale.isFinanceOption());
+    ContractFileManager(InventoryChangeFeed.ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    public void saveContract(Contract contract) {
+        long start = System.nanoTime();
+        try {
+            if (contract instanceof SalesContract sale) {
+                saveSalesContract(sale);
+            } else if (contract instanceof LeaseContract lease) {
+                saveLeaseContract(lease);
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported contract type: " + contract.getClass().getName()
+                );
+            }
+        } finally {
+            SAVE_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Queues the contract for the background writer and returns immediately.
+     * The future completes once the contract's batch is committed (or fails
+     * with the SQL error). Blocks the caller only while the queue is full.
+     */
+    public CompletableFuture<Void> saveContractAsync(Contract contract) {
+        if (!(contract instanceof SalesContract) && !(contract instanceof LeaseContract)) {
+            throw new IllegalArgumentException(
+                    "Unsupported contract type: " + contract.getClass().getName()
+            );
+        }
+        return writeQueue().submit(contract);
+    }
+
+    /**
+     * Sells or leases the contract's vehicle out of {@code lot} in one
+     * statement, so one round trip and one transaction: the vehicle's sold
+     * flag is set only if it is still unset, and the contract is inserted
+     * only if that happened. Two sessions selling the same vehicle cannot
+     * both succeed; the second waits on the row lock and then finds it sold.
+     * On success the vehicle is marked sold in the lot too, without a
+     * pending change.
+     *
+     * @return UNAVAILABLE, with nothing stored, when the vehicle is already
+     *         sold or is not in this lot
+     */
+    public SaleResult sell(Dealership lot, Contract contract) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int vin = contract.getVehicleSold().getVin();
+            Vehicle current = lot.getVehicleByVin(vin);
+            if (current == null || current.isSold()) {
+                UNAVAILABLE.increment();
+                return SaleResult.UNAVAILABLE;
+            }
+
+            int stored;
+            try (Connection conn = connections.open();
+                 PreparedStatement ps = conn.prepareStatement(saleSql(contract))) {
+                bindSold(ps, vin, lot.getId(), contract);
+                stored = ps.executeUpdate();
+            } catch (SQLException e) {
+                FAILED.increment();
+                throw e;
+            }
+            if (stored == 0) {
+                // Sold by another session first; the change feed brings that over
+                UNAVAILABLE.increment();
+                return SaleResult.UNAVAILABLE;
+            }
+            SAVED.increment();
+            lot.markSold(vin);
+            return SaleResult.SOLD;
+        } finally {
+            SALE_TIMER.recordSince(start);
+        }
+    }
+
+    private static String saleSql(Contract contract) {
+        if (contract instanceof SalesContract) return SALE_SQL;
+        if (contract instanceof LeaseContract) return LEASE_SALE_SQL;
+        throw new IllegalArgumentException("Unsupported contract type: " + contract.getClass().getName());
+    }
+
+    private synchronized ContractWriteQueue writeQueue() {
+        if (writeQueue == null) {
+            writeQueue = new ContractWriteQueue(connections, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+        }
+        return writeQueue;
+    }
+
+    /**
+     * Writes out everything still queued, then stops the background writer.
+     */
+    @Override
+    public synchronized void close() {
+        if (writeQueue != null) {
+            writeQueue.close();
+            writeQueue = null;
+        }
+    }
+
+    private void saveSalesContract(SalesContract sale) {
+        try (Connection conn = connections.open();
+             PreparedStatement ps = conn.prepareStatement(SALES_INSERT_SQL)) {
+
+            bindSale(ps, sale);
 
             ps.executeUpdate();
+            SAVED.increment();
             System.out.println("✅ Sales contract saved to Supabase!");
 
         } catch (SQLException e) {
+            FAILED.increment();
             System.err.println("❌ Error saving sales contract: " + e.getMessage());
         }
     }
 
     private void saveLeaseContract(LeaseContract lease) {
-        String sql = """
-            INSERT INTO lease_contracts (
-                customer_name,
-                customer_email,
-                vehicle_vin
-            )
-            VALUES (?, ?, ?)
-            """;
-
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = connections.open();
+             PreparedStatement ps = conn.prepareStatement(LEASE_INSERT_SQL)) {
 
-            ps.setString(1, lease.getCustomerName());
-            ps.setString(2, lease.getCustomerEmail());
-
-            // Adjust if your Vehicle class exposes VIN differently
-            String vin = String.valueOf(lease.getVehicleSold().getVin());
-            ps.setString(3, vin);
+            bindLease(ps, lease);
 
             ps.executeUpdate();
+            SAVED.increment();
             System.out.println("✅ Lease contract saved to Supabase!");
 
         } catch (SQLException e) {
+            FAILED.increment();
             System.err.println("❌ Error saving lease contract: " + e.getMessage());
         }
     }
+
+    static void bindSale(PreparedStatement ps, SalesContract sale) throws SQLException {
+        ps.setString(1, sale.getCustomerName());
+        ps.setString(2, sale.getCustomerEmail());
+
+        // Adjust if your Vehicle class exposes VIN differently
+        String vin = String.valueOf(sale.getVehicleSold().getVin());
+        ps.setString(3, vin);
+
+        ps.setBoolean(4, sale.isFinanceOption());
+    }
+
+    static void bindSold(PreparedStatement ps, int vin, int dealershipId, Contract contract) throws SQLException {
+        ps.setString(1, String.valueOf(vin));
+        ps.setInt(2, dealershipId);
+        ps.setString(3, contract.getCustomerName());
+        ps.setString(4, contract.getCustomerEmail());
+        if (contract instanceof SalesContract sale) {
+            ps.setBoolean(5, sale.isFinanceOption());
+        }
+    }
+
+    static void bindLease(PreparedStatement ps, LeaseContract lease) throws SQLException {
+        ps.setString(1, lease.getCustomerName());
+        ps.setString(2, lease.getCustomerEmail());
+
+        // Adjust if your Vehicle class exposes VIN differently
+        String vin = String.valueOf(lease.getVehicleSold().getVin());
+        ps.setString(3, vin);
+    }
 }
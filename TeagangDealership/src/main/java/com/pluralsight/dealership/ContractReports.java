@@ -0,0 +1,394 @@
+package com.pluralsight.dealership;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sales and lease reports over a date range, aggregated by the database.
+ *
+ * Needs src/main/resources/db/contract_reports.sql ({@link #install(Connection)}),
+ * which dates each contract and records the price, make and model it was
+ * signed at. Counts and price sums are computed in SQL, so only a handful of
+ * rows come back however many contracts there are; the fee rules stay in
+ * SalesContract and LeaseContract and are applied to those sums. The
+ * contract-by-contract export streams through a server-side cursor.
+ *
+ * Results are cached per period. A period that has ended no longer changes,
+ * so its reports are kept until evicted; one that includes today is
+ * recomputed after a minute.
+ */
+public class ContractReports {
+
+    private static final String SCRIPT = "/db/contract_reports.sql";
+
+    private static final int MAX_CACHED = 128;
+    private static final long OPEN_PERIOD_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int EXPORT_FETCH_SIZE = 5_000;
+
+    private static final Metrics.Timer SUMMARY_TIMER =
+            Metrics.timer("report_query_seconds", "Time to run a report against the database", "report=\"summary\"");
+    private static final Metrics.Timer TOP_TIMER =
+            Metrics.timer("report_query_seconds", "Time to run a report against the database", "report=\"top\"");
+    private static final Metrics.Timer EXPORT_TIMER =
+            Metrics.timer("report_query_seconds", "Time to run a report against the database", "report=\"export\"");
+    private static final Metrics.Counter HITS =
+            Metrics.counter("report_cache_lookups_total", "Report cache lookups", "result=\"hit\"");
+    private static final Metrics.Counter MISSES =
+            Metrics.counter("report_cache_lookups_total", "Report cache lookups", "result=\"miss\"");
+
+    // One row per (type, financed); the short-term count prices the processing fee
+    private static final String SUMMARY_SQL = """
+        SELECT 'sale', coalesce(financial_option, false),
+               count(*), count(vehicle_price), coalesce(sum(vehicle_price), 0),
+               count(*) FILTER (WHERE vehicle_price < ?)
+        FROM sales_contracts
+        WHERE created_at >= ? AND created_at < ?
+        GROUP BY 2
+        UNION ALL
+        SELECT 'lease', false,
+               count(*), count(vehicle_price), coalesce(sum(vehicle_price), 0), 0
+        FROM lease_contracts
+        WHERE created_at >= ? AND created_at < ?
+        """;
+
+    private static final String TOP_SQL = """
+        SELECT vehicle_make, vehicle_model,
+               count(*) FILTER (WHERE kind = 'sale'), count(*) FILTER (WHERE kind = 'lease'),
+               coalesce(sum(vehicle_price), 0)
+        FROM (
+            SELECT 'sale' AS kind, vehicle_make, vehicle_model, vehicle_price
+            FROM sales_contracts
+            WHERE created_at >= ? AND created_at < ?
+            UNION ALL
+            SELECT 'lease', vehicle_make, vehicle_model, vehicle_price
+            FROM lease_contracts
+            WHERE created_at >= ? AND created_at < ?
+        ) c
+        WHERE vehicle_make IS NOT NULL
+        GROUP BY vehicle_make, vehicle_model
+        ORDER BY count(*) DESC, vehicle_make, vehicle_model
+        LIMIT ?
+        """;
+
+    private static final String EXPORT_SQL = """
+        SELECT 'sale', created_at, customer_name, customer_email, vehicle_vin,
+               vehicle_make, vehicle_model, vehicle_price, coalesce(financial_option, false)
+        FROM sales_contracts
+        WHERE created_at >= ? AND created_at < ?
+        UNION ALL
+        SELECT 'lease', created_at, customer_name, customer_email, vehicle_vin,
+               vehicle_make, vehicle_model, vehicle_price, false
+        FROM lease_contracts
+        WHERE created_at >= ? AND created_at < ?
+        ORDER BY 2
+        """;
+
+    static final String EXPORT_HEADER =
+            "type,created_at,customer_name,customer_email,vin,make,model,vehicle_price,financed,total_price,monthly_payment";
+
+    /** Days from {@code from} up to but not including {@code to}. */
+    public record Period(LocalDate from, LocalDate to) {
+        public Period {
+            Objects.requireNonNull(from, "from");
+            Objects.requireNonNull(to, "to");
+            if (!to.isAfter(from)) {
+                throw new IllegalArgumentException("A period must end after it starts: " + from + " to " + to);
+            }
+        }
+
+        public static Period month(YearMonth month) {
+            return new Period(month.atDay(1), month.plusMonths(1).atDay(1));
+        }
+
+        public static Period thisMonth() {
+            return month(YearMonth.now());
+        }
+
+        @Override
+        public String toString() {
+            return from + " to " + to.minusDays(1);
+        }
+    }
+
+    /**
+     * Contract counts and revenue for one period. Revenue is the sum of
+     * getTotalPrice(); contracts whose vehicle price is unknown are counted
+     * but add nothing to it.
+     */
+    public record Summary(Period period, long cashSales, long financedSales, long leases, long unpriced,
+                          double salesRevenue, double leaseRevenue) {
+
+        public long sales() {
+            return cashSales + financedSales;
+        }
+
+        public long contracts() {
+            return sales() + leases;
+        }
+
+        public double revenue() {
+            return salesRevenue + leaseRevenue;
+        }
+
+        /** Share of sales that were financed, 0 to 1; NaN when there were none. */
+        public double financeRatio() {
+            return sales() == 0 ? Double.NaN : (double) financedSales / sales();
+        }
+    }
+
+    /** Contracts signed for one make and model; vehicleValue sums the sticker prices. */
+    public record MakeModelSales(String make, String model, long sales, long leases, double vehicleValue) {
+
+        public long contracts() {
+            return sales + leases;
+        }
+    }
+
+    private record Cached(Object value, long computedAt, boolean permanent) { }
+
+    private interface Query<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private final InventoryChangeFeed.ConnectionSource connections;
+    private final LinkedHashMap<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ContractReports() {
+        this(DatabaseUtil::getConnection);
+    }
+
+    ContractReports(InventoryChangeFeed.ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Adds the report columns, trigger and indexes. Safe to run again.
+     */
+    public static void install(Connection conn) throws SQLException, IOException {
+        String script;
+        try (InputStream in = ContractReports.class.getResourceAsStream(SCRIPT)) {
+            if (in == null) throw new IOException(SCRIPT + " is not on the classpath");
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute(script);
+        }
+    }
+
+    // ============ reports ============
+
+    public Summary summary(Period period) throws SQLException {
+        return cached("summary|" + period.from() + "|" + period.to(), period, SUMMARY_TIMER, conn -> {
+            long cash = 0, financed = 0, leases = 0, unpriced = 0;
+            double salesRevenue = 0, leaseRevenue = 0;
+            try (PreparedStatement ps = conn.prepareStatement(SUMMARY_SQL)) {
+                ps.setDouble(1, SalesContract.LONG_TERM_THRESHOLD);
+                bindPeriod(ps, 2, period);
+                bindPeriod(ps, 4, period);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long count = rs.getLong(3);
+                        long priced = rs.getLong(4);
+                        double priceSum = rs.getDouble(5);
+                        unpriced += count - priced;
+                        if (rs.getString(1).equals("lease")) {
+                            leases += count;
+                            leaseRevenue += LeaseContract.totalPrice(priceSum);
+                        } else {
+                            if (rs.getBoolean(2)) financed += count; else cash += count;
+                            salesRevenue += SalesContract.totalRevenue(priceSum, priced, rs.getLong(6));
+                        }
+                    }
+                }
+            }
+            return new Summary(period, cash, financed, leases, unpriced, salesRevenue, leaseRevenue);
+        });
+    }
+
+    /**
+     * The {@code limit} makes and models with the most contracts (sales and
+     * leases together), most first.
+     */
+    public List<MakeModelSales> topMakeModels(Period period, int limit) throws SQLException {
+        return cached("top|" + period.from() + "|" + period.to() + "|" + limit, period, TOP_TIMER, conn -> {
+            List<MakeModelSales> top = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(TOP_SQL)) {
+                bindPeriod(ps, 1, period);
+                bindPeriod(ps, 3, period);
+                ps.setInt(5, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        top.add(new MakeModelSales(rs.getString(1), rs.getString(2),
+                                rs.getLong(3), rs.getLong(4), rs.getDouble(5)));
+                    }
+                }
+            }
+            return List.copyOf(top);
+        });
+    }
+
+    /**
+     * Writes every contract in the period as CSV, oldest first, with the
+     * total price and monthly payment each contract works out to.
+     *
+     * Rows come through a server-side cursor EXPORT_FETCH_SIZE at a time and
+     * go straight to {@code out}, so memory use does not grow with the period.
+     *
+     * @return how many contracts were written
+     */
+    public long exportContracts(Period period, Writer out) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection conn = connections.open()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                bindPeriod(ps, 1, period);
+                bindPeriod(ps, 3, period);
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+
+                out.write(EXPORT_HEADER);
+                out.write('\n');
+                StringBuilder line = new StringBuilder(256);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        line.setLength(0);
+                        appendExportRow(line, rs);
+                        out.append(line);
+                        rows++;
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } finally {
+            EXPORT_TIMER.recordSince(start);
+        }
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * Drops every cached report, e.g. after contracts were back-dated or corrected.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // ============ helpers ============
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Period period, Metrics.Timer timer, Query<T> query) throws SQLException {
+        long now = System.nanoTime();
+        synchronized (cache) {
+            Cached hit = cache.get(key);
+            if (hit != null && (hit.permanent() || now - hit.computedAt() < OPEN_PERIOD_TTL_NANOS)) {
+                HITS.increment();
+                return (T) hit.value();
+            }
+        }
+        MISSES.increment();
+
+        T value;
+        try (Connection conn = connections.open()) {
+            value = query.run(conn);
+        } finally {
+            timer.recordSince(now);
+        }
+
+        // Contracts are dated as they are stored, so a period that has ended is final
+        boolean ended = !period.to().isAfter(LocalDate.now());
+        synchronized (cache) {
+            cache.put(key, new Cached(value, now, ended));
+            if (cache.size() > MAX_CACHED) {
+                Map.Entry<String, Cached> eldest = cache.entrySet().iterator().next();
+                cache.remove(eldest.getKey());
+            }
+        }
+        return value;
+    }
+
+    private static void bindPeriod(PreparedStatement ps, int index, Period period) throws SQLException {
+        ps.setObject(index, period.from());
+        ps.setObject(index + 1, period.to());
+    }
+
+    // kind, created_at, name, email, vin, make, model, price, financed -> one CSV line
+    private static void appendExportRow(StringBuilder line, ResultSet rs) throws SQLException {
+        boolean sale = rs.getString(1).equals("sale");
+        double price = rs.getDouble(8);
+        boolean priced = !rs.wasNull();
+        boolean financed = rs.getBoolean(9);
+
+        line.append(sale ? "sale" : "lease").append(',');
+        appendCsv(line, rs.getString(2)).append(',');
+        appendCsv(line, rs.getString(3)).append(',');
+        appendCsv(line, rs.getString(4)).append(',');
+        appendCsv(line, rs.getString(5)).append(',');
+        appendCsv(line, rs.getString(6)).append(',');
+        appendCsv(line, rs.getString(7)).append(',');
+        if (priced) appendMoney(line, price);
+        line.append(',').append(sale && financed).append(',');
+        if (priced) {
+            double total = sale ? SalesContract.totalPrice(price, SalesContract.processingFee(price))
+                    : LeaseContract.totalPrice(price);
+            double monthly = sale ? (financed ? total * SalesContract.financeFactor(price) : 0.0)
+                    : LeaseContract.monthlyPayment(price);
+            appendMoney(line, total);
+            line.append(',');
+            appendMoney(line, monthly);
+        } else {
+            line.append(',');
+        }
+        line.append('\n');
+    }
+
+    static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) return line;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return line.append(value);
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') line.append('"');
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    // Dollars and cents without going through String.format for every row
+    static void appendMoney(StringBuilder line, double amount) {
+        long cents = Math.round(amount * 100);
+        if (cents < 0) {
+            line.append('-');
+            cents = -cents;
+        }
+        line.append(cents / 100).append('.');
+        long rest = cents % 100;
+        if (rest < 10) line.append('0');
+        line.append(rest);
+    }
+}
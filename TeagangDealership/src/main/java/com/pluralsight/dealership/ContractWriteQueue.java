@@ -0,0 +1,207 @@
+package com.pluralsight.dealership;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind queue for contracts.
+ *
+ * Callers enqueue and get a future back; one background thread drains the
+ * queue in batches and writes each batch with JDBC batching in a single
+ * transaction (sales and leases in their own statements). If a batch fails,
+ * its contracts are retried one at a time so only the bad ones fail. When
+ * the queue is full, submit blocks until the writer catches up. close(),
+ * which also runs at exit before the connection pools close, writes
+ * everything already queued before returning.
+ */
+final class ContractWriteQueue implements AutoCloseable {
+
+    private final InventoryChangeFeed.ConnectionSource connections;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private final Runnable flushOnExit = this::stopAndFlush;
+    private volatile boolean closed = false;
+
+    // Submitters share it; stopAndFlush takes it alone, so nothing is put after STOP
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+
+    // Wakes the writer up for the final drain
+    private static final Pending STOP = new Pending(null, null);
+
+    private static final Metrics.Timer BATCH_TIMER =
+            Metrics.timer("contract_save_seconds", "Time to store contracts", "mode=\"batch\"");
+
+    ContractWriteQueue(InventoryChangeFeed.ConnectionSource connections, int capacity, int batchSize) {
+        this.connections = connections;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+
+        this.writer = new Thread(this::run, "contract-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        DatabaseUtil.runBeforePoolCloses(flushOnExit);
+    }
+
+    CompletableFuture<Void> submit(Contract contract) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                done.completeExceptionally(new IllegalStateException("Contract writer is shut down"));
+                return done;
+            }
+            queue.put(new Pending(contract, done)); // backpressure: waits while full
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.completeExceptionally(e);
+        } finally {
+            closing.readLock().unlock();
+        }
+        return done;
+    }
+
+    int queuedCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        stopAndFlush();
+        DatabaseUtil.cancelBeforePoolCloses(flushOnExit);
+    }
+
+    private synchronized void stopAndFlush() {
+        // Waits for submits already putting (the writer keeps draining for them)
+        closing.writeLock().lock();
+        try {
+            if (!closed) {
+                queue.put(STOP);
+                closed = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return; // no STOP queued, so the writer would never end
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; keep draining
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+
+            if (batch.remove(STOP)) {
+                stopping = true;
+                // Anything enqueued before close() is still behind us
+                queue.drainTo(batch);
+                batch.remove(STOP);
+            }
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                long start = System.nanoTime();
+                writeBatch(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+                BATCH_TIMER.recordSince(start);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        if (batch.isEmpty()) return;
+
+        try (Connection conn = connections.open()) {
+            conn.setAutoCommit(false);
+            try {
+                insert(conn, batch);
+                conn.commit();
+                ContractFileManager.SAVED.add(batch.size());
+                for (Pending p : batch) {
+                    p.done.complete(null);
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                if (batch.size() == 1) {
+                    fail(batch.get(0), e);
+                    return;
+                }
+                // Find the bad contract(s) without failing the rest of the batch
+                System.err.println("⚠️ Batch of " + batch.size() + " contracts failed (" + e.getMessage()
+                        + "), saving them one at a time");
+                for (Pending p : batch) {
+                    writeOne(conn, p);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // No usable connection: whatever is not stored yet fails
+            for (Pending p : batch) {
+                if (!p.done.isDone()) {
+                    fail(p, e);
+                }
+            }
+        }
+    }
+
+    private void writeOne(Connection conn, Pending p) throws SQLException {
+        try {
+            insert(conn, List.of(p));
+            conn.commit();
+            ContractFileManager.SAVED.increment();
+            p.done.complete(null);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            fail(p, e);
+        }
+    }
+
+    // Sales and leases go in their own batched statements, in the caller's transaction
+    private static void insert(Connection conn, List<Pending> batch) throws SQLException {
+        int sales = 0;
+        int leases = 0;
+        try (PreparedStatement salesPs = conn.prepareStatement(ContractFileManager.SALES_INSERT_SQL);
+             PreparedStatement leasePs = conn.prepareStatement(ContractFileManager.LEASE_INSERT_SQL)) {
+            for (Pending p : batch) {
+                if (p.contract instanceof SalesContract sale) {
+                    ContractFileManager.bindSale(salesPs, sale);
+                    salesPs.addBatch();
+                    sales++;
+                } else if (p.contract instanceof LeaseContract lease) {
+                    ContractFileManager.bindLease(leasePs, lease);
+                    leasePs.addBatch();
+                    leases++;
+                }
+            }
+            if (sales > 0) salesPs.executeBatch();
+            if (leases > 0) leasePs.executeBatch();
+        }
+    }
+
+    private static void fail(Pending p, Exception e) {
+        ContractFileManager.FAILED.increment();
+        System.err.println("❌ Error saving contract for VIN " + p.contract.getVehicleSold().getVin() + ": " + e.getMessage());
+        p.done.completeExceptionally(e);
+    }
+
+    private record Pending(Contract contract, CompletableFuture<Void> done) { }
+}
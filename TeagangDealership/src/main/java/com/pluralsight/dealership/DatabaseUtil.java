@@ -5,16 +5,16 @@ import io.github.cdimascio.dotenv.Dotenv;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DatabaseUtil {
 
-    // Load .env once
-    private static final Dotenv dotenv = Dotenv.load();
-
-    // These map directly to your existing .env keys
-    private static final String URL  = dotenv.get("URL");      // JDBC URL
-    private static final String USER = dotenv.get("USER");     // DB user
-    private static final String PASS = dotenv.get("PASSWORD"); // DB password
+    private static final int DEFAULT_MIN_IDLE        = 1;
+    private static final int DEFAULT_IDLE_TIMEOUT_MS = 600_000;
+    private static final int DEFAULT_WAIT_TIMEOUT_MS = 30_000;
+    private static final int DEFAULT_LEAK_TIMEOUT_MS = 60_000;
 
     static {
         try {
@@ -25,21 +25,211 @@ public class DatabaseUtil {
         }
     }
 
+    /** Where connections go: the URL and credentials, and the pool over them. */
+    private record Database(String url, String user, String password, ConnectionPool pool) { }
+
+    /**
+     * The database from .env. Loaded the first time it is needed, so a tool
+     * that calls {@link #useDatabase} first runs without a .env file.
+     */
+    private static final class EnvDatabase {
+        // Load .env once
+        private static final Dotenv dotenv = Dotenv.load();
+
+        // These map directly to your existing .env keys
+        private static final String URL  = dotenv.get("URL");      // JDBC URL
+        private static final String USER = dotenv.get("USER");     // DB user
+        private static final String PASS = dotenv.get("PASSWORD"); // DB password
+
+        // Optional pool tuning keys (defaults are fine for a single terminal)
+        private static final int  POOL_MAX_SIZE      = intSetting("POOL_MAX_SIZE", 10);
+        private static final int  POOL_MIN_IDLE      = intSetting("POOL_MIN_IDLE", DEFAULT_MIN_IDLE);
+        private static final long POOL_IDLE_TIMEOUT  = intSetting("POOL_IDLE_TIMEOUT_MS", DEFAULT_IDLE_TIMEOUT_MS);
+        private static final long POOL_WAIT_TIMEOUT  = intSetting("POOL_CONNECTION_TIMEOUT_MS", DEFAULT_WAIT_TIMEOUT_MS);
+        private static final long POOL_LEAK_TIMEOUT  = intSetting("POOL_LEAK_DETECTION_MS", DEFAULT_LEAK_TIMEOUT_MS);
+        // A stack trace per borrow, printed with each leak report; off unless debugging a leak
+        private static final boolean POOL_LEAK_TRACES = Boolean.parseBoolean(dotenv.get("POOL_LEAK_STACK_TRACES"));
+
+        static final Database DATABASE = new Database(URL, USER, PASS, new ConnectionPool(
+                URL, USER, PASS,
+                POOL_MAX_SIZE, POOL_MIN_IDLE,
+                POOL_IDLE_TIMEOUT, POOL_WAIT_TIMEOUT, POOL_LEAK_TIMEOUT, POOL_LEAK_TRACES));
+
+        static {
+            envPool = DATABASE.pool();
+        }
+
+        private static int intSetting(String key, int defaultValue) {
+            String value = dotenv.get(key);
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("⚠️ Ignoring invalid " + key + "=" + value + ", using " + defaultValue);
+                return defaultValue;
+            }
+        }
+    }
+
+    // Set by useDatabase; replaces the .env database everywhere
+    private static volatile Database override;
+
+    // Set once .env is loaded, so the exit hook never loads it just to close it
+    private static volatile ConnectionPool envPool;
+
+    // Run at exit, in registration order, while the pools are still open
+    private static final List<Runnable> exitTasks = new CopyOnWriteArrayList<>();
+
+    static {
+        // One hook, so queued writes are flushed before the pools close
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseUtil::shutdown, "database-shutdown"));
+        Metrics.gauge("db_pool_active_connections", "Connections currently borrowed", () -> pool().getStats().active());
+        Metrics.gauge("db_pool_idle_connections", "Open connections waiting in the pool", () -> pool().getStats().idle());
+        Metrics.gauge("db_pool_waiting_threads", "Threads waiting for a connection", () -> pool().getStats().waiting());
+        Metrics.gauge("db_pool_timeouts", "Borrows that gave up waiting", () -> pool().getStats().timeouts());
+    }
+
+    private static Database database() {
+        Database db = override;
+        return db != null ? db : EnvDatabase.DATABASE;
+    }
+
+    private static ConnectionPool pool() {
+        return database().pool();
+    }
+
+    /**
+     * Sends every connection from here on to another database instead of
+     * the one in .env, through a pool of {@code poolSize} connections; for
+     * load tests against a local Postgres. Call it once, before any work
+     * starts. If a database was set earlier, this waits (up to the connection
+     * timeout) for the connections borrowed from it to come back before
+     * closing its pool.
+     */
+    public static synchronized void useDatabase(String url, String user, String password, int poolSize) {
+        Database previous = override;
+        override = new Database(url, user, password, new ConnectionPool(
+                url, user, password,
+                poolSize, DEFAULT_MIN_IDLE,
+                DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_WAIT_TIMEOUT_MS, DEFAULT_LEAK_TIMEOUT_MS));
+        if (previous != null) {
+            drain(previous.pool());
+            previous.pool().close();
+        }
+    }
+
+    // New borrows already go to the replacement; wait for the old pool's to come back
+    private static void drain(ConnectionPool pool) {
+        long deadline = System.currentTimeMillis() + DEFAULT_WAIT_TIMEOUT_MS;
+        while (pool.getStats().active() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs {@code task} at exit before the connection pools close, after the
+     * tasks registered earlier. For anything that still writes while the JVM
+     * shuts down (the contract writer, the HTTP server).
+     */
+    static void runBeforePoolCloses(Runnable task) {
+        exitTasks.add(task);
+    }
+
+    /** Drops a task added with {@link #runBeforePoolCloses} once it has run on its own. */
+    static void cancelBeforePoolCloses(Runnable task) {
+        exitTasks.remove(task);
+    }
+
+    private static void shutdown() {
+        for (Runnable task : exitTasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error during shutdown: " + e.getMessage());
+            }
+        }
+        Database db = override;
+        if (db != null) {
+            db.pool().close();
+        }
+        if (envPool != null) {
+            envPool.close();
+        }
+    }
+
     /**
      * Use this everywhere in your app to get a DB connection.
+     * Connections come from the pool; closing them hands them back.
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+        return pool().getConnection();
+    }
+
+    /**
+     * Opens a brand-new, unpooled connection. Only useful for comparisons.
+     */
+    public static Connection openDirectConnection() throws SQLException {
+        Database db = database();
+        return DriverManager.getConnection(db.url(), db.user(), db.password());
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool().getStats();
     }
 
     /**
      * Optional: run this manually to test your connection.
+     * Pass a number to also compare direct vs pooled acquire + close latency, e.g. "50".
      */
     public static void main(String[] args) {
         try (Connection conn = getConnection()) {
-            System.out.println("Connected successfully!");
+            System.out.println("Connected successfully! (" + conn.getMetaData().getDatabaseProductName() + ")");
         } catch (Exception e) {
             e.printStackTrace();
+            return;
+        }
+
+        if (args.length == 0) {
+            return;
+        }
+
+        int rounds = Integer.parseInt(args[0]);
+        try {
+            long[] direct = new long[rounds];
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                openDirectConnection().close();
+                direct[i] = System.nanoTime() - start;
+            }
+
+            long[] pooled = new long[rounds];
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                getConnection().close();
+                pooled[i] = System.nanoTime() - start;
+            }
+
+            printLatency("Direct DriverManager", direct);
+            printLatency("Pooled             ", pooled);
+            System.out.println(getPoolStats());
+        } catch (SQLException e) {
+            e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    private static void printLatency(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double avg = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+        double p50 = sorted[sorted.length / 2] / 1_000_000.0;
+        double p99 = sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1_000_000.0;
+        System.out.printf("%s acquire + close: avg %.3f ms   p50 %.3f ms   p99 %.3f ms%n", label, avg, p50, p99);
+    }
+}
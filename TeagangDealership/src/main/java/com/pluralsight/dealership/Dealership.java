@@ -1,91 +1,749 @@
 package com.pluralsight.dealership;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class Dealership {
 
+    // The original single-lot setup always used dealership_id 1
+    public static final int DEFAULT_ID = 1;
+
+    // Search latency, one series per method
+    private static final Metrics.Timer VIN_TIMER = queryTimer("vin");
+    private static final Metrics.Timer PRICE_TIMER = queryTimer("price");
+    private static final Metrics.Timer MAKE_MODEL_TIMER = queryTimer("make_model");
+    private static final Metrics.Timer YEAR_TIMER = queryTimer("year");
+    private static final Metrics.Timer COLOR_TIMER = queryTimer("color");
+    private static final Metrics.Timer MILEAGE_TIMER = queryTimer("mileage");
+    private static final Metrics.Timer TYPE_TIMER = queryTimer("type");
+    private static final Metrics.Timer QUERY_TIMER = queryTimer("query");
+
+    private static Metrics.Timer queryTimer(String method) {
+        return Metrics.timer("dealership_query_seconds", "Inventory search latency", "method=\"" + method + "\"");
+    }
+
+    private final int id;
     private String name;
     private String address;
     private String phone;
-    private final List<Vehicle> inventory;
+    private final VehicleStore inventory;
+
+    // VIN -> position in inventory, kept in sync by every add/remove/update
+    private final VinIndex vinIndex;
+
+    // Sorted secondary indexes for the range queries (built on first use)
+    private final RangeIndex priceIndex;
+    private final RangeIndex yearIndex;
+    private final RangeIndex mileageIndex;
+
+    // Trigram substring indexes for the text searches (always maintained)
+    private final TextIndex makeIndex;
+    private final TextIndex modelIndex;
+    private final TextIndex colorIndex;
+    private final TextIndex typeIndex;
+
+    // VINs touched since the last load/save, so saves only send what changed
+    private final Map<Integer, PendingChange> pendingChanges;
+    // Numbers every recorded change, so a save only clears the changes it wrote
+    private long changeSequence;
+
+    public enum ChangeType { INSERTED, UPDATED, REMOVED }
+
+    /**
+     * A VIN's pending change, numbered so a save can tell whether the VIN
+     * changed again while the save was running.
+     */
+    public record PendingChange(ChangeType type, long sequence) { }
+
+    // Bumped by every inventory change; cached results from older generations are ignored
+    private long generation;
+    private final QueryCache queryCache;
 
     public Dealership(String name, String address, String phone) {
+        this(DEFAULT_ID, name, address, phone);
+    }
+
+    public Dealership(int id, String name, String address, String phone) {
+        this(id, name, address, phone, VehicleStore.onHeap());
+    }
+
+    /**
+     * A lot kept in the given store. Vehicles already in the store are
+     * indexed as they are, without being recorded as pending changes.
+     */
+    public Dealership(int id, String name, String address, String phone, VehicleStore store) {
+        this.id = id;
         this.name = name;
         this.address = address;
         this.phone = phone;
-        this.inventory = new ArrayList<>();
+        this.inventory = store;
+        this.vinIndex = new VinIndex();
+        this.priceIndex = RangeIndex.byPrice();
+        this.yearIndex = RangeIndex.byYear();
+        this.mileageIndex = RangeIndex.byMileage();
+        this.makeIndex = TextIndex.byMake();
+        this.modelIndex = TextIndex.byModel();
+        this.colorIndex = TextIndex.byColor();
+        this.typeIndex = TextIndex.byType();
+        this.pendingChanges = new LinkedHashMap<>();
+        this.queryCache = new QueryCache();
+        for (int position = 0; position < store.size(); position++) {
+            indexStored(store.get(position), position);
+        }
+    }
+
+    /**
+     * Independent copy of the inventory and every index, with an empty
+     * result cache of the same size. The Vehicle objects are shared when the
+     * store keeps objects.
+     */
+    Dealership(Dealership other) {
+        this(other, new QueryCache(other.queryCache.getStats().maxEntries(),
+                other.queryCache.getStats().maxVehicles()));
+    }
+
+    /**
+     * Copy that caches results in {@code cache}. ConcurrentDealership builds
+     * each snapshot this way with a cache of its own: entries are stamped
+     * with the generation only, which is safe within one lot's line of
+     * snapshots, where it only increases, but not across lots.
+     */
+    Dealership(Dealership other, QueryCache cache) {
+        this.id = other.id;
+        this.name = other.name;
+        this.address = other.address;
+        this.phone = other.phone;
+        this.inventory = other.inventory.copy();
+        this.vinIndex = other.vinIndex.copy();
+        this.priceIndex = other.priceIndex.copy();
+        this.yearIndex = other.yearIndex.copy();
+        this.mileageIndex = other.mileageIndex.copy();
+        this.makeIndex = other.makeIndex.copy();
+        this.modelIndex = other.modelIndex.copy();
+        this.colorIndex = other.colorIndex.copy();
+        this.typeIndex = other.typeIndex.copy();
+        this.pendingChanges = new LinkedHashMap<>(other.pendingChanges);
+        this.changeSequence = other.changeSequence;
+        this.generation = other.generation;
+        this.queryCache = cache;
     }
 
     // --- Basic Getters ---
+    public int getId() { return id; }
     public String getName() { return name; }
     public String getAddress() { return address; }
     public String getPhone() { return phone; }
 
     // --- Add Vehicle (with Duplicate VIN Check) ---
     public boolean addVehicle(Vehicle vehicle) {
-        for (Vehicle existing : inventory) {
-            if (existing.getVin() == vehicle.getVin()) {
-                System.out.println("⚠️ A vehicle with VIN " + vehicle.getVin() + " already exists in inventory.");
-                return false; // Duplicate detected
+        if (!append(vehicle)) {
+            return false; // Duplicate detected
+        }
+        recordAdded(vehicle.getVin());
+        return true; // Added successfully
+    }
+
+    /**
+     * Adds many new vehicles at once (e.g. a feed import). Range indexes are
+     * rebuilt on the next query instead of taking one sorted insert per vehicle.
+     *
+     * @return how many were added; the rest were duplicate VINs
+     */
+    public int addVehicles(Collection<Vehicle> vehicles) {
+        invalidateRangeIndexes();
+        int added = 0;
+        for (Vehicle v : vehicles) {
+            if (insert(v)) {
+                recordAdded(v.getVin());
+                added++;
             }
         }
+        return added;
+    }
+
+    /**
+     * Adds a vehicle that already exists in the database, so it is not
+     * recorded as a pending change. Used when loading.
+     */
+    boolean loadVehicle(Vehicle vehicle) {
+        // Rebuilding once on the next query beats one sorted insert per row
+        invalidateRangeIndexes();
+        return insert(vehicle);
+    }
+
+    /**
+     * Builds any range index still waiting for its lazy rebuild, so later
+     * queries only read. Called before a snapshot is shared between threads.
+     */
+    void buildRangeIndexes() {
+        if (!priceIndex.isBuilt()) priceIndex.rebuild(inventory.asList());
+        if (!yearIndex.isBuilt()) yearIndex.rebuild(inventory.asList());
+        if (!mileageIndex.isBuilt()) mileageIndex.rebuild(inventory.asList());
+    }
+
+    private void invalidateRangeIndexes() {
+        priceIndex.invalidate();
+        yearIndex.invalidate();
+        mileageIndex.invalidate();
+    }
+
+    // insert() plus the range indexes, for one vehicle at a time
+    private boolean append(Vehicle vehicle) {
+        if (!insert(vehicle)) {
+            return false;
+        }
+        int position = inventory.size() - 1;
+        priceIndex.add(vehicle, position);
+        yearIndex.add(vehicle, position);
+        mileageIndex.add(vehicle, position);
+        return true;
+    }
+
+    private boolean insert(Vehicle vehicle) {
+        if (vinIndex.contains(vehicle.getVin())) {
+            System.out.println("⚠️ A vehicle with VIN " + vehicle.getVin() + " already exists in inventory.");
+            return false;
+        }
         inventory.add(vehicle);
-        return true; // Added successfully
+        generation++;
+        indexStored(vehicle, inventory.size() - 1);
+        return true;
+    }
+
+    // VIN and text indexes; range indexes are rebuilt lazily
+    private void indexStored(Vehicle vehicle, int position) {
+        vinIndex.put(vehicle.getVin(), position);
+        makeIndex.add(position, vehicle);
+        modelIndex.add(position, vehicle);
+        colorIndex.add(position, vehicle);
+        typeIndex.add(position, vehicle);
+    }
+
+    // --- Replace the vehicle with the same VIN ---
+    public boolean updateVehicle(Vehicle vehicle) {
+        int position = vinIndex.get(vehicle.getVin());
+        if (position < 0) {
+            return false;
+        }
+        replace(position, vehicle);
+        ChangeType previous = pendingType(vehicle.getVin());
+        recordChange(vehicle.getVin(), previous == ChangeType.INSERTED ? previous : ChangeType.UPDATED);
+        return true;
     }
 
     // --- Remove Vehicle by VIN ---
     public boolean removeVehicleByVin(int vin) {
-        return inventory.removeIf(v -> v.getVin() == vin);
+        int position = vinIndex.remove(vin);
+        if (position < 0) {
+            return false;
+        }
+        delete(position);
+
+        // Even a never-saved vehicle is recorded: a save may be writing its insert
+        // right now, and deleting a row that never got written is harmless
+        recordChange(vin, ChangeType.REMOVED);
+        return true;
+    }
+
+    // --- Sales ---
+
+    /**
+     * Marks a vehicle sold once the sale is committed in the database: it
+     * stays in the lot with the "Sold" type, re-indexed, and no pending
+     * change is recorded since the database already has it.
+     *
+     * @return false when the VIN is not here or is already sold
+     */
+    boolean markSold(int vin) {
+        int position = vinIndex.get(vin);
+        if (position < 0) {
+            return false;
+        }
+        Vehicle v = inventory.get(position);
+        if (v.isSold()) {
+            return false;
+        }
+        replace(position, new Vehicle(v.getVin(), v.getYear(), v.getMake(), v.getModel(), Vehicle.SOLD_TYPE,
+                v.getColor(), v.getOdometer(), v.getPrice()));
+        return true;
+    }
+
+    // --- Changes made by other terminals (from the change feed) ---
+
+    /**
+     * Adds or replaces a vehicle another process already saved, without
+     * recording a pending change. A VIN with unsaved local edits is left
+     * alone so the local edit still wins on the next save.
+     *
+     * @return false when skipped for a pending local edit
+     */
+    boolean applyRemoteUpsert(Vehicle vehicle) {
+        if (pendingChanges.containsKey(vehicle.getVin())) {
+            return false;
+        }
+        int position = vinIndex.get(vehicle.getVin());
+        if (position < 0) {
+            append(vehicle);
+        } else {
+            replace(position, vehicle);
+        }
+        return true;
+    }
+
+    /**
+     * Drops a vehicle another process already deleted or moved to another
+     * lot, without recording a pending change.
+     *
+     * @return false when it was not here or has unsaved local edits
+     */
+    boolean applyRemoteRemove(int vin) {
+        if (pendingChanges.containsKey(vin)) {
+            return false;
+        }
+        int position = vinIndex.remove(vin);
+        if (position < 0) {
+            return false;
+        }
+        delete(position);
+        return true;
+    }
+
+    private void replace(int position, Vehicle vehicle) {
+        indexRemove(inventory.get(position), position);
+        inventory.set(position, vehicle);
+        generation++;
+        indexAdd(vehicle, position);
+    }
+
+    // The VIN is already out of vinIndex
+    private void delete(int position) {
+        indexRemove(inventory.get(position), position);
+        generation++;
+
+        // Move the last vehicle into the hole so removal is O(1)
+        int lastPosition = inventory.size() - 1;
+        Vehicle last = inventory.removeLast();
+        if (position < lastPosition) {
+            inventory.set(position, last);
+            vinIndex.put(last.getVin(), position);
+            priceIndex.move(last, position);
+            yearIndex.move(last, position);
+            mileageIndex.move(last, position);
+            makeIndex.move(lastPosition, position);
+            modelIndex.move(lastPosition, position);
+            colorIndex.move(lastPosition, position);
+            typeIndex.move(lastPosition, position);
+        }
+    }
+
+    private void indexAdd(Vehicle v, int position) {
+        priceIndex.add(v, position);
+        yearIndex.add(v, position);
+        mileageIndex.add(v, position);
+        makeIndex.add(position, v);
+        modelIndex.add(position, v);
+        colorIndex.add(position, v);
+        typeIndex.add(position, v);
+    }
+
+    private void indexRemove(Vehicle v, int position) {
+        priceIndex.remove(v);
+        yearIndex.remove(v);
+        mileageIndex.remove(v);
+        makeIndex.remove(position);
+        modelIndex.remove(position);
+        colorIndex.remove(position);
+        typeIndex.remove(position);
+    }
+
+    // --- Change Tracking ---
+
+    // A VIN removed and re-added before saving still has its row in the DB
+    private void recordAdded(int vin) {
+        ChangeType previous = pendingType(vin);
+        recordChange(vin, previous == null ? ChangeType.INSERTED
+                : previous == ChangeType.REMOVED ? ChangeType.UPDATED : previous);
+    }
+
+    private void recordChange(int vin, ChangeType type) {
+        pendingChanges.put(vin, new PendingChange(type, ++changeSequence));
+    }
+
+    private ChangeType pendingType(int vin) {
+        PendingChange change = pendingChanges.get(vin);
+        return change == null ? null : change.type();
+    }
+
+    public boolean hasPendingChanges() {
+        return !pendingChanges.isEmpty();
+    }
+
+    /**
+     * Copy of the VINs changed since the last load/save and how they changed.
+     */
+    public Map<Integer, ChangeType> getPendingChanges() {
+        Map<Integer, ChangeType> changes = new LinkedHashMap<>();
+        pendingChanges.forEach((vin, change) -> changes.put(vin, change.type()));
+        return changes;
+    }
+
+    /**
+     * Copy of the pending changes with their sequence numbers; a save writes
+     * these and passes them back to {@link #markSaved}.
+     */
+    public Map<Integer, PendingChange> getChangesToSave() {
+        return new LinkedHashMap<>(pendingChanges);
+    }
+
+    /**
+     * Forgets the given changes once they are safely in the database. A VIN
+     * changed again in the meantime has a newer sequence number and is kept,
+     * even when the change is of the same type.
+     */
+    public void markSaved(Map<Integer, PendingChange> saved) {
+        saved.forEach(pendingChanges::remove);
+    }
+
+    public void clearPendingChanges() {
+        pendingChanges.clear();
+    }
+
+    // --- Lookup by VIN ---
+    public Vehicle getVehicleByVin(int vin) {
+        long start = System.nanoTime();
+        try {
+            int position = vinIndex.get(vin);
+            return position < 0 ? null : inventory.get(position);
+        } finally {
+            VIN_TIMER.recordSince(start);
+        }
+    }
+
+    public int getVehicleCount() {
+        return inventory.size();
+    }
+
+    // --- Result Cache ---
+    public QueryCache.CacheStats getQueryCacheStats() {
+        return queryCache.getStats();
+    }
+
+    /**
+     * Sets how many results (and how many vehicles in total) the search cache keeps.
+     */
+    public void setQueryCacheLimits(int maxEntries, int maxVehicles) {
+        queryCache.resize(maxEntries, maxVehicles);
+    }
+
+    // Callers get their own copy, so the cached list never changes under another reader
+    private List<Vehicle> cached(String key, Supplier<List<Vehicle>> search) {
+        List<Vehicle> hit = queryCache.get(key, generation);
+        if (hit != null) {
+            return new ArrayList<>(hit);
+        }
+        long searchedAt = generation;
+        List<Vehicle> result = search.get();
+        queryCache.put(key, searchedAt, new ArrayList<>(result));
+        return result;
     }
 
     // --- Get All Vehicles ---
     public List<Vehicle> getAllVehicles() {
-        return new ArrayList<>(inventory);
+        return new ArrayList<>(inventory.asList());
+    }
+
+    // The live store as a list, for snapshots that are never modified again
+    List<Vehicle> inventoryView() {
+        return inventory.asList();
+    }
+
+    // True when copying this lot writes every vehicle to a new file
+    boolean isStoredOnDisk() {
+        return inventory instanceof MappedVehicleStore;
     }
 
     // --- Filtering / Query Methods ---
     public List<Vehicle> getVehiclesByPrice(double min, double max) {
-        return inventory.stream()
-                .filter(v -> v.getPrice() >= min && v.getPrice() <= max)
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            if (Double.isNaN(min) || Double.isNaN(max)) {
+                return new ArrayList<>();
+            }
+            return cached("price " + min + " " + max,
+                    () -> rangeQuery(priceIndex, RangeIndex.priceKey(min), RangeIndex.priceKey(max)));
+        } finally {
+            PRICE_TIMER.recordSince(start);
+        }
     }
 
     public List<Vehicle> getVehiclesByMakeModel(String make, String model) {
-        String m1 = make == null ? "" : make.toLowerCase(Locale.ROOT).trim();
-        String m2 = model == null ? "" : model.toLowerCase(Locale.ROOT).trim();
-        return inventory.stream()
-                .filter(v ->
-                        (m1.isEmpty() || v.getMake().toLowerCase(Locale.ROOT).contains(m1)) &&
-                                (m2.isEmpty() || v.getModel().toLowerCase(Locale.ROOT).contains(m2)))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            String makeQuery = TextIndex.normalizeQuery(make);
+            String modelQuery = TextIndex.normalizeQuery(model);
+            // Length prefix keeps "ab"+"c" and "a"+"bc" apart
+            return cached("makeModel " + makeQuery.length() + ":" + makeQuery + modelQuery,
+                    () -> makeModelQuery(makeQuery, modelQuery));
+        } finally {
+            MAKE_MODEL_TIMER.recordSince(start);
+        }
+    }
+
+    private List<Vehicle> makeModelQuery(String makeQuery, String modelQuery) {
+        boolean[] makes = makeIndex.matchingValues(makeQuery);
+        boolean[] models = modelIndex.matchingValues(modelQuery);
+
+        // Walk whichever side matches fewer vehicles and check the other per position
+        boolean makeSmaller = makeIndex.count(makes) <= modelIndex.count(models);
+        TextIndex driver = makeSmaller ? makeIndex : modelIndex;
+        TextIndex other = makeSmaller ? modelIndex : makeIndex;
+        boolean[] otherValues = makeSmaller ? models : makes;
+
+        TextIndex.IntList positions = new TextIndex.IntList(driver.count(makeSmaller ? makes : models));
+        driver.collectPositions(makeSmaller ? makes : models, positions);
+
+        List<Vehicle> result = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            int position = positions.get(i);
+            if (otherValues[other.valueIdAt(position)]) {
+                result.add(inventory.get(position));
+            }
+        }
+        return result;
     }
 
     public List<Vehicle> getVehiclesByYear(int minYear, int maxYear) {
-        return inventory.stream()
-                .filter(v -> v.getYear() >= minYear && v.getYear() <= maxYear)
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return cached("year " + minYear + " " + maxYear, () -> rangeQuery(yearIndex, minYear, maxYear));
+        } finally {
+            YEAR_TIMER.recordSince(start);
+        }
     }
 
     public List<Vehicle> getVehiclesByColor(String color) {
-        String c = color == null ? "" : color.toLowerCase(Locale.ROOT).trim();
-        return inventory.stream()
-                .filter(v -> v.getColor().toLowerCase(Locale.ROOT).contains(c))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return cached("color " + TextIndex.normalizeQuery(color), () -> textQuery(colorIndex, color));
+        } finally {
+            COLOR_TIMER.recordSince(start);
+        }
     }
 
     public List<Vehicle> getVehiclesByMileage(long min, long max) {
-        return inventory.stream()
-                .filter(v -> v.getOdometer() >= min && v.getOdometer() <= max)
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return cached("mileage " + min + " " + max, () -> rangeQuery(mileageIndex, min, max));
+        } finally {
+            MILEAGE_TIMER.recordSince(start);
+        }
     }
 
     public List<Vehicle> getVehiclesByType(String type) {
-        String t = type == null ? "" : type.toLowerCase(Locale.ROOT).trim();
-        return inventory.stream()
-                .filter(v -> v.getType().toLowerCase(Locale.ROOT).contains(t))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return cached("type " + TextIndex.normalizeQuery(type), () -> textQuery(typeIndex, type));
+        } finally {
+            TYPE_TIMER.recordSince(start);
+        }
+    }
+
+    // --- Combined queries ---
+
+    /**
+     * Runs a combined query. The planner counts how many vehicles each filter
+     * lets through (range indexes give exact counts with two binary searches,
+     * text indexes sum their per-value counts), walks only the candidates of the
+     * most selective filter and checks the remaining filters per vehicle.
+     * Results are cached until the inventory changes.
+     */
+    public List<Vehicle> query(VehicleQuery q) {
+        long start = System.nanoTime();
+        try {
+            return cached(q.toString(), () -> runQuery(q));
+        } finally {
+            QUERY_TIMER.recordSince(start);
+        }
+    }
+
+    private List<Vehicle> runQuery(VehicleQuery q) {
+        Plan plan = plan(q);
+        if (plan == null) {
+            return new ArrayList<>();
+        }
+
+        Comparator<Vehicle> order = q.comparator();
+        // Without a sort the first offset+limit matches are the answer, so stop early
+        long wanted = order == null ? (long) q.getOffset() + q.getLimit() : Long.MAX_VALUE;
+
+        List<Vehicle> result = new ArrayList<>(Math.min(plan.estimate, (int) Math.min(wanted, Integer.MAX_VALUE)));
+        for (int i = 0; i < plan.estimate && result.size() < wanted; i++) {
+            int position = plan.positionAt(i);
+            Vehicle v = inventory.get(position);
+            if (q.matchesRanges(v)
+                    && (plan.makes == null || plan.makes[makeIndex.valueIdAt(position)])
+                    && (plan.models == null || plan.models[modelIndex.valueIdAt(position)])
+                    && (plan.colors == null || plan.colors[colorIndex.valueIdAt(position)])
+                    && (plan.types == null || plan.types[typeIndex.valueIdAt(position)])) {
+                result.add(v);
+            }
+        }
+
+        if (order != null) {
+            result.sort(order);
+        }
+        int from = Math.min(q.getOffset(), result.size());
+        int to = (int) Math.min(result.size(), (long) from + q.getLimit());
+        return from == 0 && to == result.size() ? result : new ArrayList<>(result.subList(from, to));
+    }
+
+    /**
+     * Describes which filter the planner would drive the query from and its estimated row count.
+     */
+    public String explain(VehicleQuery q) {
+        Plan plan = plan(q);
+        return plan == null ? "empty (NaN price bound)" : plan.driver + " -> ~" + plan.estimate + " candidates";
+    }
+
+    private Plan plan(VehicleQuery q) {
+        Plan plan = new Plan(inventory.size());
+        plan.makes = textMask(makeIndex, q.getMake());
+        plan.models = textMask(modelIndex, q.getModel());
+        plan.colors = textMask(colorIndex, q.getColor());
+        plan.types = textMask(typeIndex, q.getType());
+
+        if (q.getVin() != null) {
+            int position = vinIndex.get(q.getVin());
+            plan.useVin(position);
+        }
+        if (q.hasPrice()) {
+            if (Double.isNaN(q.getMinPrice()) || Double.isNaN(q.getMaxPrice())) return null;
+            plan.considerRange("price", priceIndex,
+                    RangeIndex.priceKey(q.getMinPrice()), RangeIndex.priceKey(q.getMaxPrice()));
+        }
+        if (q.hasYear()) {
+            plan.considerRange("year", yearIndex, q.getMinYear(), q.getMaxYear());
+        }
+        if (q.hasMileage()) {
+            plan.considerRange("mileage", mileageIndex, q.getMinMileage(), q.getMaxMileage());
+        }
+        plan.considerText("make", makeIndex, plan.makes);
+        plan.considerText("model", modelIndex, plan.models);
+        plan.considerText("color", colorIndex, plan.colors);
+        plan.considerText("type", typeIndex, plan.types);
+        return plan;
+    }
+
+    private static boolean[] textMask(TextIndex index, String query) {
+        return query.isEmpty() ? null : index.matchingValues(query);
+    }
+
+    /**
+     * The chosen access path for one query: the whole inventory, one VIN,
+     * a slice of a range index, or the positions under matching text values.
+     */
+    private final class Plan {
+        private String driver = "full scan";
+        private int estimate;
+
+        private int vinPosition = -1;
+        private boolean byVin;
+        private RangeIndex range;
+        private int rangeFrom;
+        private TextIndex.IntList textPositions;
+        private TextIndex text;
+        private boolean[] textValues;
+
+        private boolean[] makes, models, colors, types;
+
+        private Plan(int inventorySize) {
+            this.estimate = inventorySize;
+        }
+
+        private void useVin(int position) {
+            byVin = true;
+            vinPosition = position;
+            estimate = position < 0 ? 0 : 1;
+            driver = "vin index";
+        }
+
+        private void considerRange(String field, RangeIndex index, long minKey, long maxKey) {
+            if (!index.isBuilt()) {
+                index.rebuild(inventory.asList());
+            }
+            int from = index.from(minKey);
+            int count = Math.max(0, index.to(maxKey) - from);
+            if (count < estimate) {
+                clear();
+                range = index;
+                rangeFrom = from;
+                estimate = count;
+                driver = field + " index";
+            }
+        }
+
+        private void considerText(String field, TextIndex index, boolean[] values) {
+            if (values == null) return;
+            int count = index.count(values);
+            if (count < estimate) {
+                clear();
+                text = index;
+                textValues = values;
+                estimate = count;
+                driver = field + " index";
+            }
+        }
+
+        private void clear() {
+            byVin = false;
+            range = null;
+            text = null;
+        }
+
+        private int positionAt(int i) {
+            if (byVin) return vinPosition;
+            if (range != null) return range.positionAt(rangeFrom + i);
+            if (text != null) {
+                if (textPositions == null) {
+                    textPositions = new TextIndex.IntList(estimate);
+                    text.collectPositions(textValues, textPositions);
+                }
+                return textPositions.get(i);
+            }
+            return i;
+        }
+    }
+
+    // Binary search both ends of the sorted index and return the slice, in key order
+    private List<Vehicle> rangeQuery(RangeIndex index, long minKey, long maxKey) {
+        if (!index.isBuilt()) {
+            index.rebuild(inventory.asList());
+        }
+        int from = index.from(minKey);
+        int to = index.to(maxKey);
+
+        List<Vehicle> result = new ArrayList<>(Math.max(0, to - from));
+        for (int slot = from; slot < to; slot++) {
+            result.add(inventory.get(index.positionAt(slot)));
+        }
+        return result;
+    }
+
+    // Substring match through the trigram index; only matching vehicles are touched
+    private List<Vehicle> textQuery(TextIndex index, String query) {
+        boolean[] values = index.matchingValues(TextIndex.normalizeQuery(query));
+        TextIndex.IntList positions = new TextIndex.IntList(index.count(values));
+        index.collectPositions(values, positions);
+
+        List<Vehicle> result = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            result.add(inventory.get(positions.get(i)));
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
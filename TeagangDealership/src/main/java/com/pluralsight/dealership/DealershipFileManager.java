@@ -1,28 +1,88 @@
 package com.pluralsight.dealership;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 public class DealershipFileManager {
 
+    // Rows pulled per round trip while streaming the vehicles table
+    private static final int DEFAULT_FETCH_SIZE = 5_000;
+    private static final int PROGRESS_EVERY = 100_000;
+
+    private static final Metrics.Timer LOAD_LOT_TIMER =
+            Metrics.timer("dealership_load_seconds", "Time to load inventory from the database", "scope=\"lot\"");
+    private static final Metrics.Timer LOAD_ALL_TIMER =
+            Metrics.timer("dealership_load_seconds", "Time to load inventory from the database", "scope=\"all\"");
+    private static final Metrics.Timer SAVE_TIMER =
+            Metrics.timer("dealership_save_seconds", "Time to save pending inventory changes");
+    private static final Metrics.Timer IMPORT_TIMER =
+            Metrics.timer("pipe_file_seconds", "Time to import or export a pipe file", "direction=\"import\"");
+    private static final Metrics.Timer EXPORT_TIMER =
+            Metrics.timer("pipe_file_seconds", "Time to import or export a pipe file", "direction=\"export\"");
+
+    // Pipe feed files: one mapping covers at most 1 GiB, parsed in ~4 MiB line-aligned chunks
+    private static final long MAX_REGION_BYTES = 1L << 30;
+    private static final int CHUNK_BYTES = 4 << 20;
+    private static final int EXPORT_BUFFER_BYTES = 1 << 16;
+
     // --- Statistics (kept for UI compatibility) ---
-    private int vehiclesLoaded = 0;
-    private int vehiclesSkipped = 0;
-    private int duplicateCount = 0;
+    // Atomic so parallel lot loads can share them and other threads can watch progress
+    private final AtomicInteger vehiclesLoaded = new AtomicInteger();
+    private final AtomicInteger vehiclesSkipped = new AtomicInteger();
+    private final AtomicInteger duplicateCount = new AtomicInteger();
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    // -Ddealership.store=compact keeps loaded lots dictionary-encoded;
+    // =mapped keeps them in memory-mapped files under -Ddealership.store.dir, one directory per lot
+    public static final String DEFAULT_STORE_DIR = "inventory-store";
+    private static final String STORE = System.getProperty("dealership.store", "heap");
+    private IntFunction<VehicleStore> storeFactory = switch (STORE) {
+        case "compact" -> id -> VehicleStore.compact();
+        case "mapped" -> mappedStores(Path.of(System.getProperty("dealership.store.dir", DEFAULT_STORE_DIR)));
+        default -> id -> VehicleStore.onHeap();
+    };
+
+    // Local binary copy of every lot for fast startup; null turns it off.
+    // Mapped stores already start without a reload, so they go without.
+    public static final String DEFAULT_SNAPSHOT_FILE = "inventory.snapshot";
+    private Path snapshotPath = "mapped".equals(STORE) ? null : Path.of(DEFAULT_SNAPSHOT_FILE);
+    private volatile InventorySnapshot.Fingerprint snapshotFingerprint;
 
     public void resetStats() {
-        vehiclesLoaded = 0;
-        vehiclesSkipped = 0;
-        duplicateCount = 0;
+        vehiclesLoaded.set(0);
+        vehiclesSkipped.set(0);
+        duplicateCount.set(0);
     }
 
-    public int getVehiclesLoaded()  { return vehiclesLoaded; }
-    public int getVehiclesSkipped() { return vehiclesSkipped; }
-    public int getDuplicateCount()  { return duplicateCount; }
+    public int getVehiclesLoaded()  { return vehiclesLoaded.get(); }
+    public int getVehiclesSkipped() { return vehiclesSkipped.get(); }
+    public int getDuplicateCount()  { return duplicateCount.get(); }
 
     public void printSummaryReport() {
         System.out.println("\n📊 Dealership Data Summary");
@@ -30,13 +90,13 @@ public class DealershipFileManager {
         System.out.println("✅ Vehicles loaded:   " + vehiclesLoaded);
         System.out.println("⚠️ Skipped bad lines: " + vehiclesSkipped);
         System.out.println("🚫 Duplicates ignored: " + duplicateCount);
-        int total = vehiclesLoaded + vehiclesSkipped + duplicateCount;
+        int total = getVehiclesLoaded() + getVehiclesSkipped() + getDuplicateCount();
         System.out.println("--------------------------");
         System.out.println("📁 Total records processed: " + total + "\n");
     }
 
     // Kept for compatibility; DB does not skip records
-    private final List<String> skippedRecords = new ArrayList<>();
+    private final List<String> skippedRecords = Collections.synchronizedList(new ArrayList<>());
     public List<String> getSkippedRecords() {
         return skippedRecords;
     }
@@ -45,10 +105,128 @@ public class DealershipFileManager {
     public DealershipFileManager() { this("inventory.csv"); }
     public DealershipFileManager(String filename) { }
 
+    public int getFetchSize() { return fetchSize; }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Chooses the store each loaded lot keeps its vehicles in, by dealership id.
+     */
+    public void setStoreFactory(IntFunction<VehicleStore> storeFactory) {
+        this.storeFactory = storeFactory;
+    }
+
+    /**
+     * A mapped store per lot under {@code directory}, in lot-&lt;id&gt;.
+     * A lot whose store cannot be opened is kept on the heap instead.
+     */
+    public static IntFunction<VehicleStore> mappedStores(Path directory) {
+        return id -> {
+            Path lot = directory.resolve("lot-" + id);
+            try {
+                return VehicleStore.mapped(lot);
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not open vehicle store " + lot + ", keeping lot " + id
+                        + " in memory: " + e.getMessage());
+                return VehicleStore.onHeap();
+            }
+        };
+    }
+
+    public Path getSnapshotPath() { return snapshotPath; }
+
+    public void setSnapshotPath(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        this.snapshotFingerprint = null;
+    }
+
+    // ============ local snapshot ============
+
+    /**
+     * Loads every lot from the local snapshot without touching the database.
+     *
+     * @return the lots, or null when there is no usable snapshot
+     */
+    public DealershipRegistry loadSnapshot() {
+        if (snapshotPath == null) return null;
+        try {
+            InventorySnapshot snapshot = InventorySnapshot.read(snapshotPath);
+            snapshotFingerprint = snapshot.getFingerprint();
+            return snapshot.getRegistry();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("⚠️ Ignoring local snapshot " + snapshotPath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the local snapshot with these lots, right after a full load
+     * or a save. Skipped while any lot has unsaved changes, since the
+     * snapshot must only ever hold what the database holds.
+     */
+    public void writeSnapshot(DealershipRegistry registry) {
+        if (snapshotPath == null || registry.isEmpty()) return;
+        for (Dealership lot : registry.getDealerships()) {
+            if (lot.hasPendingChanges()) return;
+        }
+        try {
+            snapshotFingerprint = InventorySnapshot.write(snapshotPath, registry.getDealerships());
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not write local snapshot " + snapshotPath + ": " + e.getMessage());
+        }
+    }
+
+    InventorySnapshot.Fingerprint getSnapshotFingerprint() {
+        return snapshotFingerprint;
+    }
+
+    /**
+     * Compares the database with a snapshot's fingerprint (one aggregate
+     * query, no rows transferred) and reloads every lot only if they differ.
+     * A fresh load is written back as the new snapshot.
+     *
+     * @return the reloaded lots, or null when the snapshot is current or the database is unreachable
+     */
+    DealershipRegistry reloadIfChanged(InventorySnapshot.Fingerprint known) {
+        InventorySnapshot.Fingerprint current;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            current = InventorySnapshot.queryFingerprint(conn);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Could not check the database for changes: " + e.getMessage());
+            return null;
+        }
+        if (current.equals(known)) {
+            return null;
+        }
+
+        DealershipRegistry fresh = getDealerships();
+        if (fresh.isEmpty()) {
+            return null;
+        }
+        writeSnapshot(fresh);
+        return fresh;
+    }
+
     /**
      * Loads the dealership and its vehicles from Supabase.
      */
     public Dealership getDealership() {
+        long start = System.nanoTime();
+        try {
+            return loadFirstDealership();
+        } finally {
+            LOAD_LOT_TIMER.recordSince(start);
+        }
+    }
+
+    private Dealership loadFirstDealership() {
         resetStats();
         skippedRecords.clear();
 
@@ -62,58 +240,27 @@ public class DealershipFileManager {
                 LIMIT 1;
             """;
 
-            Dealership dealership;
             int dealershipId;
+            String name, address, phone;
 
             try (PreparedStatement ps = conn.prepareStatement(dealershipSql);
                  ResultSet rs = ps.executeQuery()) {
 
                 if (rs.next()) {
                     dealershipId = rs.getInt("dealership_id");
-                    String name = rs.getString("name");
-                    String address = rs.getString("address");
-                    String phone = rs.getString("phone");
-
-                    dealership = new Dealership(name, address, phone);
+                    name = rs.getString("name");
+                    address = rs.getString("address");
+                    phone = rs.getString("phone");
                 } else {
                     // No dealership found → return default
                     return new Dealership("Your Dealership", "123 Main st", "888-888-8888");
                 }
             }
+            Dealership dealership = openLot(conn, dealershipId, name, address, phone);
 
-            // 2. Load all vehicles with that dealership_id
-            String vehicleSql = """
-                SELECT vin, make, model, type, year, price, color, odometer, sold
-                FROM vehicles
-                WHERE dealership_id = ?
-            """;
-
-            try (PreparedStatement ps = conn.prepareStatement(vehicleSql)) {
-                ps.setInt(1, dealershipId);
-
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        String vinStr  = rs.getString("vin");
-                        int vin        = Integer.parseInt(vinStr);
-                        String make    = rs.getString("make");
-                        String model   = rs.getString("model");
-                        int year       = rs.getInt("year");
-                        double price   = rs.getDouble("price");
-                        String color   = rs.getString("color");
-                        int odometer   = rs.getInt("odometer");
-                        boolean sold   = rs.getBoolean("sold");
-                        String type = rs.getString("type");
-
-                        String type1 = sold ? "Sold" : "Available";
-
-                        Vehicle v = new Vehicle(
-                         vin, year, make, model, type, color, odometer, price
-                        );
-
-                        dealership.addVehicle(v);
-                        vehiclesLoaded++;
-                    }
-                }
+            // 2. Stream all vehicles with that dealership_id, unless its store already holds them
+            if (dealership.getVehicleCount() == 0) {
+                loadVehicles(conn, dealershipId, dealership);
             }
 
             return dealership;
@@ -125,32 +272,248 @@ public class DealershipFileManager {
     }
 
     /**
-     * Saves the dealership + all vehicles to Supabase.
+     * Loads every dealership, each lot's inventory on its own pooled connection.
+     */
+    public DealershipRegistry getDealerships() {
+        return getDealerships(new int[0]);
+    }
+
+    /**
+     * Loads the chosen dealerships (all of them when no ids are given) in parallel.
+     * A lot that fails to load is reported and left out of the registry.
+     */
+    public DealershipRegistry getDealerships(int... dealershipIds) {
+        long start = System.nanoTime();
+        try {
+            return loadDealerships(dealershipIds);
+        } finally {
+            LOAD_ALL_TIMER.recordSince(start);
+        }
+    }
+
+    private DealershipRegistry loadDealerships(int... dealershipIds) {
+        resetStats();
+        skippedRecords.clear();
+        DealershipRegistry registry = new DealershipRegistry();
+
+        List<Dealership> lots = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("""
+            SELECT dealership_id, name, address, phone
+            FROM dealerships
+            """);
+        if (dealershipIds.length > 0) {
+            sql.append("WHERE dealership_id = ANY (?)\n");
+        }
+        sql.append("ORDER BY dealership_id");
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            if (dealershipIds.length > 0) {
+                Integer[] ids = new Integer[dealershipIds.length];
+                for (int i = 0; i < ids.length; i++) ids[i] = dealershipIds[i];
+                ps.setArray(1, conn.createArrayOf("integer", ids));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    lots.add(new Dealership(id, rs.getString(2), rs.getString(3), rs.getString(4)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error loading dealerships from Supabase: " + e.getMessage());
+            return registry;
+        }
+
+        if (lots.isEmpty()) {
+            return registry;
+        }
+
+        // Never ask for more connections than the pool can hand out at once
+        int threads = Math.min(lots.size(), DatabaseUtil.getPoolStats().maxSize());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // The lots above only carry the dealership row; each load opens the real one
+            List<Future<Dealership>> loads = new ArrayList<>();
+            for (Dealership row : lots) {
+                loads.add(executor.submit(() -> {
+                    try (Connection conn = DatabaseUtil.getConnection()) {
+                        Dealership lot = openLot(conn, row.getId(), row.getName(), row.getAddress(), row.getPhone());
+                        if (lot.getVehicleCount() == 0) {
+                            loadVehicles(conn, lot.getId(), lot);
+                        }
+                        return lot;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < lots.size(); i++) {
+                Dealership lot = lots.get(i);
+                try {
+                    registry.add(loads.get(i).get());
+                } catch (ExecutionException e) {
+                    System.err.println("⚠️ Error loading inventory for " + lot.getName() + ": "
+                            + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("⚠️ Interrupted while loading dealerships.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return registry;
+    }
+
+    /**
+     * A lot in the store the factory picks for it. A store that already holds
+     * vehicles (a mapped store from an earlier run) is kept when it matches
+     * the database row for row, and emptied for a fresh load when it does not.
+     */
+    private Dealership openLot(Connection conn, int id, String name, String address, String phone) throws SQLException {
+        VehicleStore store = storeFactory.apply(id);
+        if (store.size() > 0) {
+            InventorySnapshot.Fingerprint stored = InventorySnapshot.lotFingerprint(id, store.asList());
+            if (stored.equals(InventorySnapshot.queryLotFingerprint(conn, id))) {
+                vehiclesLoaded.addAndGet(store.size());
+                System.out.println("📦 Reopened " + store.size() + " stored vehicles for " + name + " without a reload.");
+                return new Dealership(id, name, address, phone, store);
+            }
+            System.out.println("🔄 Stored vehicles for " + name + " are out of date; reloading.");
+            store.clear();
+        }
+        return new Dealership(id, name, address, phone, store);
+    }
+
+    /**
+     * Streams the vehicles of one dealership into the inventory.
+     *
+     * The Postgres driver only uses a server-side cursor when autocommit is
+     * off and a fetch size is set; otherwise it buffers the whole result set
+     * before returning the first row. With the cursor, rows arrive fetchSize
+     * at a time and are turned into Vehicles as they come, so heap use does not
+     * depend on table size beyond the inventory itself.
      */
-    public void saveDealership(Dealership d) {
+    private void loadVehicles(Connection conn, int dealershipId, Dealership dealership) throws SQLException {
+        // Sold vehicles come back with the "Sold" type, the way saves recognize them
+        String vehicleSql = """
+            SELECT vin, make, model, CASE WHEN sold THEN 'Sold' ELSE type END, year, price, color, odometer
+            FROM vehicles
+            WHERE dealership_id = ?
+        """;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(vehicleSql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setInt(1, dealershipId);
+            ps.setFetchSize(fetchSize);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String vinStr  = rs.getString(1);
+                    int vin;
+                    try {
+                        vin = Integer.parseInt(vinStr.trim());
+                    } catch (NumberFormatException | NullPointerException e) {
+                        skippedRecords.add("VIN '" + vinStr + "' is not a number");
+                        vehiclesSkipped.incrementAndGet();
+                        continue;
+                    }
+                    String make    = rs.getString(2);
+                    String model   = rs.getString(3);
+                    String type    = rs.getString(4);
+                    int year       = rs.getInt(5);
+                    double price   = rs.getDouble(6);
+                    String color   = rs.getString(7);
+                    int odometer   = rs.getInt(8);
+
+                    Vehicle v = new Vehicle(
+                     vin, year, make, model, type, color, odometer, price
+                    );
+
+                    if (dealership.loadVehicle(v)) {
+                        int loaded = vehiclesLoaded.incrementAndGet();
+                        if (loaded % PROGRESS_EVERY == 0) {
+                            System.out.println("⏳ Loaded " + loaded + " vehicles...");
+                        }
+                    } else {
+                        duplicateCount.incrementAndGet();
+                    }
+                }
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Saves the dealership and only the vehicles added, replaced or removed
+     * since the last load/save, in one transaction.
+     *
+     * @return false when the save failed; the changes stay pending for the next save
+     */
+    public boolean saveDealership(Dealership d) {
+        long start = System.nanoTime();
+        try {
+            return writeDealership(d);
+        } finally {
+            SAVE_TIMER.recordSince(start);
+        }
+    }
+
+    private boolean writeDealership(Dealership d) {
+        Map<Integer, Dealership.PendingChange> changes = d.getChangesToSave();
+
         try (Connection conn = DatabaseUtil.getConnection()) {
 
             conn.setAutoCommit(false);
 
-            // 1. Ensure dealership row exists (always dealership_id=1)
+            // 1. Ensure dealership row exists
             int dealershipId = upsertDealership(conn, d);
 
-            // 2. Remove old vehicles
-            String deleteSql = "DELETE FROM vehicles WHERE dealership_id = ?";
+            // 2. Delete removed vehicles
+            String deleteSql = "DELETE FROM vehicles WHERE vin = ? AND dealership_id = ?";
+            int deleted = 0;
             try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
-                ps.setInt(1, dealershipId);
-                ps.executeUpdate();
+                for (Map.Entry<Integer, Dealership.PendingChange> change : changes.entrySet()) {
+                    if (change.getValue().type() != Dealership.ChangeType.REMOVED) continue;
+
+                    ps.setString(1, String.valueOf(change.getKey()));
+                    ps.setInt(2, dealershipId);
+                    ps.addBatch();
+                    deleted++;
+                }
+                if (deleted > 0) ps.executeBatch();
             }
 
-            // 3. Insert current vehicles
-            String insertSql = """
+            // 3. Upsert added / replaced vehicles
+            // A sold vehicle's "Sold" type is the sold flag, so its stored type is left as it was.
+            // A save never clears sold: another terminal may have sold a vehicle this one still has an edit for.
+            String upsertSql = """
                 INSERT INTO vehicles
-                (vin, make, model, year, price, color, sold, dealership_id, odometer)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                (vin, make, model, year, price, color, sold, dealership_id, odometer, type)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (vin)
+                DO UPDATE SET
+                  make = EXCLUDED.make,
+                  model = EXCLUDED.model,
+                  year = EXCLUDED.year,
+                  price = EXCLUDED.price,
+                  color = EXCLUDED.color,
+                  sold = vehicles.sold OR EXCLUDED.sold,
+                  dealership_id = EXCLUDED.dealership_id,
+                  odometer = EXCLUDED.odometer,
+                  type = COALESCE(EXCLUDED.type, vehicles.type)
             """;
 
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-                for (Vehicle v : d.getAllVehicles()) {
+            int upserted = 0;
+            try (PreparedStatement ps = conn.prepareStatement(upsertSql)) {
+                for (Map.Entry<Integer, Dealership.PendingChange> change : changes.entrySet()) {
+                    if (change.getValue().type() == Dealership.ChangeType.REMOVED) continue;
+
+                    Vehicle v = d.getVehicleByVin(change.getKey());
+                    if (v == null) continue;
 
                     ps.setString(1, String.valueOf(v.getVin()));
                     ps.setString(2, v.getMake());
@@ -159,30 +522,35 @@ public class DealershipFileManager {
                     ps.setDouble(5, v.getPrice());
                     ps.setString(6, v.getColor());
 
-                    boolean isSold = v.getType().equalsIgnoreCase("Sold");
-                    ps.setBoolean(7, isSold);
+                    ps.setBoolean(7, v.isSold());
 
                     ps.setInt(8, dealershipId);
                     ps.setInt(9, (int) v.getOdometer());
+                    ps.setString(10, v.isSold() ? null : v.getType());
 
                     ps.addBatch();
+                    upserted++;
                 }
 
-                ps.executeBatch();
+                if (upserted > 0) ps.executeBatch();
             }
 
             conn.commit();
-            System.out.println("✅ Dealership + vehicles saved to Supabase.");
+            d.markSaved(changes);
+            System.out.println("✅ Dealership saved to Supabase (" + upserted + " upserted, " + deleted + " removed).");
+            return true;
 
         } catch (SQLException e) {
+            // Changes stay pending so the next save retries them
             System.err.println("❌ Error saving dealership to Supabase: " + e.getMessage());
+            return false;
         }
     }
 
     private int upsertDealership(Connection conn, Dealership d) throws SQLException {
         String upsertSql = """
             INSERT INTO dealerships (dealership_id, name, address, phone)
-            VALUES (1, ?, ?, ?)
+            VALUES (?, ?, ?, ?)
             ON CONFLICT (dealership_id)
             DO UPDATE SET
               name = EXCLUDED.name,
@@ -191,12 +559,235 @@ public class DealershipFileManager {
         """;
 
         try (PreparedStatement ps = conn.prepareStatement(upsertSql)) {
-            ps.setString(1, d.getName());
-            ps.setString(2, d.getAddress());
-            ps.setString(3, d.getPhone());
+            ps.setInt(1, d.getId());
+            ps.setString(2, d.getName());
+            ps.setString(3, d.getAddress());
+            ps.setString(4, d.getPhone());
             ps.executeUpdate();
         }
 
-        return 1;
+        return d.getId();
+    }
+
+    // ============ pipe-delimited feed files ============
+
+    /**
+     * Bulk-loads a pipe-delimited feed (VIN|Year|Make|Model|Type|Color|Odometer|Price
+     * per line) into the dealership as new, unsaved vehicles.
+     *
+     * The file is memory-mapped, cut into line-aligned chunks and the chunks are
+     * parsed in parallel on the common fork-join pool. A leading
+     * "name|address|phone" line (the old inventory.csv header) is skipped. Bad
+     * lines land in getSkippedRecords() / getVehiclesSkipped().
+     *
+     * @return number of vehicles added
+     */
+    public int importPipeFile(String path, Dealership dealership) {
+        long start = System.nanoTime();
+        try {
+            return importPipe(path, dealership);
+        } finally {
+            IMPORT_TIMER.recordSince(start);
+        }
+    }
+
+    private int importPipe(String path, Dealership dealership) {
+        resetStats();
+        skippedRecords.clear();
+
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long regionStart = 0;
+
+            while (regionStart < size) {
+                long regionEnd = Math.min(size, regionStart + MAX_REGION_BYTES);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart);
+
+                int limit = region.limit();
+                if (regionEnd < size) {
+                    // End the region after its last full line; the remainder starts the next one
+                    limit = lastNewline(region, limit) + 1;
+                    if (limit == 0) {
+                        throw new IOException("Line longer than " + MAX_REGION_BYTES + " bytes at offset " + regionStart);
+                    }
+                }
+                int start = regionStart == 0 ? skipDealershipHeader(region, limit) : 0;
+
+                List<int[]> chunks = splitIntoChunks(region, start, limit);
+                ParsedChunk parsed = ForkJoinPool.commonPool().invoke(new ParseTask(region, chunks, 0, chunks.size()));
+
+                int added = dealership.addVehicles(parsed.vehicles);
+                vehiclesLoaded.addAndGet(added);
+                duplicateCount.addAndGet(parsed.vehicles.size() - added);
+                vehiclesSkipped.addAndGet(parsed.badLines.size());
+                skippedRecords.addAll(parsed.badLines);
+
+                regionStart += limit;
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error importing " + path + ": " + e.getMessage());
+        }
+        return getVehiclesLoaded();
+    }
+
+    /**
+     * Writes the dealership header and every vehicle as pipe lines.
+     * Lines are built in one reusable StringBuilder and encoded straight into a
+     * fixed-size buffer on the file channel, so no String is built per line or
+     * for the whole file.
+     *
+     * @return number of vehicles written, or -1 on failure
+     */
+    public int exportPipeFile(String path, Dealership dealership) {
+        long start = System.nanoTime();
+        try {
+            return exportPipe(path, dealership);
+        } finally {
+            EXPORT_TIMER.recordSince(start);
+        }
+    }
+
+    private int exportPipe(String path, Dealership dealership) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(EXPORT_BUFFER_BYTES);
+        StringBuilder pending = new StringBuilder(EXPORT_BUFFER_BYTES);
+        int written = 0;
+
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            pending.append(dealership.getName()).append('|')
+                   .append(dealership.getAddress()).append('|')
+                   .append(dealership.getPhone()).append('\n');
+
+            for (Vehicle v : dealership.getAllVehicles()) {
+                v.appendPipe(pending);
+                pending.append('\n');
+                written++;
+                if (pending.length() >= EXPORT_BUFFER_BYTES) {
+                    encodeAndWrite(pending, encoder, bytes, channel);
+                }
+            }
+            encodeAndWrite(pending, encoder, bytes, channel);
+            return written;
+
+        } catch (IOException e) {
+            System.err.println("⚠️ Error exporting to " + path + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static void encodeAndWrite(StringBuilder chars, CharsetEncoder encoder,
+                                       ByteBuffer bytes, FileChannel channel) throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, false);
+            if (result.isError()) result.throwException();
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+            if (result.isUnderflow()) break;
+        }
+        // A split surrogate pair stays behind for the next call
+        String leftover = in.hasRemaining() ? in.toString() : "";
+        chars.setLength(0);
+        chars.append(leftover);
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    // The legacy inventory.csv started with "name|address|phone"
+    private static int skipDealershipHeader(ByteBuffer buffer, int limit) {
+        int pipes = 0;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '|') pipes++;
+            if (b == '\n') return pipes == 2 ? i + 1 : 0;
+        }
+        return pipes == 2 ? limit : 0;
+    }
+
+    private static List<int[]> splitIntoChunks(ByteBuffer buffer, int start, int limit) {
+        List<int[]> chunks = new ArrayList<>();
+        int from = start;
+        while (from < limit) {
+            int to = Math.min(limit, from + CHUNK_BYTES);
+            // Push the cut forward to the end of the current line
+            while (to < limit && buffer.get(to - 1) != '\n') {
+                to++;
+            }
+            chunks.add(new int[]{from, to});
+            from = to;
+        }
+        return chunks;
+    }
+
+    private static final class ParsedChunk {
+        private final List<Vehicle> vehicles = new ArrayList<>();
+        private final List<String> badLines = new ArrayList<>();
+
+        private ParsedChunk append(ParsedChunk later) {
+            vehicles.addAll(later.vehicles);
+            badLines.addAll(later.badLines);
+            return this;
+        }
+    }
+
+    // Splits the chunk list in half until one chunk is left, then parses it; results keep file order
+    private static final class ParseTask extends RecursiveTask<ParsedChunk> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buffer;
+        private final List<int[]> chunks;
+        private final int lo;
+        private final int hi;
+
+        private ParseTask(ByteBuffer buffer, List<int[]> chunks, int lo, int hi) {
+            this.buffer = buffer;
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            if (hi - lo <= 1) {
+                return hi == lo ? new ParsedChunk() : parse(chunks.get(lo));
+            }
+            int mid = (lo + hi) >>> 1;
+            ParseTask right = new ParseTask(buffer, chunks, mid, hi);
+            right.fork();
+            ParsedChunk left = new ParseTask(buffer, chunks, lo, mid).compute();
+            return left.append(right.join());
+        }
+
+        private ParsedChunk parse(int[] chunk) {
+            // Lines are parsed straight from the mapped bytes; only bad lines are decoded
+            PipeRecordParser parser = PipeRecordParser.forCurrentThread();
+            ParsedChunk result = new ParsedChunk();
+            int lineStart = chunk[0];
+            int end = chunk[1];
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+
+                try {
+                    Vehicle v = parser.parse(buffer, lineStart, lineEnd);
+                    if (v != null) result.vehicles.add(v);
+                } catch (IllegalArgumentException e) {
+                    byte[] raw = new byte[lineEnd - lineStart];
+                    buffer.get(lineStart, raw);
+                    result.badLines.add(new String(raw, StandardCharsets.UTF_8).strip());
+                }
+                lineStart = lineEnd + 1;
+            }
+            return result;
+        }
     }
-}
\ No newline at end of file
+}
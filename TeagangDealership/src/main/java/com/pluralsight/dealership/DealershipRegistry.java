@@ -0,0 +1,93 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * All the lots of a dealer group, keyed by dealership_id, with searches that span every lot.
+ */
+public class DealershipRegistry {
+
+    private final Map<Integer, Dealership> dealerships = new LinkedHashMap<>();
+
+    public void add(Dealership dealership) {
+        dealerships.put(dealership.getId(), dealership);
+    }
+
+    /**
+     * A registry over thread-safe copies of every lot, for sharing between sessions.
+     */
+    public DealershipRegistry concurrent() {
+        DealershipRegistry shared = new DealershipRegistry();
+        for (Dealership d : dealerships.values()) {
+            shared.add(d instanceof ConcurrentDealership ? d : new ConcurrentDealership(d));
+        }
+        return shared;
+    }
+
+    public Dealership get(int dealershipId) {
+        return dealerships.get(dealershipId);
+    }
+
+    public Collection<Dealership> getDealerships() {
+        return Collections.unmodifiableCollection(dealerships.values());
+    }
+
+    public int size() {
+        return dealerships.size();
+    }
+
+    public boolean isEmpty() {
+        return dealerships.isEmpty();
+    }
+
+    public int getTotalVehicleCount() {
+        int total = 0;
+        for (Dealership d : dealerships.values()) {
+            total += d.getVehicleCount();
+        }
+        return total;
+    }
+
+    /**
+     * Finds which lot holds a VIN, or null if none does.
+     */
+    public Dealership findDealershipByVin(int vin) {
+        for (Dealership d : dealerships.values()) {
+            if (d.getVehicleByVin(vin) != null) return d;
+        }
+        return null;
+    }
+
+    /**
+     * Runs the same query against every lot. Lots with no matches are left out.
+     *
+     * Example: registry.search(d -> d.getVehiclesByPrice(10000, 20000))
+     */
+    public Map<Dealership, List<Vehicle>> search(Function<Dealership, List<Vehicle>> query) {
+        Map<Dealership, List<Vehicle>> results = new LinkedHashMap<>();
+        for (Dealership d : dealerships.values()) {
+            List<Vehicle> matches = query.apply(d);
+            if (!matches.isEmpty()) {
+                results.put(d, matches);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Same as search, flattened into one list.
+     */
+    public List<Vehicle> searchAll(Function<Dealership, List<Vehicle>> query) {
+        List<Vehicle> all = new ArrayList<>();
+        for (Dealership d : dealerships.values()) {
+            all.addAll(query.apply(d));
+        }
+        return all;
+    }
+}
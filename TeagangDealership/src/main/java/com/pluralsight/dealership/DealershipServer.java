@@ -0,0 +1,707 @@
+package com.pluralsight.dealership;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/JSON front end for kiosks and partner feeds, on the JDK's built-in server.
+ *
+ * Endpoints (lot defaults to the first dealership):
+ * <pre>
+ *   GET    /health
+ *   GET    /metrics                 (Prometheus text format)
+ *   GET    /dealerships
+ *   GET    /vehicles?lot=&amp;vin=&amp;minPrice=&amp;maxPrice=&amp;minYear=&amp;maxYear=&amp;minMileage=&amp;maxMileage=
+ *                   &amp;make=&amp;model=&amp;color=&amp;type=&amp;sort=price&amp;desc=true&amp;offset=&amp;limit=
+ *   GET    /vehicles/{vin}?lot=
+ *   POST   /vehicles?lot=          {"vin":1,"year":2020,"make":"Honda",...,"odometer":1000,"price":9999.99}
+ *   DELETE /vehicles/{vin}?lot=
+ *   GET    /quotes?lot=&amp;maxMonthly=400&amp;plan=finance|lease|either&amp;limit=
+ *   POST   /contracts              {"type":"sale"|"lease","vin":1,"customerName":"..","customerEmail":"..",
+ *                                   "finance":true,"date":"2024-05-01","lot":1}   (409 if already sold)
+ *   GET    /reports/summary?month=2025-01     (or from=2025-01-01&amp;to=2025-02-01; default this month)
+ *   GET    /reports/top?month=&amp;limit=10
+ *   GET    /reports/contracts?month=          (CSV, streamed)
+ * </pre>
+ * Each request runs on its own virtual thread when the JVM has them (21+),
+ * otherwise on a bounded platform-thread pool. Lots are served through
+ * ConcurrentDealership, so searches never block on writes. Large results are
+ * streamed to the client as they are encoded rather than built up as one String.
+ */
+public class DealershipServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int FALLBACK_THREADS = 200;
+    private static final int RESPONSE_BUFFER_CHARS = 16 * 1024;
+    private static final int STREAM_THRESHOLD = 64 * 1024;
+
+    private static final Metrics.Timer REQUEST_TIMER =
+            Metrics.timer("http_request_seconds", "Time to handle an HTTP request");
+    private static final Metrics.Counter ERRORS =
+            Metrics.counter("http_errors_total", "Requests answered with a 5xx status");
+
+    private final DealershipRegistry registry;
+    private final DealershipFileManager fileManager;
+    private final ContractFileManager contracts;
+    private final ContractReports reports;
+    private HttpServer server;
+    private ExecutorService executor;
+    private InventoryChangeFeed changeFeed;
+
+    /**
+     * @param fileManager saves lots after add/remove; null keeps changes in memory only
+     * @param contracts   stores contracts; null disables POST /contracts and /reports
+     */
+    public DealershipServer(DealershipRegistry registry, DealershipFileManager fileManager, ContractFileManager contracts) {
+        this.registry = registry.concurrent();
+        this.fileManager = fileManager;
+        this.contracts = contracts;
+        this.reports = contracts == null ? null : new ContractReports();
+    }
+
+    /**
+     * Loads every lot from the database, starts serving and stops cleanly on shutdown.
+     */
+    public static void launch(int port) throws IOException {
+        DealershipFileManager fileManager = new DealershipFileManager();
+        long feedPosition = InventoryChangeFeed.startPosition();
+        DealershipRegistry registry = fileManager.getDealerships();
+        if (registry.isEmpty()) {
+            registry.add(fileManager.getDealership());
+        }
+        ContractFileManager contracts = new ContractFileManager();
+
+        DealershipServer server = new DealershipServer(registry, fileManager, contracts);
+        // At exit, requests in flight finish and queued contracts are written before the pool closes
+        DatabaseUtil.runBeforePoolCloses(() -> {
+            server.stop(2);
+            contracts.close();
+        });
+        server.start(port);
+        if (feedPosition >= 0) {
+            server.followChanges(feedPosition);
+        }
+        System.out.println("🌐 Serving " + registry.getTotalVehicleCount() + " vehicles from "
+                + registry.size() + " lot(s) on http://localhost:" + server.getPort());
+    }
+
+    public void start(int port) throws IOException {
+        // The JDK server writes headers and body separately; without TCP_NODELAY each
+        // small reply waits on the client's delayed ACK (~40 ms). Read once, at first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/dealerships", this::handleDealerships);
+        server.createContext("/vehicles", this::handleVehicles);
+        server.createContext("/quotes", this::handleQuotes);
+        server.createContext("/contracts", this::handleContracts);
+        server.createContext("/reports", this::handleReports);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    /**
+     * Applies vehicles saved by other terminals as they change.
+     *
+     * @param fromPosition from InventoryChangeFeed.startPosition(), taken before the lots were loaded
+     */
+    public synchronized void followChanges(long fromPosition) {
+        if (changeFeed != null) return;
+        changeFeed = new InventoryChangeFeed(fromPosition, registry);
+        changeFeed.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and gives running ones up to {@code delaySeconds} to finish.
+     */
+    public void stop(int delaySeconds) {
+        synchronized (this) {
+            if (changeFeed != null) {
+                changeFeed.close();
+                changeFeed = null;
+            }
+        }
+        if (server == null) return;
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    // Virtual threads are JDK 21+; looked up reflectively so the build stays on 17
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+                Thread t = new Thread(r, "http-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // --- Handlers ---
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            try (Writer w = open(exchange, 200)) {
+                new Json.Out(w).beginObject()
+                        .name("status").value("ok")
+                        .name("lots").value(registry.size())
+                        .name("vehicles").value(registry.getTotalVehicleCount())
+                        .endObject();
+            }
+        });
+    }
+
+    // Prometheus text format
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            byte[] body = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        });
+    }
+
+    private void handleDealerships(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            try (Writer w = open(exchange, 200)) {
+                Json.Out json = new Json.Out(w).beginArray();
+                for (Dealership d : registry.getDealerships()) {
+                    json.beginObject()
+                            .name("id").value(d.getId())
+                            .name("name").value(d.getName())
+                            .name("address").value(d.getAddress())
+                            .name("phone").value(d.getPhone())
+                            .name("vehicles").value(d.getVehicleCount())
+                            .endObject();
+                }
+                json.endArray();
+            }
+        });
+    }
+
+    private void handleVehicles(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            Map<String, String> params = queryParams(exchange);
+            Dealership lot = lot(params.get("lot"));
+            String rest = subPath(exchange, "/vehicles");
+            String method = exchange.getRequestMethod();
+
+            if (rest.isEmpty()) {
+                switch (method) {
+                    case "GET" -> search(exchange, lot, params);
+                    case "POST" -> addVehicle(exchange, lot);
+                    default -> throw new RequestException(405, "Use GET or POST on /vehicles");
+                }
+                return;
+            }
+
+            int vin = parseInt(rest, "VIN");
+            switch (method) {
+                case "GET" -> {
+                    Vehicle v = lot.getVehicleByVin(vin);
+                    if (v == null) throw new RequestException(404, "No vehicle with VIN " + vin);
+                    try (Writer w = open(exchange, 200)) {
+                        new Json.Out(w).vehicle(v);
+                    }
+                }
+                case "DELETE" -> {
+                    if (!lot.removeVehicleByVin(vin)) {
+                        throw new RequestException(404, "No vehicle with VIN " + vin);
+                    }
+                    save(lot);
+                    try (Writer w = open(exchange, 200)) {
+                        new Json.Out(w).beginObject().name("removed").value(vin).endObject();
+                    }
+                }
+                default -> throw new RequestException(405, "Use GET or DELETE on /vehicles/{vin}");
+            }
+        });
+    }
+
+    private void search(HttpExchange exchange, Dealership lot, Map<String, String> params) throws IOException {
+        VehicleQuery query = new VehicleQuery();
+        if (params.containsKey("vin")) query.vin(parseInt(params.get("vin"), "vin"));
+        if (params.containsKey("minPrice") || params.containsKey("maxPrice")) {
+            query.priceBetween(parseDouble(params.getOrDefault("minPrice", "-Infinity"), "minPrice"),
+                    parseDouble(params.getOrDefault("maxPrice", "Infinity"), "maxPrice"));
+        }
+        if (params.containsKey("minYear") || params.containsKey("maxYear")) {
+            query.yearBetween(
+                    params.containsKey("minYear") ? parseInt(params.get("minYear"), "minYear") : Integer.MIN_VALUE,
+                    params.containsKey("maxYear") ? parseInt(params.get("maxYear"), "maxYear") : Integer.MAX_VALUE);
+        }
+        if (params.containsKey("minMileage") || params.containsKey("maxMileage")) {
+            query.mileageBetween(
+                    params.containsKey("minMileage") ? parseLong(params.get("minMileage"), "minMileage") : Long.MIN_VALUE,
+                    params.containsKey("maxMileage") ? parseLong(params.get("maxMileage"), "maxMileage") : Long.MAX_VALUE);
+        }
+        query.makeContains(params.get("make"))
+                .modelContains(params.get("model"))
+                .colorContains(params.get("color"))
+                .typeContains(params.get("type"));
+        if (params.containsKey("sort")) {
+            try {
+                query.sortBy(VehicleQuery.SortField.valueOf(params.get("sort").toUpperCase(Locale.ROOT)),
+                        Boolean.parseBoolean(params.get("desc")));
+            } catch (IllegalArgumentException e) {
+                throw new RequestException(400, "Unknown sort field: " + params.get("sort"));
+            }
+        }
+        try {
+            if (params.containsKey("offset")) query.offset(parseInt(params.get("offset"), "offset"));
+            if (params.containsKey("limit")) query.limit(parseInt(params.get("limit"), "limit"));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, e.getMessage());
+        }
+
+        List<Vehicle> results = lot.query(query);
+        try (Writer w = open(exchange, 200)) {
+            Json.Out json = new Json.Out(w).beginObject()
+                    .name("lot").value(lot.getId())
+                    .name("count").value(results.size())
+                    .name("vehicles").beginArray();
+            for (Vehicle v : results) {
+                json.vehicle(v);
+            }
+            json.endArray().endObject();
+        }
+    }
+
+    private void addVehicle(HttpExchange exchange, Dealership lot) throws IOException {
+        Map<String, Object> body = readBody(exchange);
+        Vehicle v = new Vehicle(
+                intField(body, "vin"),
+                intField(body, "year"),
+                stringField(body, "make"),
+                stringField(body, "model"),
+                stringField(body, "type").toLowerCase(Locale.ROOT),
+                stringField(body, "color"),
+                longField(body, "odometer"),
+                numberField(body, "price"));
+        if (!lot.addVehicle(v)) {
+            throw new RequestException(409, "A vehicle with VIN " + v.getVin() + " already exists");
+        }
+        save(lot);
+        try (Writer w = open(exchange, 201)) {
+            new Json.Out(w).vehicle(v);
+        }
+    }
+
+    // Everything affordable at a monthly budget, cheapest first
+    private void handleQuotes(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            Map<String, String> params = queryParams(exchange);
+            Dealership lot = lot(params.get("lot"));
+            double maxMonthly = parseDouble(params.getOrDefault("maxMonthly", "Infinity"), "maxMonthly");
+            FinanceQuoteEngine.Plan plan;
+            try {
+                plan = FinanceQuoteEngine.Plan.valueOf(params.getOrDefault("plan", "either").toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RequestException(400, "Unknown plan: " + params.get("plan"));
+            }
+            int limit = params.containsKey("limit") ? parseInt(params.get("limit"), "limit") : Integer.MAX_VALUE;
+
+            List<FinanceQuoteEngine.Quote> quotes = new FinanceQuoteEngine(lot.getAllVehicles()).affordable(maxMonthly, plan);
+            try (Writer w = open(exchange, 200)) {
+                Json.Out json = new Json.Out(w).beginObject()
+                        .name("lot").value(lot.getId())
+                        .name("count").value(quotes.size())
+                        .name("quotes").beginArray();
+                for (FinanceQuoteEngine.Quote q : quotes.subList(0, Math.min(Math.max(limit, 0), quotes.size()))) {
+                    json.beginObject()
+                            .name("vehicle").vehicle(q.vehicle())
+                            .name("saleTotal").value(q.saleTotal())
+                            .name("financeMonthly").value(q.financeMonthly())
+                            .name("leaseMonthly").value(q.leaseMonthly())
+                            .endObject();
+                }
+                json.endArray().endObject();
+            }
+        });
+    }
+
+    private void handleContracts(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "POST");
+            if (contracts == null) throw new RequestException(503, "Contracts are not being stored");
+
+            Map<String, Object> body = readBody(exchange);
+            Object lotId = body.get("lot");
+            Dealership lot = lot(lotId == null ? null : String.valueOf(intField(body, "lot")));
+            int vin = intField(body, "vin");
+            Vehicle vehicle = lot.getVehicleByVin(vin);
+            if (vehicle == null) throw new RequestException(404, "No vehicle with VIN " + vin);
+
+            Object date = body.get("date");
+            String when = date == null ? LocalDate.now().toString() : String.valueOf(date);
+            String name = stringField(body, "customerName");
+            String email = stringField(body, "customerEmail");
+
+            String type = stringField(body, "type").toLowerCase(Locale.ROOT);
+            Contract contract = switch (type) {
+                case "sale" -> new SalesContract(when, name, email, vehicle, Boolean.TRUE.equals(body.get("finance")));
+                case "lease" -> new LeaseContract(when, name, email, vehicle);
+                default -> throw new RequestException(400, "Contract type must be \"sale\" or \"lease\"");
+            };
+
+            // Contract and sold flag in one statement; a concurrent sale of the same vehicle gets 409
+            try {
+                if (contracts.sell(lot, contract) == ContractFileManager.SaleResult.UNAVAILABLE) {
+                    throw new RequestException(409, "Vehicle " + vin + " has already been sold");
+                }
+            } catch (SQLException e) {
+                throw new RequestException(500, "Could not save contract: " + e.getMessage());
+            }
+
+            try (Writer w = open(exchange, 201)) {
+                new Json.Out(w).beginObject()
+                        .name("type").value(type)
+                        .name("vin").value(vin)
+                        .name("customerName").value(name)
+                        .name("date").value(when)
+                        .name("totalPrice").value(contract.getTotalPrice())
+                        .name("monthlyPayment").value(contract.getMonthlyPayment())
+                        .endObject();
+            }
+        });
+    }
+
+    private void handleReports(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            if (reports == null) throw new RequestException(503, "Contracts are not being stored");
+            Map<String, String> params = queryParams(exchange);
+            ContractReports.Period period = period(params);
+            try {
+                switch (subPath(exchange, "/reports")) {
+                    case "summary" -> {
+                        ContractReports.Summary summary = reports.summary(period);
+                        try (Writer w = open(exchange, 200)) {
+                            new Json.Out(w).beginObject()
+                                    .name("from").value(period.from().toString())
+                                    .name("to").value(period.to().toString())
+                                    .name("contracts").value(summary.contracts())
+                                    .name("cashSales").value(summary.cashSales())
+                                    .name("financedSales").value(summary.financedSales())
+                                    .name("leases").value(summary.leases())
+                                    .name("unpriced").value(summary.unpriced())
+                                    .name("financeRatio").value(summary.financeRatio())
+                                    .name("salesRevenue").value(summary.salesRevenue())
+                                    .name("leaseRevenue").value(summary.leaseRevenue())
+                                    .name("revenue").value(summary.revenue())
+                                    .endObject();
+                        }
+                    }
+                    case "top" -> {
+                        int limit = params.containsKey("limit") ? parseInt(params.get("limit"), "limit") : 10;
+                        List<ContractReports.MakeModelSales> top = reports.topMakeModels(period, Math.max(limit, 0));
+                        try (Writer w = open(exchange, 200)) {
+                            Json.Out json = new Json.Out(w).beginArray();
+                            for (ContractReports.MakeModelSales m : top) {
+                                json.beginObject()
+                                        .name("make").value(m.make())
+                                        .name("model").value(m.model())
+                                        .name("sales").value(m.sales())
+                                        .name("leases").value(m.leases())
+                                        .name("vehicleValue").value(m.vehicleValue())
+                                        .endObject();
+                            }
+                            json.endArray();
+                        }
+                    }
+                    case "contracts" -> {
+                        exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+                        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                                new ResponseStream(exchange, 200), StandardCharsets.UTF_8), RESPONSE_BUFFER_CHARS)) {
+                            reports.exportContracts(period, w);
+                        }
+                    }
+                    default -> throw new RequestException(404, "Reports are summary, top and contracts");
+                }
+            } catch (SQLException e) {
+                throw new RequestException(500, "Report failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // month=YYYY-MM, or from=/to= dates (to exclusive); this month by default
+    private static ContractReports.Period period(Map<String, String> params) {
+        try {
+            if (params.containsKey("month")) {
+                return ContractReports.Period.month(YearMonth.parse(params.get("month").trim()));
+            }
+            if (params.containsKey("from") || params.containsKey("to")) {
+                if (!params.containsKey("from") || !params.containsKey("to")) {
+                    throw new RequestException(400, "Give both from and to");
+                }
+                return new ContractReports.Period(LocalDate.parse(params.get("from").trim()),
+                        LocalDate.parse(params.get("to").trim()));
+            }
+            return ContractReports.Period.thisMonth();
+        } catch (DateTimeParseException e) {
+            throw new RequestException(400, "Dates are YYYY-MM-DD and months YYYY-MM");
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, e.getMessage());
+        }
+    }
+
+    // --- Plumbing ---
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    // Runs a handler, turning RequestException into a JSON error response
+    private void handle(HttpExchange exchange, Action action) throws IOException {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (RequestException e) {
+            if (e.status >= 500) ERRORS.increment();
+            sendError(exchange, e.status, e.getMessage());
+        } catch (RuntimeException e) {
+            ERRORS.increment();
+            System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.recordSince(start);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return; // Failed mid-body; the client sees a truncated response
+        }
+        try (Writer w = open(exchange, status)) {
+            new Json.Out(w).beginObject().name("error").value(message).endObject();
+        }
+    }
+
+    private static Writer open(HttpExchange exchange, int status) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        return new BufferedWriter(new OutputStreamWriter(new ResponseStream(exchange, status), StandardCharsets.UTF_8),
+                RESPONSE_BUFFER_CHARS);
+    }
+
+    // The change stays in memory and pending, so the next save retries it; the client still hears it failed
+    private void save(Dealership lot) {
+        if (fileManager != null && !fileManager.saveDealership(lot)) {
+            throw new RequestException(503, "Change not saved to the database; it will be retried with the next save");
+        }
+    }
+
+    private Dealership lot(String id) {
+        if (id == null || id.isBlank()) {
+            if (registry.isEmpty()) throw new RequestException(503, "No dealerships loaded");
+            return registry.getDealerships().iterator().next();
+        }
+        Dealership lot = registry.get(parseInt(id, "lot"));
+        if (lot == null) throw new RequestException(404, "No dealership with id " + id);
+        return lot;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new RequestException(405, "Use " + method);
+        }
+    }
+
+    private static String subPath(HttpExchange exchange, String context) {
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.length() > context.length() ? path.substring(context.length()) : "";
+        while (rest.startsWith("/")) rest = rest.substring(1);
+        while (rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+        return rest;
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return Json.parseObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Bad JSON: " + e.getMessage());
+        }
+    }
+
+    // --- Field parsing ---
+
+    private static int parseInt(String text, String name) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, name + " must be a whole number");
+        }
+    }
+
+    private static long parseLong(String text, String name) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, name + " must be a whole number");
+        }
+    }
+
+    private static double parseDouble(String text, String name) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, name + " must be a number");
+        }
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String s) || s.isBlank()) {
+            throw new RequestException(400, "\"" + name + "\" is required");
+        }
+        return s.trim();
+    }
+
+    private static double numberField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Double d)) {
+            throw new RequestException(400, "\"" + name + "\" must be a number");
+        }
+        return d;
+    }
+
+    private static long longField(Map<String, Object> body, String name) {
+        double value = numberField(body, name);
+        // Doubles are exact up to 2^53, which is plenty for odometers
+        if (value != Math.rint(value) || Math.abs(value) > 9_007_199_254_740_992.0) {
+            throw new RequestException(400, "\"" + name + "\" must be a whole number");
+        }
+        return (long) value;
+    }
+
+    private static int intField(Map<String, Object> body, String name) {
+        double value = numberField(body, name);
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new RequestException(400, "\"" + name + "\" must be a whole number");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Holds the body until it outgrows STREAM_THRESHOLD bytes. Small bodies go
+     * out with a Content-Length in one write; a header-then-chunks response
+     * would otherwise stall each small reply on delayed ACKs. Bigger bodies
+     * switch to chunked encoding and stream from then on.
+     */
+    private static final class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private byte[] buffer = new byte[4096];
+        private int count;
+        private OutputStream body; // set once streaming has started
+
+        ResponseStream(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (body == null && count + len > STREAM_THRESHOLD) {
+                exchange.sendResponseHeaders(status, 0);
+                body = exchange.getResponseBody();
+                body.write(buffer, 0, count);
+            }
+            if (body != null) {
+                body.write(b, off, len);
+                return;
+            }
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(count + len, buffer.length << 1));
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+                body = exchange.getResponseBody();
+                body.write(buffer, 0, count);
+            }
+            body.close();
+        }
+    }
+
+    /** A client error, sent back as {"error": message} with the given status. */
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Prices a whole inventory for both ways of paying at once.
+ *
+ * Prices are copied into a primitive array once, then one loop fills the
+ * sale total, the finance payment and the lease payment for every vehicle.
+ * The loop uses the same rules as SalesContract and LeaseContract, with their
+ * amortization factors computed once per term and rate, so every number is
+ * bit-for-bit what the contract objects would return, without building them.
+ * Filtering and sorting work on the arrays too; Quote objects are only made
+ * for the vehicles that are returned.
+ */
+public final class FinanceQuoteEngine {
+
+    public enum Plan { FINANCE, LEASE, EITHER }
+
+    /**
+     * What one vehicle costs: the sale total (financed or not) and the monthly
+     * payment to finance or to lease it.
+     */
+    public record Quote(Vehicle vehicle, double saleTotal, double financeMonthly, double leaseMonthly) {
+
+        public double monthlyPayment(Plan plan) {
+            return switch (plan) {
+                case FINANCE -> financeMonthly;
+                case LEASE -> leaseMonthly;
+                case EITHER -> Math.min(financeMonthly, leaseMonthly);
+            };
+        }
+
+        /**
+         * Appends the vehicle's listing row and the quote (no line break) to a
+         * reusable builder; the same text as toString without the Formatter.
+         */
+        public void appendRow(StringBuilder sb) {
+            vehicle.appendRow(sb);
+            sb.append("  total $");
+            Vehicle.appendAmount(sb, saleTotal, 10);
+            sb.append("  finance $");
+            Vehicle.appendAmount(sb, financeMonthly, 8);
+            sb.append("/mo  lease $");
+            Vehicle.appendAmount(sb, leaseMonthly, 8);
+            sb.append("/mo");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  total $%,10.2f  finance $%,8.2f/mo  lease $%,8.2f/mo",
+                    vehicle, saleTotal, financeMonthly, leaseMonthly);
+        }
+    }
+
+    private final Vehicle[] vehicles;
+    private final double[] saleTotals;
+    private final double[] financeMonthly;
+    private final double[] leaseMonthly;
+
+    /**
+     * Prices every vehicle still for sale now; sold ones are left out. The
+     * engine is a fixed view of that inventory.
+     */
+    public FinanceQuoteEngine(List<Vehicle> inventory) {
+        List<Vehicle> forSale = new ArrayList<>(inventory.size());
+        for (Vehicle v : inventory) {
+            if (!v.isSold()) forSale.add(v);
+        }
+        int n = forSale.size();
+        this.vehicles = forSale.toArray(new Vehicle[0]);
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = vehicles[i].getPrice();
+        }
+        this.saleTotals = new double[n];
+        this.financeMonthly = new double[n];
+        this.leaseMonthly = new double[n];
+        price(prices, saleTotals, financeMonthly, leaseMonthly);
+    }
+
+    /**
+     * The batch kernel: fills the three output arrays for every price.
+     * Each output must be at least as long as {@code prices}.
+     */
+    public static void price(double[] prices, double[] saleTotals, double[] financeMonthly, double[] leaseMonthly) {
+        for (int i = 0; i < prices.length; i++) {
+            double price = prices[i];
+            double total = SalesContract.totalPrice(price, SalesContract.processingFee(price));
+            saleTotals[i] = total;
+            financeMonthly[i] = total * SalesContract.financeFactor(price);
+            leaseMonthly[i] = LeaseContract.monthlyPayment(price);
+        }
+    }
+
+    public int size() {
+        return vehicles.length;
+    }
+
+    public Quote quote(int index) {
+        return new Quote(vehicles[index], saleTotals[index], financeMonthly[index], leaseMonthly[index]);
+    }
+
+    public double monthlyPayment(int index, Plan plan) {
+        return switch (plan) {
+            case FINANCE -> financeMonthly[index];
+            case LEASE -> leaseMonthly[index];
+            case EITHER -> Math.min(financeMonthly[index], leaseMonthly[index]);
+        };
+    }
+
+    /**
+     * Every vehicle whose monthly payment under {@code plan} is at most
+     * {@code maxMonthly}, cheapest first; equal payments keep inventory order.
+     */
+    public List<Quote> affordable(double maxMonthly, Plan plan) {
+        // (payment as float, index) packed into one long, so the sort is a primitive one
+        long[] keys = new long[vehicles.length];
+        int matches = 0;
+        for (int i = 0; i < vehicles.length; i++) {
+            double payment = monthlyPayment(i, plan);
+            if (payment <= maxMonthly) {
+                keys[matches++] = (long) sortableBits((float) payment) << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, matches);
+
+        Integer[] order = new Integer[0];
+        List<Quote> quotes = new ArrayList<>(matches);
+        for (int start = 0; start < matches; ) {
+            int end = start + 1;
+            while (end < matches && keys[end] >> 32 == keys[start] >> 32) end++;
+            if (end - start == 1) {
+                quotes.add(quote((int) keys[start]));
+            } else {
+                // Payments that round to the same float: order those few exactly
+                if (order.length < end - start) order = new Integer[end - start];
+                for (int k = start; k < end; k++) order[k - start] = (int) keys[k];
+                Arrays.sort(order, 0, end - start, Comparator.comparingDouble((Integer i) -> monthlyPayment(i, plan))
+                        .thenComparingInt(i -> i));
+                for (int k = 0; k < end - start; k++) quotes.add(quote(order[k]));
+            }
+            start = end;
+        }
+        return quotes;
+    }
+
+    // Float bits reordered so that signed int comparison matches float comparison
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+}
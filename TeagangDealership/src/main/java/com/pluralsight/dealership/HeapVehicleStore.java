@@ -0,0 +1,61 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The original layout: the Vehicle objects themselves, in an ArrayList.
+ */
+final class HeapVehicleStore implements VehicleStore {
+
+    private final ArrayList<Vehicle> vehicles;
+
+    HeapVehicleStore() {
+        this.vehicles = new ArrayList<>();
+    }
+
+    private HeapVehicleStore(HeapVehicleStore other) {
+        this.vehicles = new ArrayList<>(other.vehicles);
+    }
+
+    @Override
+    public int size() {
+        return vehicles.size();
+    }
+
+    @Override
+    public Vehicle get(int position) {
+        return vehicles.get(position);
+    }
+
+    @Override
+    public void add(Vehicle vehicle) {
+        vehicles.add(vehicle);
+    }
+
+    @Override
+    public void set(int position, Vehicle vehicle) {
+        vehicles.set(position, vehicle);
+    }
+
+    @Override
+    public Vehicle removeLast() {
+        return vehicles.remove(vehicles.size() - 1);
+    }
+
+    @Override
+    public void clear() {
+        vehicles.clear();
+    }
+
+    @Override
+    public VehicleStore copy() {
+        return new HeapVehicleStore(this);
+    }
+
+    @Override
+    public List<Vehicle> asList() {
+        return Collections.unmodifiableList(vehicles);
+    }
+}
@@ -0,0 +1,350 @@
+package com.pluralsight.dealership;
+
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps loaded lots in step with what other terminals save, one VIN at a time.
+ *
+ * A trigger (src/main/resources/db/vehicle_changes.sql, installed with
+ * {@link #install(Connection)}) appends every changed VIN to vehicle_changes
+ * and sends a NOTIFY. The feed holds one connection of its own, LISTENs on
+ * it and, on each notification (or every 30 s regardless), reads the
+ * changes past the last seq it applied together with the current row of
+ * each VIN. A VIN whose row is gone is removed, one that moved lots is moved,
+ * anything else is added or replaced. No pending changes are recorded, and
+ * VINs with unsaved local edits are left alone.
+ *
+ * Without LISTEN (another driver, or a local stand-in database) the feed
+ * simply polls every 2 s. Changes are either applied as they arrive, for a
+ * registry of ConcurrentDealerships, or queued for {@link #applyPending} on
+ * the thread that owns the lots.
+ */
+public class InventoryChangeFeed implements AutoCloseable {
+
+    public static final String CHANNEL = "vehicle_changes";
+    private static final String SCRIPT = "/db/vehicle_changes.sql";
+
+    private static final int LISTEN_TIMEOUT_MILLIS = 30_000;
+    private static final long POLL_MILLIS = 2_000;
+    private static final long RETRY_MILLIS = 5_000;
+    private static final int BATCH_ROWS = 1_000;
+
+    // A seq that commits after a higher one leaves a temporary gap; watch gaps this long and this wide
+    private static final long GAP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int MAX_GAP = 1_000;
+
+    private static final Metrics.Counter APPLIED =
+            Metrics.counter("inventory_changes_applied_total", "VIN changes from other terminals applied in memory");
+
+    // Steps back a minute so transactions still running during the load are replayed too
+    private static final String START_SQL = """
+        SELECT seq FROM vehicle_changes
+        WHERE changed_at < now() - interval '1 minute'
+        ORDER BY changed_at DESC
+        LIMIT 1
+        """;
+
+    private static final String CHANGES_SQL = """
+        SELECT c.seq, c.vin, v.dealership_id, v.year, v.make, v.model,
+               CASE WHEN v.sold THEN 'Sold' ELSE v.type END, v.color, v.odometer, v.price
+        FROM vehicle_changes c
+        LEFT JOIN vehicles v ON v.vin = c.vin
+        WHERE c.seq > ? OR c.seq = ANY (?)
+        ORDER BY c.seq
+        LIMIT ?
+        """;
+
+    /** Where the feed gets its connection; it keeps one open while running. */
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    /** The current state of one VIN; vehicle is null when the row is gone. */
+    record Change(int vin, int dealershipId, Vehicle vehicle) { }
+
+    private final ConnectionSource connections;
+    private final DealershipRegistry shared;
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+
+    // --- Feed thread only ---
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private long position;
+
+    private volatile boolean closed;
+    private volatile Connection active;
+    private Thread thread;
+
+    /**
+     * Queues changes for {@link #applyPending(DealershipRegistry)}.
+     *
+     * @param fromPosition from {@link #startPosition()}, taken before the lots were loaded
+     */
+    public InventoryChangeFeed(long fromPosition) {
+        this(fromPosition, null, DatabaseUtil::openDirectConnection);
+    }
+
+    /**
+     * Applies changes to {@code sharedRegistry} as they arrive.
+     *
+     * @param sharedRegistry every lot must be a ConcurrentDealership
+     */
+    public InventoryChangeFeed(long fromPosition, DealershipRegistry sharedRegistry) {
+        this(fromPosition, sharedRegistry, DatabaseUtil::openDirectConnection);
+    }
+
+    InventoryChangeFeed(long fromPosition, DealershipRegistry sharedRegistry, ConnectionSource connections) {
+        if (sharedRegistry != null) {
+            for (Dealership lot : sharedRegistry.getDealerships()) {
+                if (!(lot instanceof ConcurrentDealership)) {
+                    throw new IllegalArgumentException("Lot " + lot.getId() + " is not a ConcurrentDealership");
+                }
+            }
+        }
+        this.position = fromPosition;
+        this.shared = sharedRegistry;
+        this.connections = connections;
+    }
+
+    // ============ setup ============
+
+    /**
+     * Creates the vehicle_changes table and trigger. Safe to run again.
+     */
+    public static void install(Connection conn) throws SQLException, IOException {
+        String script;
+        try (InputStream in = InventoryChangeFeed.class.getResourceAsStream(SCRIPT)) {
+            if (in == null) throw new IOException(SCRIPT + " is not on the classpath");
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute(script);
+        }
+    }
+
+    /**
+     * Where a feed for lots about to be loaded should start. Call it before loading.
+     *
+     * @return the position, or -1 when the feed is not installed or the database is unreachable
+     */
+    public static long startPosition() {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            return startPosition(conn);
+        } catch (SQLException e) {
+            System.err.println("ℹ️ Live inventory updates are off: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    static long startPosition(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(START_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(this::run, "inventory-change-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread running;
+        synchronized (this) {
+            running = thread;
+        }
+        if (running == null) return;
+        running.interrupt();
+        // Wakes a thread blocked waiting for notifications
+        Connection conn = active;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // Closing anyway
+            }
+        }
+        try {
+            running.join(RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ============ applying ============
+
+    /**
+     * Applies every queued change to the lots. Call it from the thread that owns them.
+     *
+     * @return how many VINs were changed
+     */
+    public int applyPending(DealershipRegistry registry) {
+        List<Change> changes = new ArrayList<>();
+        for (Change c; (c = pending.poll()) != null; ) {
+            changes.add(c);
+        }
+        return changes.isEmpty() ? 0 : apply(registry, changes);
+    }
+
+    static int apply(DealershipRegistry registry, List<Change> changes) {
+        int applied = 0;
+        for (Dealership lot : registry.getDealerships()) {
+            List<Change> relevant = new ArrayList<>();
+            for (Change c : changes) {
+                if (belongsTo(c, lot) || lot.getVehicleByVin(c.vin()) != null) relevant.add(c);
+            }
+            if (relevant.isEmpty()) continue;
+
+            int[] count = new int[1];
+            if (lot instanceof ConcurrentDealership concurrent) {
+                // One copy of the lot for the whole batch
+                concurrent.batch(d -> count[0] = applyAll(d, relevant));
+            } else {
+                count[0] = applyAll(lot, relevant);
+            }
+            applied += count[0];
+        }
+        APPLIED.add(applied);
+        return applied;
+    }
+
+    private static int applyAll(Dealership lot, List<Change> changes) {
+        int applied = 0;
+        for (Change c : changes) {
+            boolean changed = belongsTo(c, lot)
+                    ? lot.applyRemoteUpsert(c.vehicle())
+                    : lot.applyRemoteRemove(c.vin()); // deleted, or moved to another lot
+            if (changed) applied++;
+        }
+        return applied;
+    }
+
+    private static boolean belongsTo(Change c, Dealership lot) {
+        return c.vehicle() != null && c.dealershipId() == lot.getId();
+    }
+
+    // ============ feed thread ============
+
+    private void run() {
+        while (!closed) {
+            try (Connection conn = connections.open()) {
+                active = conn;
+                PGConnection listener = listen(conn);
+                while (!closed) {
+                    poll(conn);
+                    if (listener != null) {
+                        listener.getNotifications(LISTEN_TIMEOUT_MILLIS);
+                    } else {
+                        Thread.sleep(POLL_MILLIS);
+                    }
+                }
+            } catch (SQLException e) {
+                if (closed) break;
+                System.err.println("⚠️ Inventory change feed: " + e.getMessage() + " (retrying)");
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException stop) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                active = null;
+            }
+        }
+    }
+
+    // Null when LISTEN is not available; polling alone still works then
+    private static PGConnection listen(Connection conn) {
+        try {
+            PGConnection pg = conn.unwrap(PGConnection.class);
+            try (Statement st = conn.createStatement()) {
+                st.execute("LISTEN " + CHANNEL);
+            }
+            return pg;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private void poll(Connection conn) throws SQLException {
+        long now = System.nanoTime();
+        gaps.values().removeIf(firstSeen -> now - firstSeen > GAP_TIMEOUT_NANOS);
+
+        int rows;
+        do {
+            // Latest state per VIN; a VIN changed twice in the batch is applied once
+            Map<Integer, Change> batch = new LinkedHashMap<>();
+            rows = 0;
+            try (PreparedStatement ps = conn.prepareStatement(CHANGES_SQL)) {
+                ps.setLong(1, position);
+                ps.setArray(2, conn.createArrayOf("bigint", gaps.keySet().toArray()));
+                ps.setInt(3, BATCH_ROWS);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        advance(rs.getLong(1), now);
+                        Change change = toChange(rs);
+                        if (change != null) batch.put(change.vin(), change);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<Change> changes = new ArrayList<>(batch.values());
+                if (shared != null) {
+                    apply(shared, changes);
+                } else {
+                    pending.addAll(changes);
+                }
+            }
+        } while (rows == BATCH_ROWS);
+    }
+
+    private void advance(long seq, long now) {
+        if (seq <= position) {
+            gaps.remove(seq); // a late commit filled its gap
+            return;
+        }
+        if (seq - position <= MAX_GAP) {
+            for (long missing = position + 1; missing < seq; missing++) {
+                gaps.putIfAbsent(missing, now);
+            }
+        }
+        position = seq;
+    }
+
+    private static Change toChange(ResultSet rs) throws SQLException {
+        String vinText = rs.getString(2);
+        int vin;
+        try {
+            vin = Integer.parseInt(vinText.trim());
+        } catch (NumberFormatException e) {
+            return null; // never loaded either
+        }
+        if (rs.getObject(3) == null) {
+            return new Change(vin, 0, null);
+        }
+        Vehicle v = new Vehicle(vin, rs.getInt(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                rs.getString(8), rs.getLong(9), rs.getDouble(10));
+        return new Change(vin, rs.getInt(3), v);
+    }
+}
@@ -0,0 +1,423 @@
+package com.pluralsight.dealership;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Local binary copy of every lot, so the menu can come up without waiting
+ * for the database.
+ *
+ * The file is columnar: all strings (lot details, make, model, type, color)
+ * go into one dictionary and the vehicles are stored as parallel arrays of
+ * ints, longs, doubles and dictionary references, each column 8-byte
+ * aligned. Reading maps the file and bulk-copies each column, so a load is a
+ * few array copies plus one Vehicle per row.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   header   magic, version, body length, CRC32C of the body, fingerprint
+ *   body     dictionary: count, then (byte length, UTF-8 bytes) per string
+ *            lots: count, then (id, name, address, phone refs, vehicle count) per lot
+ *            columns over all vehicles, lot by lot:
+ *            vin, year, make, model, type, color (int), odometer (long), price (double)
+ * </pre>
+ * The fingerprint is the same row count and checksum that
+ * {@link #queryFingerprint(Connection)} computes in the database, so
+ * comparing the two says whether the snapshot is still current.
+ */
+final class InventorySnapshot {
+
+    private static final long MAGIC = 0x0050414E53524C44L; // "DLRSNAP\0" read as a little-endian long
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final int NULL_REF = -1;
+
+    /**
+     * Row count and checksum over the dealerships and vehicles tables. Rows
+     * are hashed one by one (first 32 bits of an MD5 of the '|'-joined
+     * columns) and the hashes summed, so Java and Postgres get the same number.
+     */
+    record Fingerprint(long rows, long checksum) { }
+
+    // concat_ws skips NULLs; rowHash below does the same. Types as loaded: sold rows read "Sold".
+    private static final String VEHICLE_HASH_SUM = """
+        COALESCE(SUM(('x' || substr(md5(concat_ws('|',
+            trim(vin), year, make, model, CASE WHEN sold THEN 'Sold' ELSE type END, color, odometer,
+            round(price * 100)::bigint, dealership_id)), 1, 8))::bit(32)::int), 0)""";
+
+    private static final String FINGERPRINT_SQL = """
+        SELECT
+          (SELECT count(*) FROM dealerships) + (SELECT count(*) FROM vehicles),
+          (SELECT COALESCE(SUM(('x' || substr(md5(concat_ws('|',
+                  dealership_id, name, address, phone)), 1, 8))::bit(32)::int), 0)
+             FROM dealerships)
+        + (SELECT %s FROM vehicles)
+        """.formatted(VEHICLE_HASH_SUM);
+
+    private static final String LOT_FINGERPRINT_SQL =
+            "SELECT count(*), " + VEHICLE_HASH_SUM + "\nFROM vehicles WHERE dealership_id = ?";
+
+    private final Fingerprint fingerprint;
+    private final DealershipRegistry registry;
+
+    private InventorySnapshot(Fingerprint fingerprint, DealershipRegistry registry) {
+        this.fingerprint = fingerprint;
+        this.registry = registry;
+    }
+
+    Fingerprint getFingerprint() { return fingerprint; }
+    DealershipRegistry getRegistry() { return registry; }
+
+    static Fingerprint queryFingerprint(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(FINGERPRINT_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new Fingerprint(rs.getLong(1), rs.getLong(2));
+        }
+    }
+
+    /**
+     * Like {@link #queryFingerprint(Connection)}, over one lot's vehicles only.
+     */
+    static Fingerprint queryLotFingerprint(Connection conn, int dealershipId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(LOT_FINGERPRINT_SQL)) {
+            ps.setInt(1, dealershipId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Fingerprint(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    /**
+     * The fingerprint {@link #queryLotFingerprint} would report if the lot's
+     * rows were exactly these vehicles.
+     */
+    static Fingerprint lotFingerprint(int dealershipId, Collection<Vehicle> vehicles) {
+        MessageDigest md5 = md5();
+        StringBuilder row = new StringBuilder(128);
+        long checksum = 0;
+        for (Vehicle v : vehicles) {
+            checksum += vehicleHash(md5, row, v, dealershipId);
+        }
+        return new Fingerprint(vehicles.size(), checksum);
+    }
+
+    /**
+     * The fingerprint the database would report if it held exactly these lots.
+     */
+    static Fingerprint fingerprint(Collection<Dealership> lots) {
+        return fingerprint(lots, views(lots));
+    }
+
+    /**
+     * Each lot's vehicles, read once. A ConcurrentDealership answers with its
+     * current snapshot, so counts and rows taken from the same view always
+     * agree even while other threads write.
+     */
+    private static List<List<Vehicle>> views(Collection<Dealership> lots) {
+        List<List<Vehicle>> views = new ArrayList<>(lots.size());
+        for (Dealership lot : lots) {
+            views.add(lot.inventoryView());
+        }
+        return views;
+    }
+
+    private static Fingerprint fingerprint(Collection<Dealership> lots, List<List<Vehicle>> views) {
+        MessageDigest md5 = md5();
+        StringBuilder row = new StringBuilder(128);
+        long rows = 0;
+        long checksum = 0;
+        int index = 0;
+        for (Dealership lot : lots) {
+            row.setLength(0);
+            join(row, lot.getId());
+            join(row, lot.getName());
+            join(row, lot.getAddress());
+            join(row, lot.getPhone());
+            checksum += rowHash(md5, row);
+            rows++;
+
+            for (Vehicle v : views.get(index++)) {
+                checksum += vehicleHash(md5, row, v, lot.getId());
+                rows++;
+            }
+        }
+        return new Fingerprint(rows, checksum);
+    }
+
+    private static int vehicleHash(MessageDigest md5, StringBuilder row, Vehicle v, int dealershipId) {
+        row.setLength(0);
+        join(row, v.getVin());
+        join(row, v.getYear());
+        join(row, v.getMake());
+        join(row, v.getModel());
+        join(row, v.getType());
+        join(row, v.getColor());
+        join(row, v.getOdometer());
+        join(row, Math.round(v.getPrice() * 100));
+        join(row, dealershipId);
+        return rowHash(md5, row);
+    }
+
+    private static void join(StringBuilder row, Object value) {
+        if (value == null) return;
+        if (!row.isEmpty()) row.append('|');
+        row.append(value);
+    }
+
+    private static int rowHash(MessageDigest md5, CharSequence row) {
+        byte[] digest = md5.digest(row.toString().getBytes(StandardCharsets.UTF_8));
+        return (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is always available", e);
+        }
+    }
+
+    // ============ writing ============
+
+    /**
+     * Writes the lots to a temporary file next to {@code path} and moves it
+     * into place, so a crash never leaves a half-written snapshot behind.
+     *
+     * @return the fingerprint stored in the file
+     */
+    static Fingerprint write(Path path, Collection<Dealership> lots) throws IOException {
+        List<List<Vehicle>> views = views(lots);
+        Fingerprint fingerprint = fingerprint(lots, views);
+
+        Map<String, Integer> refs = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+        int vehicles = 0;
+        for (Dealership lot : lots) {
+            ref(refs, dictionary, lot.getName());
+            ref(refs, dictionary, lot.getAddress());
+            ref(refs, dictionary, lot.getPhone());
+        }
+        for (List<Vehicle> view : views) {
+            for (Vehicle v : view) {
+                ref(refs, dictionary, v.getMake());
+                ref(refs, dictionary, v.getModel());
+                ref(refs, dictionary, v.getType());
+                ref(refs, dictionary, v.getColor());
+                vehicles++;
+            }
+        }
+
+        long dictionaryBytes = 4;
+        for (byte[] s : dictionary) dictionaryBytes += 4 + s.length;
+        long lotBytes = 4 + 20L * lots.size();
+        long bodyBytes = align(dictionaryBytes + lotBytes) + align(6L * 4 * vehicles) + 16L * vehicles;
+        if (HEADER_BYTES + bodyBytes > Integer.MAX_VALUE) {
+            throw new IOException("Inventory too large for a snapshot");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) (HEADER_BYTES + bodyBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        out.position(HEADER_BYTES);
+
+        out.putInt(dictionary.size());
+        for (byte[] s : dictionary) {
+            out.putInt(s.length).put(s);
+        }
+        out.putInt(lots.size());
+        int index = 0;
+        for (Dealership lot : lots) {
+            out.putInt(lot.getId())
+               .putInt(ref(refs, dictionary, lot.getName()))
+               .putInt(ref(refs, dictionary, lot.getAddress()))
+               .putInt(ref(refs, dictionary, lot.getPhone()))
+               .putInt(views.get(index++).size());
+        }
+        pad(out);
+
+        // One pass per column keeps each column contiguous
+        for (int column = 0; column < 6; column++) {
+            for (List<Vehicle> view : views) {
+                for (Vehicle v : view) {
+                    out.putInt(switch (column) {
+                        case 0 -> v.getVin();
+                        case 1 -> v.getYear();
+                        case 2 -> ref(refs, dictionary, v.getMake());
+                        case 3 -> ref(refs, dictionary, v.getModel());
+                        case 4 -> ref(refs, dictionary, v.getType());
+                        default -> ref(refs, dictionary, v.getColor());
+                    });
+                }
+            }
+        }
+        pad(out);
+        for (List<Vehicle> view : views) {
+            for (Vehicle v : view) out.putLong(v.getOdometer());
+        }
+        for (List<Vehicle> view : views) {
+            for (Vehicle v : view) out.putDouble(v.getPrice());
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), HEADER_BYTES, (int) bodyBytes);
+        out.putLong(0, MAGIC)
+           .putInt(8, VERSION)
+           .putLong(16, bodyBytes)
+           .putLong(24, crc.getValue())
+           .putLong(32, fingerprint.rows())
+           .putLong(40, fingerprint.checksum());
+        out.clear();
+
+        Path dir = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) channel.write(out);
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return fingerprint;
+    }
+
+    private static int ref(Map<String, Integer> refs, List<byte[]> dictionary, String value) {
+        if (value == null) return NULL_REF;
+        Integer ref = refs.get(value);
+        if (ref == null) {
+            ref = dictionary.size();
+            refs.put(value, ref);
+            dictionary.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return ref;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void pad(ByteBuffer out) {
+        while ((out.position() & 7) != 0) out.put((byte) 0);
+    }
+
+    // ============ reading ============
+
+    /**
+     * Maps and decodes a snapshot. Vehicles are loaded as saved, with no
+     * pending changes.
+     *
+     * @throws IOException when the file is missing, from another version, or damaged
+     */
+    static InventorySnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getLong(0) != MAGIC) throw new IOException("Not a snapshot file");
+            if (in.getInt(8) != VERSION) throw new IOException("Snapshot version " + in.getInt(8) + " is not supported");
+            long bodyBytes = in.getLong(16);
+            if (bodyBytes != size - HEADER_BYTES) throw new IOException("Snapshot is truncated");
+
+            CRC32C crc = new CRC32C();
+            crc.update(in.slice(HEADER_BYTES, (int) bodyBytes));
+            if (crc.getValue() != in.getLong(24)) throw new IOException("Snapshot checksum mismatch");
+            Fingerprint fingerprint = new Fingerprint(in.getLong(32), in.getLong(40));
+
+            try {
+                return new InventorySnapshot(fingerprint, decode(in.position(HEADER_BYTES)));
+            } catch (RuntimeException e) {
+                // A valid CRC over nonsense means a writer bug; treat it like any other bad file
+                throw new IOException("Snapshot is malformed: " + e, e);
+            }
+        }
+    }
+
+    private static DealershipRegistry decode(ByteBuffer in) {
+        String[] dictionary = new String[in.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = in.getInt();
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            in.get(scratch, 0, length);
+            dictionary[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int lotCount = in.getInt();
+        Dealership[] lots = new Dealership[lotCount];
+        int[] counts = new int[lotCount];
+        int vehicles = 0;
+        for (int i = 0; i < lotCount; i++) {
+            lots[i] = new Dealership(in.getInt(), lookup(dictionary, in.getInt()),
+                    lookup(dictionary, in.getInt()), lookup(dictionary, in.getInt()));
+            counts[i] = in.getInt();
+            vehicles += counts[i];
+        }
+        skipPadding(in);
+
+        int[] vin = ints(in, vehicles);
+        int[] year = ints(in, vehicles);
+        int[] make = ints(in, vehicles);
+        int[] model = ints(in, vehicles);
+        int[] type = ints(in, vehicles);
+        int[] color = ints(in, vehicles);
+        skipPadding(in);
+        long[] odometer = new long[vehicles];
+        in.asLongBuffer().get(odometer);
+        in.position(in.position() + 8 * vehicles);
+        double[] price = new double[vehicles];
+        in.asDoubleBuffer().get(price);
+
+        DealershipRegistry registry = new DealershipRegistry();
+        int row = 0;
+        for (int i = 0; i < lotCount; i++) {
+            for (int end = row + counts[i]; row < end; row++) {
+                lots[i].loadVehicle(new Vehicle(vin[row], year[row],
+                        lookup(dictionary, make[row]), lookup(dictionary, model[row]),
+                        lookup(dictionary, type[row]), lookup(dictionary, color[row]),
+                        odometer[row], price[row]));
+            }
+            registry.add(lots[i]);
+        }
+        return registry;
+    }
+
+    private static int[] ints(ByteBuffer in, int count) {
+        int[] column = new int[count];
+        in.asIntBuffer().get(column);
+        in.position(in.position() + 4 * count);
+        return column;
+    }
+
+    private static void skipPadding(ByteBuffer in) {
+        in.position((int) align(in.position()));
+    }
+
+    private static String lookup(String[] dictionary, int ref) {
+        return ref == NULL_REF ? null : dictionary[ref];
+    }
+}
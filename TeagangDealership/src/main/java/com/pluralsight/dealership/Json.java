@@ -0,0 +1,245 @@
+package com.pluralsight.dealership;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The little JSON the server needs: a streaming writer, so large result sets
+ * go out vehicle by vehicle instead of as one big String, and a reader for
+ * flat request objects ({"vin": 1, "make": "Honda", ...}).
+ */
+final class Json {
+
+    private Json() { }
+
+    // --- Writing ---
+
+    /**
+     * Streams JSON tokens to a Writer, inserting the commas itself.
+     * Not thread-safe; one per response.
+     */
+    static final class Out {
+        private final Writer out;
+        // Per nesting level: has this object/array had an element yet?
+        private boolean[] started = new boolean[8];
+        private int depth;
+        private boolean afterName;
+
+        Out(Writer out) {
+            this.out = out;
+        }
+
+        Out beginObject() throws IOException { return open('{'); }
+        Out endObject() throws IOException { return close('}'); }
+        Out beginArray() throws IOException { return open('['); }
+        Out endArray() throws IOException { return close(']'); }
+
+        Out name(String name) throws IOException {
+            separate();
+            string(name);
+            out.write(':');
+            afterName = true;
+            return this;
+        }
+
+        Out value(String value) throws IOException {
+            separate();
+            if (value == null) out.write("null");
+            else string(value);
+            return this;
+        }
+
+        Out value(long value) throws IOException {
+            separate();
+            out.write(Long.toString(value));
+            return this;
+        }
+
+        Out value(double value) throws IOException {
+            separate();
+            // JSON has no NaN or Infinity
+            out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+            return this;
+        }
+
+        Out value(boolean value) throws IOException {
+            separate();
+            out.write(value ? "true" : "false");
+            return this;
+        }
+
+        Out vehicle(Vehicle v) throws IOException {
+            return beginObject()
+                    .name("vin").value(v.getVin())
+                    .name("year").value(v.getYear())
+                    .name("make").value(v.getMake())
+                    .name("model").value(v.getModel())
+                    .name("type").value(v.getType())
+                    .name("color").value(v.getColor())
+                    .name("odometer").value(v.getOdometer())
+                    .name("price").value(v.getPrice())
+                    .endObject();
+        }
+
+        private Out open(char bracket) throws IOException {
+            separate();
+            out.write(bracket);
+            if (++depth == started.length) {
+                started = Arrays.copyOf(started, depth << 1);
+            }
+            started[depth] = false;
+            return this;
+        }
+
+        private Out close(char bracket) throws IOException {
+            out.write(bracket);
+            depth--;
+            return this;
+        }
+
+        private void separate() throws IOException {
+            if (afterName) {
+                afterName = false;
+                return;
+            }
+            if (depth > 0) {
+                if (started[depth]) out.write(',');
+                started[depth] = true;
+            }
+        }
+
+        private void string(String s) throws IOException {
+            out.write('"');
+            int run = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') continue;
+                out.write(s, run, i - run);
+                run = i + 1;
+                switch (c) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> out.write(String.format("\\u%04x", (int) c));
+                }
+            }
+            out.write(s, run, s.length() - run);
+            out.write('"');
+        }
+    }
+
+    // --- Reading ---
+
+    /**
+     * Parses one flat JSON object. Values come back as String, Double, Boolean or null.
+     *
+     * @throws IllegalArgumentException on malformed input or nested values
+     */
+    static Map<String, Object> parseObject(String text) {
+        Reader r = new Reader(text);
+        Map<String, Object> result = new LinkedHashMap<>();
+        r.expect('{');
+        if (!r.consume('}')) {
+            do {
+                String key = r.string();
+                r.expect(':');
+                result.put(key, r.scalar());
+            } while (r.consume(','));
+            r.expect('}');
+        }
+        r.skipSpace();
+        if (r.pos != text.length()) {
+            throw r.error("Unexpected trailing content");
+        }
+        return result;
+    }
+
+    private static final class Reader {
+        private final String text;
+        private int pos;
+
+        Reader(String text) {
+            this.text = text;
+        }
+
+        void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        boolean consume(char c) {
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw error("Expected '" + c + "'");
+        }
+
+        Object scalar() {
+            skipSpace();
+            if (pos >= text.length()) throw error("Unexpected end of input");
+            char c = text.charAt(pos);
+            if (c == '"') return string();
+            if (text.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if (text.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (text.startsWith("null", pos)) { pos += 4; return null; }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = pos;
+                while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+                try {
+                    return Double.parseDouble(text.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    throw error("Bad number");
+                }
+            }
+            throw error("Only strings, numbers, booleans and null are accepted");
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw error("Bad \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("Bad \\u escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Bad escape \\" + e);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
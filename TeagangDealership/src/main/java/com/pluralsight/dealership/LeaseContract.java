@@ -5,13 +5,15 @@ public class LeaseContract extends Contract {
     private static final double LEASE_FEE_RATE = 0.07;
     private static final double INTEREST_RATE = 0.04;
     private static final int LEASE_MONTHS = 36;
+    private static final double ENDING_VALUE_RATE = 0.5;
+    private static final double LEASE_FACTOR = amortizationFactor(INTEREST_RATE, LEASE_MONTHS);
 
     public LeaseContract(String date, String customerName, String customerEmail, Vehicle vehicleSold) {
         super(date, customerName, customerEmail, vehicleSold);
     }
 
     public double getExpectedEndingValue() {
-        return getVehicleSold().getPrice() * 0.5;
+        return getVehicleSold().getPrice() * ENDING_VALUE_RATE;
     }
 
     public double getLeaseFee() {
@@ -20,13 +22,21 @@ public class LeaseContract extends Contract {
 
     @Override
     public double getTotalPrice() {
-        return getLeaseFee() + getExpectedEndingValue();
+        return totalPrice(getVehicleSold().getPrice());
     }
 
     @Override
     public double getMonthlyPayment() {
-        double principal = getTotalPrice();
-        double monthlyRate = INTEREST_RATE / 12.0;
-        return principal * (monthlyRate / (1 - Math.pow(1 + monthlyRate, -LEASE_MONTHS)));
+        return monthlyPayment(getVehicleSold().getPrice());
+    }
+
+    // --- Pricing rules, shared with FinanceQuoteEngine ---
+
+    static double totalPrice(double price) {
+        return price * LEASE_FEE_RATE + price * ENDING_VALUE_RATE;
+    }
+
+    static double monthlyPayment(double price) {
+        return totalPrice(price) * LEASE_FACTOR;
     }
 }
@@ -0,0 +1,26 @@
+package com.pluralsight.dealership;
+
+/**
+ * A pipe record that could not be parsed, with where the problem is.
+ * Extends IllegalArgumentException so existing callers of Vehicle.fromPipe keep working.
+ */
+public class MalformedRecordException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int field;
+    private final int column;
+
+    /**
+     * @param field  1-based field number (1 = VIN ... 8 = Price)
+     * @param column 1-based character position of the field in the line
+     */
+    public MalformedRecordException(String message, int field, int column) {
+        super(message + " (field " + field + ", column " + column + ")");
+        this.field = field;
+        this.column = column;
+    }
+
+    public int getField() { return field; }
+    public int getColumn() { return column; }
+}
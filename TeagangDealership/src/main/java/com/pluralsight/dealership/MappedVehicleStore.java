@@ -0,0 +1,494 @@
+package com.pluralsight.dealership;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Vehicles as fixed-width records in memory-mapped files, for lots too big
+ * to keep on the heap.
+ *
+ * A store is a directory. vehicles-N.dat holds generation N of the records
+ * and strings.dat is the dictionary that make, model, type and color are
+ * encoded through. Both live in the page cache, outside the Java heap, and
+ * stay on disk when the process exits: opening the directory again maps the
+ * newest complete generation as it is, without reading a row.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   vehicles-N.dat  header   magic, version, record bytes, vehicle count
+ *                   records  vin, year, make, model, type, color (int), odometer (long), price (double)
+ *   strings.dat     header   magic, version, next code, bytes used
+ *                   strings  (byte length, UTF-8 bytes) per string; code 1 is the first, 0 is null
+ * </pre>
+ * Writes land in place, so a process that dies keeps everything it wrote;
+ * only an operating system crash can lose pages not yet on disk.
+ * {@link #copy()} (once per ConcurrentDealership write) writes the next
+ * generation and deletes this one's file; readers of this copy keep their
+ * mapping, but only the newest copy is persisted. That rewrites every record
+ * for each change, so ConcurrentDealership warns when it is given a mapped
+ * lot: this store suits lots changed in place, from one terminal.
+ *
+ * {@link #get} builds a Vehicle from the record each time. The heap holds
+ * one String per distinct dictionary value, so nothing else is allocated.
+ * A lock file keeps a directory to one open store, in this process or any other.
+ */
+final class MappedVehicleStore implements VehicleStore, Closeable {
+
+    private static final long MAGIC = 0x00524F5453524C44L; // "DLRSTOR\0" read as a little-endian long
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int COUNT_OFFSET = 16;
+
+    // Record fields, by offset
+    static final int RECORD_BYTES = 40;
+    private static final int VIN = 0, YEAR = 4, MAKE = 8, MODEL = 12, TYPE = 16, COLOR = 20, ODOMETER = 24, PRICE = 32;
+
+    // One mapping per file, so a generation stays under 2 GiB (about 53 million vehicles)
+    private static final int MAX_VEHICLES = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final String RECORDS_PREFIX = "vehicles-";
+    private static final String RECORDS_SUFFIX = ".dat";
+
+    private final Shared shared;
+    private final Path file;
+    private MappedByteBuffer records;
+    private int size;
+
+    private MappedVehicleStore(Shared shared, Path file, MappedByteBuffer records, int size) {
+        this.shared = shared;
+        this.file = file;
+        this.records = records;
+        this.size = size;
+    }
+
+    /**
+     * Opens the store in {@code directory}, creating it if needed. Older and
+     * half-written generations left by an earlier run are deleted.
+     *
+     * @throws IOException if the files cannot be mapped, are from another
+     *                     version, or the store is already open
+     */
+    static MappedVehicleStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Shared shared = Shared.open(directory);
+        try {
+            List<Long> generations = generations(directory);
+            MappedVehicleStore store = null;
+            for (long generation : generations) {
+                Path file = recordsFile(directory, generation);
+                // Records are only readable with the dictionary they were written with
+                if (store == null && shared.strings.existed) {
+                    store = tryOpen(shared, file);
+                    if (store != null) continue;
+                }
+                Files.deleteIfExists(file);
+            }
+            shared.generation = generations.isEmpty() ? 0 : generations.get(0);
+            if (store == null) {
+                store = create(shared, shared.nextGeneration(), INITIAL_CAPACITY, null, 0);
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            shared.close();
+            throw e;
+        }
+    }
+
+    // Newest first
+    private static List<Long> generations(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, RECORDS_PREFIX + "*" + RECORDS_SUFFIX)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(RECORDS_PREFIX.length(),
+                            name.length() - RECORDS_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        generations.sort(Comparator.reverseOrder());
+        return generations;
+    }
+
+    private static Path recordsFile(Path directory, long generation) {
+        return directory.resolve(RECORDS_PREFIX + generation + RECORDS_SUFFIX);
+    }
+
+    // null when the file was never completed
+    private static MappedVehicleStore tryOpen(Shared shared, Path file) throws IOException {
+        long length = Files.size(file);
+        if (length < HEADER_BYTES || length > Integer.MAX_VALUE) return null;
+        MappedByteBuffer records = map(file, length, false);
+        if (records.getLong(0) != MAGIC) return null;
+        if (records.getInt(8) != VERSION || records.getInt(12) != RECORD_BYTES) {
+            throw new IOException(file + " is version " + records.getInt(8) + ", expected " + VERSION);
+        }
+        int count = records.getInt(COUNT_OFFSET);
+        if (count < 0 || HEADER_BYTES + (long) count * RECORD_BYTES > length) return null;
+        return new MappedVehicleStore(shared, file, records, count);
+    }
+
+    /**
+     * Writes a new generation holding the first {@code count} records of
+     * {@code from}. The magic goes in last: until then the file does not
+     * count as complete.
+     */
+    private static MappedVehicleStore create(Shared shared, long generation, int capacity,
+                                             MappedByteBuffer from, int count) throws IOException {
+        Path file = recordsFile(shared.directory, generation);
+        MappedByteBuffer records = map(file, HEADER_BYTES + (long) capacity * RECORD_BYTES, true);
+        if (count > 0) {
+            records.put(HEADER_BYTES, from, HEADER_BYTES, count * RECORD_BYTES);
+        }
+        records.putInt(8, VERSION);
+        records.putInt(12, RECORD_BYTES);
+        records.putInt(COUNT_OFFSET, count);
+        records.putLong(0, MAGIC);
+        return new MappedVehicleStore(shared, file, records, count);
+    }
+
+    private static MappedByteBuffer map(Path file, long bytes, boolean create) throws IOException {
+        try (FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel; a size past the end grows the file
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    // --- VehicleStore ---
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Vehicle get(int position) {
+        checkPosition(position);
+        MappedByteBuffer r = records;
+        Strings strings = shared.strings;
+        int at = HEADER_BYTES + position * RECORD_BYTES;
+        return new Vehicle(r.getInt(at + VIN), r.getInt(at + YEAR),
+                strings.symbol(r.getInt(at + MAKE)), strings.symbol(r.getInt(at + MODEL)),
+                strings.symbol(r.getInt(at + TYPE)), strings.symbol(r.getInt(at + COLOR)),
+                r.getLong(at + ODOMETER), r.getDouble(at + PRICE));
+    }
+
+    @Override
+    public void add(Vehicle vehicle) {
+        if (size == capacity()) {
+            grow();
+        }
+        write(size, vehicle);
+        setSize(size + 1); // after the record, so a crash never counts a half-written one
+    }
+
+    @Override
+    public void set(int position, Vehicle vehicle) {
+        checkPosition(position);
+        write(position, vehicle);
+    }
+
+    @Override
+    public Vehicle removeLast() {
+        Vehicle last = get(size - 1);
+        setSize(size - 1);
+        return last;
+    }
+
+    @Override
+    public void clear() {
+        setSize(0);
+    }
+
+    @Override
+    public VehicleStore copy() {
+        try {
+            int capacity = grownCapacity();
+            MappedVehicleStore next = create(shared, shared.nextGeneration(), capacity, records, size);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Still mapped on systems that refuse that; the next open() deletes it
+            }
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not copy mapped store " + file, e);
+        }
+    }
+
+    @Override
+    public List<Vehicle> asList() {
+        return new View();
+    }
+
+    /**
+     * Flushes both files to disk and releases the directory. The store must
+     * not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        records.force();
+        shared.close();
+    }
+
+    private int capacity() {
+        return (records.capacity() - HEADER_BYTES) / RECORD_BYTES;
+    }
+
+    private int grownCapacity() {
+        return Math.min(MAX_VEHICLES, Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+    }
+
+    private void grow() {
+        if (size == MAX_VEHICLES) {
+            throw new IllegalStateException("Mapped store " + file + " is full at " + size + " vehicles");
+        }
+        int capacity = grownCapacity();
+        try {
+            // Not created: a copy whose file was replaced must not bring it back
+            records = map(file, HEADER_BYTES + (long) capacity * RECORD_BYTES, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow mapped store " + file, e);
+        }
+    }
+
+    private void write(int position, Vehicle v) {
+        Strings strings = shared.strings;
+        int make, model, type, color;
+        try {
+            make = strings.code(v.getMake());
+            model = strings.code(v.getModel());
+            type = strings.code(v.getType());
+            color = strings.code(v.getColor());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow string dictionary in " + shared.directory, e);
+        }
+        int at = HEADER_BYTES + position * RECORD_BYTES;
+        records.putInt(at + VIN, v.getVin());
+        records.putInt(at + YEAR, v.getYear());
+        records.putInt(at + MAKE, make);
+        records.putInt(at + MODEL, model);
+        records.putInt(at + TYPE, type);
+        records.putInt(at + COLOR, color);
+        records.putLong(at + ODOMETER, v.getOdometer());
+        records.putDouble(at + PRICE, v.getPrice());
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        records.putInt(COUNT_OFFSET, size);
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        }
+    }
+
+    private final class View extends AbstractList<Vehicle> implements RandomAccess {
+        @Override
+        public Vehicle get(int index) {
+            return MappedVehicleStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * What every generation of one directory shares: the lock, the
+     * dictionary and the generation counter.
+     */
+    private static final class Shared {
+        private static final String LOCK_FILE = "store.lock";
+        private static final String STRINGS_FILE = "strings.dat";
+
+        final Path directory;
+        final Strings strings;
+        private final FileChannel lockChannel;
+        private long generation;
+
+        private Shared(Path directory, FileChannel lockChannel, Strings strings) {
+            this.directory = directory;
+            this.lockChannel = lockChannel;
+            this.strings = strings;
+        }
+
+        static Shared open(Path directory) throws IOException {
+            FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                FileLock lock;
+                try {
+                    lock = channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    lock = null; // held by this process
+                }
+                if (lock == null) {
+                    throw new IOException(directory + " is already open");
+                }
+                return new Shared(directory, channel, Strings.open(directory.resolve(STRINGS_FILE)));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        synchronized long nextGeneration() {
+            return ++generation;
+        }
+
+        // Closing the channel releases the lock
+        void close() throws IOException {
+            try {
+                strings.force();
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+
+    /**
+     * The string dictionary, append-only like SymbolTable. The bytes live in
+     * the strings.dat mapping; the heap keeps one String per distinct value
+     * for decoding and a map back to its code for encoding. Decoding takes no
+     * lock, so copies being read on other threads can decode while a writer
+     * adds strings.
+     */
+    private static final class Strings {
+        private static final long MAGIC = 0x0052545353524C44L; // "DLRSSTR\0" read as a little-endian long
+        private static final int HEADER_BYTES = 24;
+        private static final int INITIAL_BYTES = 64 * 1024;
+
+        private final Path file;
+        final boolean existed;
+        private MappedByteBuffer bytes;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] symbols = new String[16];
+        private int next = 1;
+        private int used = HEADER_BYTES;
+
+        private Strings(Path file, boolean existed, MappedByteBuffer bytes) {
+            this.file = file;
+            this.existed = existed;
+            this.bytes = bytes;
+        }
+
+        static Strings open(Path file) throws IOException {
+            long length = Files.exists(file) ? Files.size(file) : 0;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than one mapping");
+            }
+            boolean existed = length >= HEADER_BYTES;
+            Strings strings = new Strings(file, existed, map(file, Math.max(length, INITIAL_BYTES), true));
+            if (existed && strings.bytes.getLong(0) == MAGIC) {
+                strings.read();
+            } else {
+                // Missing or never completed: start over, and so must the records
+                strings = new Strings(file, false, strings.bytes);
+                strings.writeHeader();
+            }
+            return strings;
+        }
+
+        private void read() throws IOException {
+            if (bytes.getInt(8) != VERSION) {
+                throw new IOException(file + " is version " + bytes.getInt(8) + ", expected " + VERSION);
+            }
+            int count = bytes.getInt(12);
+            int end = bytes.getInt(16);
+            if (count < 1 || end < HEADER_BYTES || end > bytes.capacity()) {
+                throw new IOException(file + " has a damaged header");
+            }
+            String[] decoded = new String[Math.max(16, count)];
+            int at = HEADER_BYTES;
+            for (int code = 1; code < count; code++) {
+                int length = at + 4 <= end ? bytes.getInt(at) : -1;
+                if (length < 0 || at + 4 + length > end) {
+                    throw new IOException(file + " is damaged at byte " + at);
+                }
+                byte[] utf8 = new byte[length];
+                bytes.get(at + 4, utf8);
+                decoded[code] = new String(utf8, StandardCharsets.UTF_8);
+                codes.putIfAbsent(decoded[code], code);
+                at += 4 + length;
+            }
+            symbols = decoded;
+            next = count;
+            used = at;
+        }
+
+        private void writeHeader() {
+            bytes.putInt(8, VERSION);
+            bytes.putInt(12, next);
+            bytes.putInt(16, used);
+            bytes.putLong(0, MAGIC);
+        }
+
+        synchronized int code(String value) throws IOException {
+            if (value == null) return 0;
+            Integer code = codes.get(value);
+            if (code != null) return code;
+
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            long end = (long) used + 4 + utf8.length;
+            if (end > bytes.capacity()) {
+                if (end > Integer.MAX_VALUE) {
+                    throw new IOException(file + " is full");
+                }
+                bytes = map(file, Math.min(Integer.MAX_VALUE, Math.max(end, 2L * bytes.capacity())), false);
+            }
+            bytes.putInt(used, utf8.length);
+            bytes.put(used + 4, utf8);
+            used = (int) end;
+
+            String[] current = symbols;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            symbols = current; // publishes the new slot to lock-free readers
+            codes.put(value, next);
+            // Header last, so a crash mid-append leaves the string out rather than half in
+            bytes.putInt(16, used);
+            bytes.putInt(12, next + 1);
+            return next++;
+        }
+
+        String symbol(int code) {
+            return symbols[code];
+        }
+
+        synchronized void force() {
+            bytes.force();
+        }
+    }
+}
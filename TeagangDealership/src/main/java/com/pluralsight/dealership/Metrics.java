@@ -0,0 +1,274 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide counters, gauges and latency timers.
+ *
+ * Metrics are registered once (usually into a static final field) and then
+ * recorded without allocating or locking: counters are LongAdders, timers
+ * are log-linear histograms over an AtomicLongArray (16 buckets per power
+ * of two, so any percentile is within ~6%). Timing a block is
+ * <pre>
+ *   long start = System.nanoTime();
+ *   try { ... } finally { TIMER.recordSince(start); }
+ * </pre>
+ * Read them with {@link #printReport()} or {@link #prometheus()} (the
+ * Prometheus text format, served at /metrics in server mode).
+ */
+public final class Metrics {
+
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+
+    static {
+        Runtime rt = Runtime.getRuntime();
+        gauge("jvm_heap_used_bytes", "Heap currently in use", () -> rt.totalMemory() - rt.freeMemory());
+        gauge("jvm_heap_max_bytes", "Largest heap the JVM will use", rt::maxMemory);
+    }
+
+    private Metrics() { }
+
+    // --- Registration (idempotent: the same name and labels give the same metric) ---
+
+    public static Counter counter(String name, String help) {
+        return counter(name, help, "");
+    }
+
+    /**
+     * @param labels Prometheus label pairs without braces, e.g. {@code mode="sync"}
+     */
+    public static Counter counter(String name, String help, String labels) {
+        return (Counter) register(name, help, "counter", labels, Counter::new);
+    }
+
+    public static Timer timer(String name, String help) {
+        return timer(name, help, "");
+    }
+
+    public static Timer timer(String name, String help, String labels) {
+        return (Timer) register(name, help, "summary", labels, Timer::new);
+    }
+
+    /**
+     * A value read on demand when metrics are reported. Re-registering replaces the supplier.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauge(name, help, "", value);
+    }
+
+    public static void gauge(String name, String help, String labels, DoubleSupplier value) {
+        synchronized (FAMILIES) {
+            Family family = family(name, help, "gauge");
+            family.children.put(labels, new Gauge(value));
+        }
+    }
+
+    private interface Factory {
+        Object create();
+    }
+
+    private static Object register(String name, String help, String type, String labels, Factory factory) {
+        synchronized (FAMILIES) {
+            return family(name, help, type).children.computeIfAbsent(labels, l -> factory.create());
+        }
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Object> children = new LinkedHashMap<>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    // --- Metric types ---
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() { value.increment(); }
+        public void add(long amount) { value.add(amount); }
+        public long get() { return value.sum(); }
+    }
+
+    private record Gauge(DoubleSupplier value) { }
+
+    /**
+     * Latency histogram in nanoseconds. Values below 16 get their own bucket;
+     * above that each power of two is split into 16 equal buckets.
+     */
+    public static final class Timer {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            sum.add(nanos);
+            long seen = max.get();
+            while (nanos > seen && !max.compareAndSet(seen, nanos)) {
+                seen = max.get();
+            }
+        }
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that lands in the bucket
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = index % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB_BUCKETS + sub) * width) + width - 1;
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getMaxNanos() { return max.get(); }
+
+        public double getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * @param quantile between 0 and 1, e.g. 0.99
+         * @return an upper bound for that percentile, in nanoseconds
+         */
+        public long percentileNanos(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+    }
+
+    // --- Reporting ---
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * Every metric in the Prometheus text exposition format (version 0.0.4).
+     */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : families()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> child : children(family)) {
+                String labels = child.getKey();
+                Object metric = child.getValue();
+                if (metric instanceof Counter c) {
+                    sample(sb, family.name, labels, c.get());
+                } else if (metric instanceof Gauge g) {
+                    sample(sb, family.name, labels, g.value().getAsDouble());
+                } else if (metric instanceof Timer t) {
+                    for (double q : QUANTILES) {
+                        String quantile = "quantile=\"" + q + "\"";
+                        sample(sb, family.name, labels.isEmpty() ? quantile : labels + "," + quantile,
+                                t.percentileNanos(q) / 1e9);
+                    }
+                    sample(sb, family.name + "_sum", labels, t.sum.sum() / 1e9);
+                    sample(sb, family.name + "_count", labels, t.getCount());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (!labels.isEmpty()) sb.append('{').append(labels).append('}');
+        sb.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) sb.append((long) value);
+        else sb.append(value);
+        sb.append('\n');
+    }
+
+    /**
+     * Human-readable table for the menu.
+     */
+    public static void printReport() {
+        System.out.println("\n📈 Metrics");
+        System.out.println("--------------------------");
+        for (Family family : families()) {
+            for (Map.Entry<String, Object> child : children(family)) {
+                String name = family.name + (child.getKey().isEmpty() ? "" : "{" + child.getKey() + "}");
+                Object metric = child.getValue();
+                if (metric instanceof Counter c) {
+                    System.out.printf("%-55s %,d%n", name, c.get());
+                } else if (metric instanceof Gauge g) {
+                    System.out.printf("%-55s %,.0f%n", name, g.value().getAsDouble());
+                } else if (metric instanceof Timer t && t.getCount() > 0) {
+                    System.out.printf(Locale.ROOT, "%-55s n=%,d mean=%s p50=%s p99=%s max=%s%n", name, t.getCount(),
+                            millis(t.getMeanNanos()), millis(t.percentileNanos(0.5)),
+                            millis(t.percentileNanos(0.99)), millis(t.getMaxNanos()));
+                }
+            }
+        }
+        System.out.println("--------------------------\n");
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1e6);
+    }
+
+    // Copies taken under the lock, so reporting never races with registration
+    private static List<Family> families() {
+        synchronized (FAMILIES) {
+            return new ArrayList<>(FAMILIES.values());
+        }
+    }
+
+    private static List<Map.Entry<String, Object>> children(Family family) {
+        synchronized (FAMILIES) {
+            return new ArrayList<>(family.children.entrySet());
+        }
+    }
+}
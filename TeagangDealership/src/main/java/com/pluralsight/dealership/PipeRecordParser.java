@@ -0,0 +1,307 @@
+package com.pluralsight.dealership;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses VIN|Year|Make|Model|Type|Color|Odometer|Price records in place.
+ *
+ * Fields are located by offset instead of String.split, numbers are parsed
+ * straight from the characters (or bytes), and the repetitive text fields are
+ * interned through a small per-parser pool, so a well-formed record costs
+ * one Vehicle allocation once the pool is warm. Results match the old
+ * split/trim/parseInt/parseDouble code exactly; unusual number spellings
+ * fall back to the JDK parsers.
+ *
+ * Not thread-safe: use {@link #forCurrentThread()} or one instance per thread.
+ */
+public final class PipeRecordParser {
+
+    private static final int FIELDS = 8;
+    private static final int POOL_SIZE = 4096;
+
+    // Exact powers of ten; m / 10^k is correctly rounded while m < 2^53 and k <= 22
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final ThreadLocal<PipeRecordParser> PER_THREAD = ThreadLocal.withInitial(PipeRecordParser::new);
+
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final CharSource chars = new CharSource();
+    private final ByteSource bytes = new ByteSource();
+    private final String[] pool = new String[POOL_SIZE];
+    private int pooled;
+
+    public static PipeRecordParser forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * @return the vehicle, or null for a blank line
+     * @throws MalformedRecordException if a field is missing or not a number
+     */
+    public Vehicle parse(CharSequence line) {
+        chars.text = line;
+        try {
+            return parse(chars, line.length());
+        } finally {
+            chars.text = null;
+        }
+    }
+
+    /**
+     * Parses the bytes [start, end) of a UTF-8 buffer (e.g. a mapped file) without decoding the line.
+     */
+    public Vehicle parse(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (bytes.data.length < length) {
+            bytes.data = new byte[Math.max(length, bytes.data.length << 1)];
+        }
+        buffer.get(start, bytes.data, 0, length);
+        return parse(bytes, length);
+    }
+
+    private Vehicle parse(Source src, int length) {
+        int first = 0;
+        while (first < length && src.at(first) <= ' ') first++;
+        if (first == length) {
+            return null;
+        }
+
+        // Locate the 8 fields; anything after an 8th pipe is ignored, like split() did
+        int field = 0;
+        int fieldStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (src.at(i) == '|') {
+                starts[field] = fieldStart;
+                ends[field] = i;
+                fieldStart = i + 1;
+                if (++field == FIELDS) break;
+            }
+        }
+        if (field == FIELDS - 1) {
+            starts[field] = fieldStart;
+            ends[field] = length;
+            field++;
+        }
+        if (field < FIELDS) {
+            throw new MalformedRecordException("Expected 8 fields but found " + (field + 1), field + 1, length + 1);
+        }
+        for (int f = 0; f < FIELDS; f++) {
+            int s = starts[f];
+            int e = ends[f];
+            while (s < e && src.at(s) <= ' ') s++;
+            while (e > s && src.at(e - 1) <= ' ') e--;
+            starts[f] = s;
+            ends[f] = e;
+        }
+
+        int vin = parseInt(src, 0, "VIN");
+        int year = parseInt(src, 1, "Year");
+        String make = intern(src, 2);
+        String model = intern(src, 3);
+        String type = intern(src, 4);
+        String color = intern(src, 5);
+        long odometer = parseLong(src, 6, "Odometer");
+        double price = parseDouble(src, 7, "Price");
+
+        return new Vehicle(vin, year, make, model, type, color, odometer, price);
+    }
+
+    // --- Numbers ---
+
+    private int parseInt(Source src, int field, String name) {
+        long value = parseLong(src, field, name);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw malformed(name + " is out of range", field);
+        }
+        return (int) value;
+    }
+
+    private long parseLong(Source src, int field, String name) {
+        int s = starts[field];
+        int e = ends[field];
+        if (s == e) throw malformed(name + " is empty", field);
+
+        boolean negative = false;
+        int i = s;
+        char c = src.at(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            if (++i == e) throw malformed(name + " is not a number", field);
+        }
+        // 18 digits always fit in a long; longer values go to the JDK for exact overflow rules
+        if (e - i > 18) return slowLong(src, field, name);
+
+        long value = 0;
+        for (; i < e; i++) {
+            c = src.at(i);
+            if (c < '0' || c > '9') return slowLong(src, field, name);
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseDouble(Source src, int field, String name) {
+        int s = starts[field];
+        int e = ends[field];
+        if (s == e) throw malformed(name + " is empty", field);
+
+        boolean negative = false;
+        int i = s;
+        char c = src.at(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1; // -1 until the decimal point
+        for (; i < e; i++) {
+            c = src.at(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_FAST_DIGITS) return slowDouble(src, field, name);
+                mantissa = mantissa * 10 + (c - '0');
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                // Exponents, Infinity, hex, type suffixes, ...
+                return slowDouble(src, field, name);
+            }
+        }
+        if (digits == 0) throw malformed(name + " is not a number", field);
+
+        double value = fractionDigits > 0 ? mantissa / POW10[fractionDigits] : (double) mantissa;
+        return negative ? -value : value;
+    }
+
+    private long slowLong(Source src, int field, String name) {
+        try {
+            return Long.parseLong(src.string(starts[field], ends[field]));
+        } catch (NumberFormatException e) {
+            throw malformed(name + " is not a whole number", field);
+        }
+    }
+
+    private double slowDouble(Source src, int field, String name) {
+        try {
+            return Double.parseDouble(src.string(starts[field], ends[field]));
+        } catch (NumberFormatException e) {
+            throw malformed(name + " is not a number", field);
+        }
+    }
+
+    private MalformedRecordException malformed(String message, int field) {
+        return new MalformedRecordException(message, field + 1, starts[field] + 1);
+    }
+
+    // --- String pool ---
+
+    /**
+     * Returns a shared String equal to the field, creating it only on first sight.
+     * Once the pool is 3/4 full new values are returned un-pooled.
+     */
+    private String intern(Source src, int field) {
+        int s = starts[field];
+        int e = ends[field];
+        if (!src.isAscii(s, e)) {
+            // Rare: decode first, then share by value
+            return internString(src.string(s, e));
+        }
+
+        int hash = 0;
+        for (int i = s; i < e; i++) {
+            hash = 31 * hash + src.at(i);
+        }
+        int mask = POOL_SIZE - 1;
+        int slot = mix(hash) & mask;
+        for (int probe = 0; probe < POOL_SIZE; probe++) {
+            String candidate = pool[slot];
+            if (candidate == null) {
+                String created = src.string(s, e);
+                if (pooled < POOL_SIZE * 3 / 4) {
+                    pool[slot] = created;
+                    pooled++;
+                }
+                return created;
+            }
+            if (candidate.hashCode() == hash && src.contentEquals(s, e, candidate)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return src.string(s, e);
+    }
+
+    private String internString(String value) {
+        int mask = POOL_SIZE - 1;
+        int slot = mix(value.hashCode()) & mask;
+        for (int probe = 0; probe < POOL_SIZE; probe++) {
+            String candidate = pool[slot];
+            if (candidate == null) {
+                if (pooled < POOL_SIZE * 3 / 4) {
+                    pool[slot] = value;
+                    pooled++;
+                }
+                return value;
+            }
+            if (candidate.equals(value)) return candidate;
+            slot = (slot + 1) & mask;
+        }
+        return value;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // --- Input sources ---
+
+    private abstract static class Source {
+        abstract char at(int i);
+        abstract String string(int start, int end);
+        abstract boolean isAscii(int start, int end);
+
+        boolean contentEquals(int start, int end, String s) {
+            if (s.length() != end - start) return false;
+            for (int i = start; i < end; i++) {
+                if (at(i) != s.charAt(i - start)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class CharSource extends Source {
+        private CharSequence text;
+
+        @Override char at(int i) { return text.charAt(i); }
+
+        @Override String string(int start, int end) { return text.subSequence(start, end).toString(); }
+
+        @Override boolean isAscii(int start, int end) { return true; } // hashing chars is exact either way
+    }
+
+    private static final class ByteSource extends Source {
+        private byte[] data = new byte[256];
+
+        // Non-ASCII bytes never match '|', digits or whitespace, so char-wise scanning stays correct
+        @Override char at(int i) { return (char) (data[i] & 0xFF); }
+
+        @Override String string(int start, int end) {
+            return new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override boolean isAscii(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (data[i] < 0) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -1,8 +1,20 @@
 package com.pluralsight.dealership;
 
+import java.io.IOException;
+
 public class Program {
     public static void main(String[] args) {
+        // java Program --server [port] runs the HTTP/JSON server instead of the menu
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DealershipServer.DEFAULT_PORT;
+            try {
+                DealershipServer.launch(port);
+            } catch (IOException e) {
+                System.err.println("❌ Could not start server on port " + port + ": " + e.getMessage());
+            }
+            return;
+        }
         new UserInterface().display();
 
     }
-}
\ No newline at end of file
+}
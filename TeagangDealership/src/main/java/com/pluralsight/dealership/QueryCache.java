@@ -0,0 +1,137 @@
+package com.pluralsight.dealership;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of search results for one dealership.
+ *
+ * Entries are keyed by the normalized query text and stamped with the
+ * inventory generation they were computed at. Any add, update or removal
+ * bumps the generation, so a stale entry is simply treated as a miss and
+ * dropped on lookup; nothing has to be walked on write. The cache is bounded
+ * both by entry count and by the total number of vehicles held, evicting the
+ * least recently used entries first.
+ */
+public final class QueryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final int DEFAULT_MAX_VEHICLES = 100_000;
+
+    // Process-wide totals across every dealership's cache
+    private static final Metrics.Counter HITS =
+            Metrics.counter("query_cache_lookups_total", "Search result cache lookups", "result=\"hit\"");
+    private static final Metrics.Counter MISSES =
+            Metrics.counter("query_cache_lookups_total", "Search result cache lookups", "result=\"miss\"");
+    private static final Metrics.Counter EVICTIONS =
+            Metrics.counter("query_cache_evictions_total", "Search results dropped to stay within the cache limits");
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private int maxEntries;
+    private int maxVehicles;
+    private int cachedVehicles;
+
+    // --- Counters ---
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    QueryCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_VEHICLES);
+    }
+
+    QueryCache(int maxEntries, int maxVehicles) {
+        resize(maxEntries, maxVehicles);
+    }
+
+    /**
+     * Changes the limits; a max of 0 entries turns caching off.
+     */
+    public synchronized void resize(int maxEntries, int maxVehicles) {
+        if (maxEntries < 0 || maxVehicles < 0) {
+            throw new IllegalArgumentException("Cache limits cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxVehicles = maxVehicles;
+        evictOverflow();
+    }
+
+    /**
+     * @return the cached result computed at {@code generation}, or null
+     */
+    synchronized List<Vehicle> get(String key, long generation) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            MISSES.increment();
+            return null;
+        }
+        if (entry.generation != generation) {
+            // Computed against an older inventory
+            entries.remove(key);
+            cachedVehicles -= entry.vehicles.size();
+            misses++;
+            MISSES.increment();
+            return null;
+        }
+        hits++;
+        HITS.increment();
+        return entry.vehicles;
+    }
+
+    /**
+     * Stores a result. Results larger than the whole vehicle budget are not kept.
+     */
+    synchronized void put(String key, long generation, List<Vehicle> vehicles) {
+        if (maxEntries == 0 || vehicles.size() > maxVehicles) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(generation, Collections.unmodifiableList(vehicles)));
+        if (previous != null) {
+            cachedVehicles -= previous.vehicles.size();
+        }
+        cachedVehicles += vehicles.size();
+        evictOverflow();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedVehicles = 0;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedVehicles > maxVehicles) && eldest.hasNext()) {
+            cachedVehicles -= eldest.next().getValue().vehicles.size();
+            eldest.remove();
+            evictions++;
+            EVICTIONS.increment();
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(entries.size(), maxEntries, cachedVehicles, maxVehicles, hits, misses, evictions);
+    }
+
+    private record Entry(long generation, List<Vehicle> vehicles) { }
+
+    // --- Read-only snapshot for tuning ---
+    public record CacheStats(int entries, int maxEntries, int vehicles, int maxVehicles,
+                             long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "cache[entries=%d/%d vehicles=%d/%d hits=%d misses=%d evictions=%d hitRate=%.1f%%]",
+                    entries, maxEntries, vehicles, maxVehicles, hits, misses, evictions, hitRate() * 100);
+        }
+    }
+}
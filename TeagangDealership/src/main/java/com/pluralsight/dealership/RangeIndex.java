@@ -0,0 +1,232 @@
+package com.pluralsight.dealership;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorted secondary index over one numeric vehicle attribute.
+ *
+ * Entries are (key, VIN, position) triples kept in parallel primitive arrays
+ * sorted by key, then VIN. A range query is two binary searches and the
+ * matches are the slice between them. The VIN makes every entry unique so a
+ * single vehicle can be found again when it moves or is removed.
+ *
+ * The index is built lazily on the first query and maintained incrementally
+ * after that; bulk loads just invalidate it.
+ */
+final class RangeIndex {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final ToLongFunction<Vehicle> keyOf;
+    private long[] keys = new long[0];
+    private int[] vins = new int[0];
+    private int[] positions = new int[0];
+    private int size;
+    private boolean built;
+
+    RangeIndex(ToLongFunction<Vehicle> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    private RangeIndex(RangeIndex other) {
+        this.keyOf = other.keyOf;
+        this.keys = other.keys.clone();
+        this.vins = other.vins.clone();
+        this.positions = other.positions.clone();
+        this.size = other.size;
+        this.built = other.built;
+    }
+
+    // --- Key encodings ---
+    static RangeIndex byPrice()   { return new RangeIndex(v -> priceKey(v.getPrice())); }
+    static RangeIndex byYear()    { return new RangeIndex(Vehicle::getYear); }
+    static RangeIndex byMileage() { return new RangeIndex(Vehicle::getOdometer); }
+
+    /**
+     * Maps a double onto a long with the same ordering, so prices share the
+     * long[] machinery. -0.0 is folded into 0.0 to match {@code >=} semantics.
+     */
+    static long priceKey(double price) {
+        long bits = Double.doubleToLongBits(price + 0.0);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void invalidate() {
+        if (!built) return;
+        built = false;
+        keys = new long[0];
+        vins = new int[0];
+        positions = new int[0];
+        size = 0;
+    }
+
+    void rebuild(List<Vehicle> inventory) {
+        int n = inventory.size();
+        keys = new long[Math.max(16, n)];
+        vins = new int[keys.length];
+        positions = new int[keys.length];
+        for (int i = 0; i < n; i++) {
+            Vehicle v = inventory.get(i);
+            keys[i] = keyOf.applyAsLong(v);
+            vins[i] = v.getVin();
+            positions[i] = i;
+        }
+        size = n;
+        sort(0, n - 1);
+        built = true;
+    }
+
+    void add(Vehicle v, int position) {
+        if (!built) return;
+
+        long key = keyOf.applyAsLong(v);
+        int vin = v.getVin();
+        int at = lowerBound(key, vin);
+        if (size == keys.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            vins = Arrays.copyOf(vins, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(vins, at, vins, at + 1, size - at);
+        System.arraycopy(positions, at, positions, at + 1, size - at);
+        keys[at] = key;
+        vins[at] = vin;
+        positions[at] = position;
+        size++;
+    }
+
+    void remove(Vehicle v) {
+        int at = find(v);
+        if (at >= 0) {
+            System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+            System.arraycopy(vins, at + 1, vins, at, size - at - 1);
+            System.arraycopy(positions, at + 1, positions, at, size - at - 1);
+            size--;
+        }
+    }
+
+    /** Records that a vehicle now lives at a different inventory position. */
+    void move(Vehicle v, int newPosition) {
+        int at = find(v);
+        if (at >= 0) {
+            positions[at] = newPosition;
+        }
+    }
+
+    private int find(Vehicle v) {
+        if (!built) return -1;
+
+        long key = keyOf.applyAsLong(v);
+        int vin = v.getVin();
+        int at = lowerBound(key, vin);
+        return at < size && keys[at] == key && vins[at] == vin ? at : -1;
+    }
+
+    /** First slot whose key is >= minKey. */
+    int from(long minKey) {
+        return lowerBound(minKey, Integer.MIN_VALUE);
+    }
+
+    /** One past the last slot whose key is <= maxKey. */
+    int to(long maxKey) {
+        if (maxKey == Long.MAX_VALUE) return size;
+        return lowerBound(maxKey + 1, Integer.MIN_VALUE);
+    }
+
+    int positionAt(int slot) {
+        return positions[slot];
+    }
+
+    RangeIndex copy() {
+        return new RangeIndex(this);
+    }
+
+    // First slot whose (key, vin) pair is >= the given pair
+    private int lowerBound(long key, int vin) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (less(keys[mid], vins[mid], key, vin)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static boolean less(long k1, int v1, long k2, int v2) {
+        return k1 < k2 || (k1 == k2 && v1 < v2);
+    }
+
+    // --- Quicksort over the parallel arrays; (key, vin) pairs are unique ---
+    private void sort(int lo, int hi) {
+        while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three moved to hi as the pivot
+            if (less(keys[mid], vins[mid], keys[lo], vins[lo])) swap(mid, lo);
+            if (less(keys[hi], vins[hi], keys[lo], vins[lo])) swap(hi, lo);
+            if (less(keys[mid], vins[mid], keys[hi], vins[hi])) swap(mid, hi);
+
+            long pivotKey = keys[hi];
+            int pivotVin = vins[hi];
+            int store = lo;
+            for (int i = lo; i < hi; i++) {
+                if (less(keys[i], vins[i], pivotKey, pivotVin)) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, hi);
+
+            // Recurse into the smaller half, loop on the larger one
+            if (store - lo < hi - store) {
+                sort(lo, store - 1);
+                lo = store + 1;
+            } else {
+                sort(store + 1, hi);
+                hi = store - 1;
+            }
+        }
+
+        for (int i = lo + 1; i <= hi; i++) {
+            long k = keys[i];
+            int v = vins[i];
+            int p = positions[i];
+            int j = i - 1;
+            while (j >= lo && less(k, v, keys[j], vins[j])) {
+                keys[j + 1] = keys[j];
+                vins[j + 1] = vins[j];
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            vins[j + 1] = v;
+            positions[j + 1] = p;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        int v = vins[a];
+        vins[a] = vins[b];
+        vins[b] = v;
+        int p = positions[a];
+        positions[a] = positions[b];
+        positions[b] = p;
+    }
+}
@@ -5,6 +5,11 @@ public class SalesContract extends Contract {
     private static final double SALES_TAX_RATE = 0.05;
     private static final double RECORDING_FEE = 100.00;
 
+    // Cars from $10,000 get the longer, cheaper loan and the higher processing fee
+    static final double LONG_TERM_THRESHOLD = 10000;
+    private static final double LONG_TERM_FACTOR = amortizationFactor(0.0425, 48);
+    private static final double SHORT_TERM_FACTOR = amortizationFactor(0.0525, 24);
+
     private double processingFee;
     private boolean financeOption;
 
@@ -12,25 +17,43 @@ public class SalesContract extends Contract {
                          Vehicle vehicleSold, boolean financeOption) {
         super(date, customerName, customerEmail, vehicleSold);
         this.financeOption = financeOption;
-        this.processingFee = vehicleSold.getPrice() < 10000 ? 295.00 : 495.00;
+        this.processingFee = processingFee(vehicleSold.getPrice());
     }
 
     @Override
     public double getTotalPrice() {
-        double salesTax = getVehicleSold().getPrice() * SALES_TAX_RATE;
-        return getVehicleSold().getPrice() + salesTax + RECORDING_FEE + processingFee;
+        return totalPrice(getVehicleSold().getPrice(), processingFee);
     }
 
     @Override
     public double getMonthlyPayment() {
         if (!financeOption) return 0.0;
+        return getTotalPrice() * financeFactor(getVehicleSold().getPrice());
+    }
+
+    // --- Pricing rules, shared with FinanceQuoteEngine ---
+
+    static double processingFee(double price) {
+        return price < LONG_TERM_THRESHOLD ? 295.00 : 495.00;
+    }
+
+    static double totalPrice(double price, double processingFee) {
+        double salesTax = price * SALES_TAX_RATE;
+        return price + salesTax + RECORDING_FEE + processingFee;
+    }
 
-        double principal = getTotalPrice();
-        int months = (getVehicleSold().getPrice() >= 10000) ? 48 : 24;
-        double rate = (getVehicleSold().getPrice() >= 10000) ? 0.0425 : 0.0525;
-        double monthlyRate = rate / 12.0;
+    static double financeFactor(double price) {
+        return price >= LONG_TERM_THRESHOLD ? LONG_TERM_FACTOR : SHORT_TERM_FACTOR;
+    }
 
-        return principal * (monthlyRate / (1 - Math.pow(1 + monthlyRate, -months)));
+    /**
+     * Sum of getTotalPrice() over many sales, from the sum of their prices and
+     * how many were under LONG_TERM_THRESHOLD (used by ContractReports).
+     */
+    static double totalRevenue(double priceSum, long contracts, long shortTermContracts) {
+        return priceSum + priceSum * SALES_TAX_RATE + RECORDING_FEE * contracts
+                + processingFee(0) * shortTermContracts
+                + processingFee(LONG_TERM_THRESHOLD) * (contracts - shortTermContracts);
     }
 
     public boolean isFinanceOption() { return financeOption; }
@@ -0,0 +1,50 @@
+package com.pluralsight.dealership;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only dictionary giving each distinct string a small int code.
+ *
+ * Every store that encodes through the same table shares one String
+ * instance per value, so a million vehicles loaded row by row from JDBC hold
+ * a few dozen make strings instead of a million. Code 0 stands for null.
+ * Decoding takes no lock: a store copy being read on another thread can
+ * decode while a writer adds symbols.
+ */
+final class SymbolTable {
+
+    // Process-wide, one per field, shared by every CompactVehicleStore
+    static final SymbolTable MAKES = new SymbolTable();
+    static final SymbolTable MODELS = new SymbolTable();
+    static final SymbolTable TYPES = new SymbolTable();
+    static final SymbolTable COLORS = new SymbolTable();
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private volatile String[] symbols = new String[16];
+    private int size = 1;
+
+    synchronized int code(String value) {
+        if (value == null) return 0;
+        Integer code = codes.get(value);
+        if (code != null) return code;
+
+        String[] current = symbols;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        symbols = current; // publishes the new slot to lock-free readers
+        codes.put(value, size);
+        return size++;
+    }
+
+    String symbol(int code) {
+        return symbols[code];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,272 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Substring index over one low-cardinality string attribute (make, model, color, type).
+ *
+ * Every distinct value is normalized with toLowerCase(Locale.ROOT) once and
+ * given a small id. A trigram inverted index maps each 3-character gram to the
+ * sorted ids of the values containing it, so a substring query intersects a
+ * few tiny posting lists instead of touching every vehicle. Each value id then
+ * owns the list of inventory positions holding that value.
+ */
+final class TextIndex {
+
+    private final Function<Vehicle, String> fieldOf;
+
+    // --- Value dictionary ---
+    private final Map<String, Integer> idsByRaw = new HashMap<>();
+    private final Map<String, Integer> idsByNormalized = new HashMap<>();
+    private final List<String> normalized = new ArrayList<>();
+
+    // trigram (three chars packed into a long) -> sorted value ids
+    private final Map<Long, int[]> gramPostings = new HashMap<>();
+
+    // value id -> positions holding it
+    private int[][] positionsByValue = new int[16][];
+    private int[] countByValue = new int[16];
+
+    // position -> value id, and position -> slot inside that value's list
+    private int[] valueAt = new int[16];
+    private int[] slotAt = new int[16];
+
+    TextIndex(Function<Vehicle, String> fieldOf) {
+        this.fieldOf = fieldOf;
+    }
+
+    private TextIndex(TextIndex other) {
+        this.fieldOf = other.fieldOf;
+        this.idsByRaw.putAll(other.idsByRaw);
+        this.idsByNormalized.putAll(other.idsByNormalized);
+        this.normalized.addAll(other.normalized);
+        this.gramPostings.putAll(other.gramPostings); // posting arrays are never mutated in place
+        this.positionsByValue = new int[other.positionsByValue.length][];
+        for (int i = 0; i < other.normalized.size(); i++) {
+            this.positionsByValue[i] = other.positionsByValue[i].clone();
+        }
+        this.countByValue = other.countByValue.clone();
+        this.valueAt = other.valueAt.clone();
+        this.slotAt = other.slotAt.clone();
+    }
+
+    static TextIndex byMake()  { return new TextIndex(Vehicle::getMake); }
+    static TextIndex byModel() { return new TextIndex(Vehicle::getModel); }
+    static TextIndex byColor() { return new TextIndex(Vehicle::getColor); }
+    static TextIndex byType()  { return new TextIndex(Vehicle::getType); }
+
+    static String normalizeQuery(String query) {
+        return query == null ? "" : query.toLowerCase(Locale.ROOT).trim();
+    }
+
+    int valueCount() {
+        return normalized.size();
+    }
+
+    int valueIdAt(int position) {
+        return valueAt[position];
+    }
+
+    int countFor(int valueId) {
+        return countByValue[valueId];
+    }
+
+    // --- Maintenance (positions mirror the Dealership inventory list) ---
+
+    void add(int position, Vehicle v) {
+        int id = idFor(fieldOf.apply(v));
+        if (position >= valueAt.length) {
+            int capacity = Math.max(position + 1, valueAt.length + (valueAt.length >> 1));
+            valueAt = Arrays.copyOf(valueAt, capacity);
+            slotAt = Arrays.copyOf(slotAt, capacity);
+        }
+
+        int count = countByValue[id];
+        int[] positions = positionsByValue[id];
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(4, count << 1));
+            positionsByValue[id] = positions;
+        }
+        positions[count] = position;
+        countByValue[id] = count + 1;
+        valueAt[position] = id;
+        slotAt[position] = count;
+    }
+
+    void remove(int position) {
+        int id = valueAt[position];
+        int slot = slotAt[position];
+        int last = --countByValue[id];
+        int[] positions = positionsByValue[id];
+        if (slot != last) {
+            int moved = positions[last];
+            positions[slot] = moved;
+            slotAt[moved] = slot;
+        }
+    }
+
+    /** The vehicle at {@code from} now lives at {@code to} (which is free). */
+    void move(int from, int to) {
+        int id = valueAt[from];
+        int slot = slotAt[from];
+        positionsByValue[id][slot] = to;
+        valueAt[to] = id;
+        slotAt[to] = slot;
+    }
+
+    TextIndex copy() {
+        return new TextIndex(this);
+    }
+
+    // --- Queries ---
+
+    /**
+     * Marks which value ids contain the (already normalized) query string.
+     * An empty query matches everything, like String.contains("").
+     */
+    boolean[] matchingValues(String query) {
+        int values = normalized.size();
+        boolean[] matches = new boolean[values];
+
+        if (query.isEmpty()) {
+            Arrays.fill(matches, true);
+            return matches;
+        }
+        if (query.length() < 3) {
+            // Too short for a trigram; the dictionary is small enough to check directly
+            for (int id = 0; id < values; id++) {
+                matches[id] = normalized.get(id).contains(query);
+            }
+            return matches;
+        }
+
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            int[] posting = gramPostings.get(gram(query, i));
+            if (posting == null) {
+                return matches;
+            }
+            candidates = candidates == null ? posting : intersect(candidates, posting);
+            if (candidates.length == 0) {
+                return matches;
+            }
+        }
+        // Every gram present doesn't guarantee they're contiguous, so confirm
+        for (int id : candidates) {
+            matches[id] = normalized.get(id).contains(query);
+        }
+        return matches;
+    }
+
+    /** Number of vehicles whose value is marked in {@code values}. */
+    int count(boolean[] values) {
+        int total = 0;
+        for (int id = 0; id < values.length; id++) {
+            if (values[id]) total += countByValue[id];
+        }
+        return total;
+    }
+
+    /** Appends the inventory positions of every vehicle whose value is marked. */
+    void collectPositions(boolean[] values, IntList out) {
+        for (int id = 0; id < values.length; id++) {
+            if (values[id]) out.addAll(positionsByValue[id], countByValue[id]);
+        }
+    }
+
+    // --- Dictionary ---
+
+    private int idFor(String raw) {
+        String key = raw == null ? "" : raw;
+        Integer id = idsByRaw.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        String value = key.toLowerCase(Locale.ROOT);
+        id = idsByNormalized.get(value);
+        if (id == null) {
+            id = normalized.size();
+            normalized.add(value);
+            idsByNormalized.put(value, id);
+            if (id == positionsByValue.length) {
+                positionsByValue = Arrays.copyOf(positionsByValue, id << 1);
+                countByValue = Arrays.copyOf(countByValue, id << 1);
+            }
+            positionsByValue[id] = new int[4];
+            indexGrams(value, id);
+        }
+        idsByRaw.put(key, id);
+        return id;
+    }
+
+    private void indexGrams(String value, int id) {
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            // Ids are handed out in increasing order, so appending keeps postings sorted
+            gramPostings.merge(gram(value, i), new int[]{id}, (posting, single) -> {
+                if (posting[posting.length - 1] == id) return posting;
+                int[] grown = Arrays.copyOf(posting, posting.length + 1);
+                grown[posting.length] = id;
+                return grown;
+            });
+        }
+    }
+
+    private static long gram(String s, int at) {
+        return ((long) s.charAt(at) << 32) | ((long) s.charAt(at + 1) << 16) | s.charAt(at + 2);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Minimal growable int array used to gather result positions.
+     */
+    static final class IntList {
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            values = new int[Math.max(4, capacity)];
+        }
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+
+        void addAll(int[] source, int count) {
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + count, size << 1));
+            }
+            System.arraycopy(source, 0, values, size, count);
+            size += count;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -1,18 +1,50 @@
 package com.pluralsight.dealership;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
 
 public class UserInterface {
+    private static final int PAGE_SIZE = 20;
+    private static final String VEHICLE_TABLE_HEADER = """
+            VIN     YEAR  MAKE       MODEL        TYPE   COLOR          MILEAGE         PRICE
+            ------  ----  ---------- ------------ ------ ---------- ------------  ------------
+            """;
+
     private final Scanner in = new Scanner(System.in);
+    // Result pages go out through here, one flush per page instead of one per line
+    private final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), 16 * 1024);
+    private final StringBuilder row = new StringBuilder(128);
     private Dealership dealership;
+    private DealershipRegistry registry;
     private DealershipFileManager fileManager;
 
+    // Set by the background refresh, picked up between menu commands
+    private volatile DealershipRegistry refreshedRegistry;
+    // Edits saved by other terminals; null when the database has no change feed
+    private volatile InventoryChangeFeed changeFeed;
+    // Created on first use; keeps its per-period cache for the session
+    private ContractReports reports;
+    private ContractFileManager contracts;
+
     public void display() {
         init();
         boolean running = true;
         while (running) {
+            applyRefresh();
+            applyRemoteChanges();
             printHeader();
             printMenu();
             System.out.print("👉 Choose option: ");
@@ -28,8 +60,18 @@ public class UserInterface {
                 case "7" -> processAllVehicles();
                 case "8" -> processAddVehicle();
                 case "9" -> processRemoveVehicle();
+                case "10" -> processSwitchLot();
+                case "11" -> processSearchAllLots();
+                case "12" -> processAdvancedSearch();
+                case "13" -> processImportFile();
+                case "14" -> processExportFile();
+                case "15" -> Metrics.printReport();
+                case "16" -> processAffordability();
+                case "17" -> processReports();
+                case "18" -> processSale();
                 case "0" -> {
                     System.out.println("\n👋 Goodbye!");
+                    if (changeFeed != null) changeFeed.close();
                     running = false;
                 }
                 default -> System.out.println("⚠️  Invalid option. Try again.");
@@ -41,7 +83,28 @@ public class UserInterface {
     // ============ init & rendering ============
     private void init() {
         fileManager = new DealershipFileManager(); // defaults to "inventory.csv"
-        dealership = fileManager.getDealership();
+
+        // The local snapshot brings the menu up at once; the database is checked behind it
+        registry = fileManager.loadSnapshot();
+        if (registry != null) {
+            System.out.println("⚡ Loaded " + registry.getTotalVehicleCount() + " vehicles from the local snapshot.");
+            refreshInBackground(fileManager.getSnapshotFingerprint());
+        } else {
+            long feedPosition = InventoryChangeFeed.startPosition();
+            registry = fileManager.getDealerships();
+            fileManager.writeSnapshot(registry);
+            followChanges(feedPosition);
+        }
+
+        if (registry.isEmpty()) {
+            // Nothing in the database yet (or it is unreachable): fall back to a single lot
+            dealership = fileManager.getDealership();
+            registry.add(dealership);
+        } else if (registry.size() == 1) {
+            dealership = registry.getDealerships().iterator().next();
+        } else {
+            dealership = chooseLot();
+        }
 
         // After loading the dealership
         List<String> badRecords = fileManager.getSkippedRecords();
@@ -65,6 +128,75 @@ public class UserInterface {
 
     }
 
+    private void refreshInBackground(InventorySnapshot.Fingerprint known) {
+        Thread refresher = new Thread(() -> {
+            // Taken before the check, so nothing saved after it is missed
+            long feedPosition = InventoryChangeFeed.startPosition();
+            // Its own file manager, so the load statistics don't mix with the menu's
+            refreshedRegistry = new DealershipFileManager().reloadIfChanged(known);
+            followChanges(feedPosition);
+        }, "inventory-refresh");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    private void followChanges(long feedPosition) {
+        if (feedPosition < 0) return;
+        InventoryChangeFeed feed = new InventoryChangeFeed(feedPosition);
+        feed.start();
+        changeFeed = feed;
+    }
+
+    private void applyRemoteChanges() {
+        InventoryChangeFeed feed = changeFeed;
+        if (feed == null) return;
+        int changed = feed.applyPending(registry);
+        if (changed > 0) {
+            System.out.println("\n🔄 " + changed + " vehicle(s) changed on other terminals.");
+        }
+    }
+
+    /**
+     * Swaps in lots reloaded by the background refresh. Unsaved edits made
+     * against the snapshot are replayed onto the fresh lots so none are lost.
+     */
+    private void applyRefresh() {
+        DealershipRegistry fresh = refreshedRegistry;
+        if (fresh == null) return;
+        refreshedRegistry = null;
+
+        for (Dealership lot : registry.getDealerships()) {
+            if (!lot.hasPendingChanges()) continue;
+            Dealership target = fresh.get(lot.getId());
+            if (target == null) {
+                fresh.add(lot);
+            } else {
+                replayChanges(lot, target);
+            }
+        }
+        Dealership current = fresh.get(dealership.getId());
+        registry = fresh;
+        dealership = current != null ? current : fresh.getDealerships().iterator().next();
+        System.out.println("\n🔄 Inventory refreshed from the database (" + registry.getTotalVehicleCount() + " vehicles).");
+    }
+
+    private static void replayChanges(Dealership from, Dealership to) {
+        from.getPendingChanges().forEach((vin, change) -> {
+            if (change == Dealership.ChangeType.REMOVED) {
+                to.removeVehicleByVin(vin);
+            } else {
+                Vehicle v = from.getVehicleByVin(vin);
+                if (v != null && !to.addVehicle(v)) to.updateVehicle(v);
+            }
+        });
+    }
+
+    // Saves the current lot, then refreshes the local snapshot if everything made it to the database
+    private void save() {
+        fileManager.saveDealership(dealership);
+        fileManager.writeSnapshot(registry);
+    }
+
     private void printHeader() {
         System.out.println("\n=========================================================");
         System.out.printf("   🚗 %s  —  %s  —  %s%n", dealership.getName(), dealership.getAddress(), dealership.getPhone());
@@ -82,6 +214,15 @@ public class UserInterface {
                 7 - List ALL vehicles
                 8 - Add a vehicle
                 9 - Remove a vehicle
+                10 - Switch to another lot
+                11 - Search all lots by make / model
+                12 - Advanced search (combine filters)
+                13 - Import vehicles from a pipe-delimited file
+                14 - Export inventory to a pipe-delimited file
+                15 - Show performance metrics
+                16 - What can I afford per month?
+                17 - Sales and lease reports
+                18 - Sell or lease a vehicle
                 0 - Quit
                 """);
     }
@@ -122,18 +263,70 @@ public class UserInterface {
         }
 
         // Save the updated dealership
-        fileManager.saveDealership(dealership);
+        save();
     }
 
+    /**
+     * Shows the list a page at a time. Rows are built in one reused builder and
+     * written through a buffered writer that is flushed once per page; a sort
+     * chosen here only orders as far as the pages actually viewed.
+     */
     private void displayVehicles(List<Vehicle> list) {
         if (list == null || list.isEmpty()) {
             System.out.println("⚠️  No matching vehicles found.");
             return;
         }
-        System.out.println("VIN     YEAR  MAKE       MODEL        TYPE   COLOR          MILEAGE         PRICE");
-        System.out.println("------  ----  ---------- ------------ ------ ---------- ------------  ------------");
-        for (Vehicle v : list) {
-            System.out.println(v);
+        VehiclePager pager = new VehiclePager(list, PAGE_SIZE);
+        VehicleQuery.SortField sortField = null;
+        boolean descending = false;
+        int page = 0;
+        while (true) {
+            printPage(pager, page);
+            if (list.size() < 2) return;
+
+            System.out.print("[n]ext  [p]rev  sort by [$]price [y]ear [m]ileage (again to reverse)  [Enter] done: ");
+            String command = in.nextLine().trim().toLowerCase(Locale.ROOT);
+            VehicleQuery.SortField chosen = switch (command) {
+                case "$" -> VehicleQuery.SortField.PRICE;
+                case "y" -> VehicleQuery.SortField.YEAR;
+                case "m" -> VehicleQuery.SortField.MILEAGE;
+                default -> null;
+            };
+            if (chosen != null) {
+                descending = chosen == sortField && !descending;
+                sortField = chosen;
+                pager.sortBy(descending ? chosen.comparator().reversed() : chosen.comparator());
+                page = 0;
+            } else if (command.equals("n")) {
+                page = Math.min(page + 1, pager.pageCount() - 1);
+            } else if (command.equals("p")) {
+                page = Math.max(page - 1, 0);
+            } else if (command.isEmpty() || command.equals("q")) {
+                return;
+            }
+        }
+    }
+
+    private void printPage(VehiclePager pager, int page) {
+        try {
+            List<Vehicle> rows = pager.page(page);
+            out.write(VEHICLE_TABLE_HEADER);
+            for (Vehicle v : rows) {
+                row.setLength(0);
+                v.appendRow(row);
+                out.append(row).append('\n');
+            }
+            if (pager.pageCount() > 1) {
+                int first = page * PAGE_SIZE + 1;
+                row.setLength(0);
+                row.append("-- ").append(first).append('-').append(first + rows.size() - 1)
+                        .append(" of ").append(pager.size())
+                        .append(" (page ").append(page + 1).append('/').append(pager.pageCount()).append(") --\n");
+                out.append(row);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("❌ Could not print results: " + e.getMessage());
         }
     }
 
@@ -150,7 +343,7 @@ public class UserInterface {
     private void processPriceRange() {
         double min = readDouble("Min price: ");
         double max = readDouble("Max price: ");
-        displayVehicles(dealership.getVehiclesByPrice(min, max));
+        displayVehicles(dealership.query(new VehicleQuery().priceBetween(min, max)));
     }
 
     private void processMakeModel() {
@@ -158,31 +351,204 @@ public class UserInterface {
         String make = in.nextLine();
         System.out.print("Model (blank = any): ");
         String model = in.nextLine();
-        displayVehicles(dealership.getVehiclesByMakeModel(make, model));
+        displayVehicles(dealership.query(new VehicleQuery().makeContains(make).modelContains(model)));
     }
 
     private void processYearRange() {
         int min = readInt("Min year: ");
         int max = readInt("Max year: ");
-        displayVehicles(dealership.getVehiclesByYear(min, max));
+        displayVehicles(dealership.query(new VehicleQuery().yearBetween(min, max)));
     }
 
     private void processColor() {
         System.out.print("Color: ");
         String color = in.nextLine();
-        displayVehicles(dealership.getVehiclesByColor(color));
+        displayVehicles(dealership.query(new VehicleQuery().colorContains(color)));
     }
 
     private void processMileageRange() {
         long min = readLong("Min mileage: ");
         long max = readLong("Max mileage: ");
-        displayVehicles(dealership.getVehiclesByMileage(min, max));
+        displayVehicles(dealership.query(new VehicleQuery().mileageBetween(min, max)));
     }
 
     private void processType() {
         System.out.print("Type (car, truck, suv, van, ...): ");
         String type = in.nextLine();
-        displayVehicles(dealership.getVehiclesByType(type));
+        displayVehicles(dealership.query(new VehicleQuery().typeContains(type)));
+    }
+
+    private void processAffordability() {
+        double budget = readDouble("Monthly budget: ");
+        System.out.print("Finance, lease or either? ");
+        String answer = in.nextLine().trim().toLowerCase(Locale.ROOT);
+        FinanceQuoteEngine.Plan plan = answer.startsWith("f") ? FinanceQuoteEngine.Plan.FINANCE
+                : answer.startsWith("l") ? FinanceQuoteEngine.Plan.LEASE
+                : FinanceQuoteEngine.Plan.EITHER;
+
+        List<FinanceQuoteEngine.Quote> quotes = new FinanceQuoteEngine(dealership.getAllVehicles()).affordable(budget, plan);
+        if (quotes.isEmpty()) {
+            System.out.println("⚠️  Nothing fits that budget.");
+            return;
+        }
+        System.out.printf("%n💰 %d vehicle(s) at or under $%,.2f/month (%s), cheapest first:%n",
+                quotes.size(), budget, plan.name().toLowerCase(Locale.ROOT));
+        displayQuotes(quotes);
+    }
+
+    /**
+     * Shows the quotes a page at a time, through the same buffered writer and
+     * reused row builder as displayVehicles.
+     */
+    private void displayQuotes(List<FinanceQuoteEngine.Quote> quotes) {
+        int pageCount = (quotes.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        int page = 0;
+        while (true) {
+            printQuotePage(quotes, page, pageCount);
+            if (pageCount < 2) return;
+
+            System.out.print("[n]ext  [p]rev  [Enter] done: ");
+            String command = in.nextLine().trim().toLowerCase(Locale.ROOT);
+            if (command.equals("n")) {
+                page = Math.min(page + 1, pageCount - 1);
+            } else if (command.equals("p")) {
+                page = Math.max(page - 1, 0);
+            } else if (command.isEmpty() || command.equals("q")) {
+                return;
+            }
+        }
+    }
+
+    private void printQuotePage(List<FinanceQuoteEngine.Quote> quotes, int page, int pageCount) {
+        try {
+            int first = page * PAGE_SIZE;
+            int last = Math.min(first + PAGE_SIZE, quotes.size());
+            for (FinanceQuoteEngine.Quote q : quotes.subList(first, last)) {
+                row.setLength(0);
+                q.appendRow(row);
+                out.append(row).append('\n');
+            }
+            if (pageCount > 1) {
+                row.setLength(0);
+                row.append("-- ").append(first + 1).append('-').append(last)
+                        .append(" of ").append(quotes.size())
+                        .append(" (page ").append(page + 1).append('/').append(pageCount).append(") --\n");
+                out.append(row);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("❌ Could not print results: " + e.getMessage());
+        }
+    }
+
+    private void processReports() {
+        ContractReports.Period period = readPeriod();
+        try {
+            ContractReports.Summary s = reports().summary(period);
+            System.out.printf("%n📊 Contracts %s%n", period);
+            System.out.printf("   Sales:  %,d (%,d cash, %,d financed)   Leases: %,d%n",
+                    s.sales(), s.cashSales(), s.financedSales(), s.leases());
+            if (s.sales() > 0) {
+                System.out.printf("   Financed: %.1f%% of sales%n", s.financeRatio() * 100);
+            }
+            System.out.printf("   Revenue: $%,.2f (sales $%,.2f, leases $%,.2f)%n",
+                    s.revenue(), s.salesRevenue(), s.leaseRevenue());
+            if (s.unpriced() > 0) {
+                System.out.printf("   ⚠️ %,d contract(s) have no recorded vehicle price and are not in revenue%n", s.unpriced());
+            }
+
+            List<ContractReports.MakeModelSales> top = reports().topMakeModels(period, 10);
+            if (!top.isEmpty()) {
+                System.out.println("\n🏆 Top makes / models");
+                for (ContractReports.MakeModelSales m : top) {
+                    System.out.printf("   %-12s %-14s %,6d sold %,6d leased   $%,.2f%n",
+                            m.make(), m.model(), m.sales(), m.leases(), m.vehicleValue());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Could not run the report: " + e.getMessage());
+            return;
+        }
+
+        System.out.print("\nExport every contract to CSV? File name (blank = no): ");
+        String path = in.nextLine().trim();
+        if (path.isEmpty()) return;
+        try (Writer csv = Files.newBufferedWriter(Path.of(path))) {
+            long rows = reports().exportContracts(period, csv);
+            System.out.println("✅ Exported " + rows + " contracts to " + path);
+        } catch (SQLException | IOException e) {
+            System.err.println("❌ Export failed: " + e.getMessage());
+        }
+    }
+
+    private void processSale() {
+        System.out.println("\n🤝 Sell or lease a vehicle");
+        int vin = readInt("Enter VIN: ");
+        Vehicle vehicle = dealership.getVehicleByVin(vin);
+        if (vehicle == null) {
+            System.out.println("⚠️  No vehicle with that VIN was found.");
+            return;
+        }
+        if (vehicle.isSold()) {
+            System.out.println("⚠️  That vehicle has already been sold.");
+            return;
+        }
+        System.out.print("Customer name: ");
+        String name = in.nextLine().trim();
+        System.out.print("Customer email: ");
+        String email = in.nextLine().trim();
+        System.out.print("Sale or lease? ");
+        boolean lease = in.nextLine().trim().toLowerCase(Locale.ROOT).startsWith("l");
+
+        Contract contract;
+        if (lease) {
+            contract = new LeaseContract(LocalDate.now().toString(), name, email, vehicle);
+        } else {
+            System.out.print("Finance it? (yes/no) ");
+            boolean finance = in.nextLine().trim().toLowerCase(Locale.ROOT).startsWith("y");
+            contract = new SalesContract(LocalDate.now().toString(), name, email, vehicle, finance);
+        }
+
+        try {
+            if (contracts().sell(dealership, contract) == ContractFileManager.SaleResult.UNAVAILABLE) {
+                System.out.println("⚠️  That vehicle was just sold from another terminal.");
+                return;
+            }
+            System.out.printf("✅ %s recorded: total $%,.2f, $%,.2f/month.%n",
+                    lease ? "Lease" : "Sale", contract.getTotalPrice(), contract.getMonthlyPayment());
+        } catch (SQLException e) {
+            System.err.println("❌ Error recording the contract: " + e.getMessage());
+        }
+    }
+
+    private ContractFileManager contracts() {
+        if (contracts == null) {
+            contracts = new ContractFileManager();
+        }
+        return contracts;
+    }
+
+    private ContractReports reports() {
+        if (reports == null) {
+            reports = new ContractReports();
+        }
+        return reports;
+    }
+
+    // Blank start means this month
+    private ContractReports.Period readPeriod() {
+        while (true) {
+            System.out.print("Report from (YYYY-MM-DD, blank = this month): ");
+            String from = in.nextLine().trim();
+            if (from.isEmpty()) return ContractReports.Period.thisMonth();
+            System.out.print("Through (YYYY-MM-DD): ");
+            String through = in.nextLine().trim();
+            try {
+                return new ContractReports.Period(LocalDate.parse(from), LocalDate.parse(through).plusDays(1));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                System.out.println("  Please enter two dates, the second on or after the first.");
+            }
+        }
     }
 
     private void processAddVehicle() {
@@ -212,8 +578,7 @@ public class UserInterface {
             String response = in.nextLine().trim().toLowerCase();
 
             if (response.startsWith("y")) {
-                dealership.removeVehicleByVin(vin);
-                dealership.addVehicle(v);
+                dealership.updateVehicle(v);
                 System.out.println("✅ Existing vehicle replaced successfully!");
             } else {
                 System.out.println("⏭️ Skipped adding duplicate VIN: " + vin);
@@ -223,7 +588,7 @@ public class UserInterface {
         }
 
         // ✅ Always save after add/replace
-        fileManager.saveDealership(dealership);
+        save();
         System.out.println("💾 Inventory saved.");
     }
 
@@ -233,13 +598,122 @@ public class UserInterface {
         int vin = readInt("Enter VIN to remove: ");
         boolean removed = dealership.removeVehicleByVin(vin);
         if (removed) {
-            fileManager.saveDealership(dealership);
+            save();
             System.out.println("✅ Vehicle removed and inventory saved.");
         } else {
             System.out.println("⚠️  No vehicle with that VIN was found.");
         }
     }
 
+    private void processAdvancedSearch() {
+        System.out.println("\n🔎 Advanced search — leave any field blank to skip it");
+        VehicleQuery query = new VehicleQuery();
+
+        Double minPrice = readOptionalDouble("Min price: ");
+        Double maxPrice = readOptionalDouble("Max price: ");
+        if (minPrice != null || maxPrice != null) {
+            query.priceBetween(minPrice == null ? 0 : minPrice,
+                    maxPrice == null ? Double.MAX_VALUE : maxPrice);
+        }
+        Long minYear = readOptionalLong("Min year: ");
+        Long maxYear = readOptionalLong("Max year: ");
+        if (minYear != null || maxYear != null) {
+            query.yearBetween(minYear == null ? Integer.MIN_VALUE : minYear.intValue(),
+                    maxYear == null ? Integer.MAX_VALUE : maxYear.intValue());
+        }
+        Long minMiles = readOptionalLong("Min mileage: ");
+        Long maxMiles = readOptionalLong("Max mileage: ");
+        if (minMiles != null || maxMiles != null) {
+            query.mileageBetween(minMiles == null ? 0 : minMiles,
+                    maxMiles == null ? Long.MAX_VALUE : maxMiles);
+        }
+
+        System.out.print("Make: ");
+        query.makeContains(in.nextLine());
+        System.out.print("Model: ");
+        query.modelContains(in.nextLine());
+        System.out.print("Color: ");
+        query.colorContains(in.nextLine());
+        System.out.print("Type: ");
+        query.typeContains(in.nextLine());
+
+        System.out.print("Sort by (price, year, mileage, make — blank = none): ");
+        String sort = in.nextLine().trim().toUpperCase(Locale.ROOT);
+        if (!sort.isEmpty()) {
+            try {
+                query.sortBy(VehicleQuery.SortField.valueOf(sort), false);
+            } catch (IllegalArgumentException e) {
+                System.out.println("  Unknown sort field, showing unsorted results.");
+            }
+        }
+
+        displayVehicles(dealership.query(query));
+    }
+
+    private void processImportFile() {
+        System.out.print("File to import: ");
+        String path = in.nextLine().trim();
+        int added = fileManager.importPipeFile(path, dealership);
+        fileManager.printSummaryReport();
+
+        if (added > 0) {
+            System.out.print("Save the " + added + " imported vehicles to the database? (yes/no): ");
+            if (in.nextLine().trim().toLowerCase().startsWith("y")) {
+                save();
+            }
+        }
+    }
+
+    private void processExportFile() {
+        System.out.print("Export to file: ");
+        String path = in.nextLine().trim();
+        int written = fileManager.exportPipeFile(path, dealership);
+        if (written >= 0) {
+            System.out.println("✅ Exported " + written + " vehicles to " + path);
+        }
+    }
+
+    private void processSwitchLot() {
+        if (registry.size() < 2) {
+            System.out.println("⚠️  Only one lot is loaded.");
+            return;
+        }
+        dealership = chooseLot();
+    }
+
+    private void processSearchAllLots() {
+        System.out.print("Make (blank = any): ");
+        String make = in.nextLine();
+        System.out.print("Model (blank = any): ");
+        String model = in.nextLine();
+
+        Map<Dealership, List<Vehicle>> results = registry.search(d -> d.getVehiclesByMakeModel(make, model));
+        if (results.isEmpty()) {
+            System.out.println("⚠️  No matching vehicles found on any lot.");
+            return;
+        }
+        for (Map.Entry<Dealership, List<Vehicle>> lot : results.entrySet()) {
+            System.out.println("\n🏢 " + lot.getKey().getName() + " (" + lot.getValue().size() + " matches)");
+            displayVehicles(lot.getValue());
+        }
+    }
+
+    private Dealership chooseLot() {
+        List<Dealership> lots = new ArrayList<>(registry.getDealerships());
+        System.out.println("\n🏢 Lots:");
+        for (int i = 0; i < lots.size(); i++) {
+            Dealership lot = lots.get(i);
+            System.out.printf("  %d - %s (%d vehicles)%n", i + 1, lot.getName(), lot.getVehicleCount());
+        }
+        while (true) {
+            int choice = readInt("Choose lot: ");
+            if (choice >= 1 && choice <= lots.size()) {
+                return lots.get(choice - 1);
+            }
+            System.out.println("  Please pick a number from the list.");
+        }
+    }
+
     // ============ input helpers ============
     private int readInt(String prompt) {
         while (true) {
@@ -261,6 +735,29 @@ public class UserInterface {
         }
     }
 
+    // Blank input means "no value"
+    private Double readOptionalDouble(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String line = in.nextLine().trim();
+            if (line.isEmpty()) return null;
+            try {
+                return Double.parseDouble(line);
+            } catch (NumberFormatException e) { System.out.println("  Please enter a number or leave blank."); }
+        }
+    }
+
+    private Long readOptionalLong(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String line = in.nextLine().trim();
+            if (line.isEmpty()) return null;
+            try {
+                return Long.parseLong(line);
+            } catch (NumberFormatException e) { System.out.println("  Please enter a whole number or leave blank."); }
+        }
+    }
+
     private double readDouble(String prompt) {
         while (true) {
             System.out.print(prompt);
@@ -1,10 +1,15 @@
 package com.pluralsight.dealership;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Objects;
 
 
 public class Vehicle {
 
+    // A sold vehicle stays in its lot with this type; saves write it as vehicles.sold
+    public static final String SOLD_TYPE = "Sold";
+
     private int vin;
     private int year;
     private String make;
@@ -66,6 +71,10 @@ public class Vehicle {
         this.type = type;
     }
 
+    public boolean isSold() {
+        return SOLD_TYPE.equalsIgnoreCase(type);
+    }
+
     public String getColor() {
         return color;
     }
@@ -91,32 +100,114 @@ public class Vehicle {
     }
 
     public String toPipe(){
-        return vin + "|" + year + "|" + make + "|" + model + "|" + type + "|" + color + "|" + odometer + "|" + String.format("%.2f", price);
+        StringBuilder sb = new StringBuilder(64);
+        appendPipe(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the pipe form of this vehicle (no line break) to a reusable builder.
+     * The price always uses '.' and two decimals, whatever the default locale.
+     */
+    public void appendPipe(StringBuilder sb) {
+        sb.append(vin).append('|')
+          .append(year).append('|')
+          .append(make).append('|')
+          .append(model).append('|')
+          .append(type).append('|')
+          .append(color).append('|')
+          .append(odometer).append('|');
+        appendPrice(sb, price);
+    }
+
+    // Same digits as String.format("%.2f") (half-up), without the Formatter
+    static void appendPrice(StringBuilder sb, double price) {
+        double cents = price * 100;
+        if (price >= 0 && cents < 1e15 && cents == Math.rint(cents)) {
+            long c = (long) cents;
+            sb.append(c / 100).append('.');
+            long fraction = c % 100;
+            if (fraction < 10) sb.append('0');
+            sb.append(fraction);
+        } else {
+            sb.append(BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).toPlainString());
+        }
     }
     public String toString() {
-        return String.format("%-6d %-4d %-10s %-12s %-6s %-10s %9d $%,10.2f", vin, year, make, model, type, color, odometer, price);
+        StringBuilder sb = new StringBuilder(80);
+        appendRow(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the listing row (no line break) to a reusable builder: the same
+     * columns as {@code "%-6d %-4d %-10s %-12s %-6s %-10s %9d $%,10.2f"}, with
+     * ',' grouping and a '.' decimal point whatever the default locale.
+     */
+    public void appendRow(StringBuilder sb) {
+        int start = sb.length();
+        sb.append(vin);
+        padRight(sb, start, 6).append(' ');
+        start = sb.length();
+        sb.append(year);
+        padRight(sb, start, 4).append(' ');
+        padRight(sb, make, 10).append(' ');
+        padRight(sb, model, 12).append(' ');
+        padRight(sb, type, 6).append(' ');
+        padRight(sb, color, 10).append(' ');
+        start = sb.length();
+        sb.append(odometer);
+        padLeft(sb, start, 9).append(" $");
+        appendAmount(sb, price, 10);
+    }
+
+    // Same as "%,{width}.2f": grouped, two decimals, padded on the left
+    static void appendAmount(StringBuilder sb, double amount, int width) {
+        int start = sb.length();
+        if (!Double.isFinite(amount)) {
+            sb.append(amount);
+        } else {
+            appendPrice(sb, amount);
+            groupThousands(sb, start);
+            if (sb.charAt(start) != '-' && Double.doubleToRawLongBits(amount) < 0) {
+                sb.insert(start, '-'); // Formatter keeps the sign of -0.0 and of amounts that round to zero
+            }
+        }
+        padLeft(sb, start, width);
     }
 
-    public static Vehicle fromPipe(String line) {
-        if (line == null || line.isBlank()) {
-            return null;
-        }
+    private static StringBuilder padRight(StringBuilder sb, String value, int width) {
+        int start = sb.length();
+        sb.append(value);
+        return padRight(sb, start, width);
+    }
 
-        String[] parts = line.split("\\|");
-        if (parts.length < 8) {
-            throw new IllegalArgumentException("Invalid vehicle data format: " + line);
-        }
+    private static StringBuilder padRight(StringBuilder sb, int start, int width) {
+        for (int n = sb.length() - start; n < width; n++) sb.append(' ');
+        return sb;
+    }
 
-        int vin = Integer.parseInt(parts[0].trim());
-        int year = Integer.parseInt(parts[1].trim());
-        String make = parts[2].trim();
-        String model = parts[3].trim();
-        String type = parts[4].trim();
-        String color = parts[5].trim();
-        int odometer = Integer.parseInt(parts[6].trim());
-        double price = Double.parseDouble(parts[7].trim());
+    private static StringBuilder padLeft(StringBuilder sb, int start, int width) {
+        int missing = width - (sb.length() - start);
+        if (missing > 0) sb.insert(start, " ".repeat(missing));
+        return sb;
+    }
 
-        return new Vehicle(vin, year, make, model, type, color, odometer, price);
+    // Inserts ',' every three digits into the number that starts at {@code start}
+    private static void groupThousands(StringBuilder sb, int start) {
+        int digitsStart = sb.charAt(start) == '-' ? start + 1 : start;
+        int point = sb.indexOf(".", digitsStart);
+        int end = point < 0 ? sb.length() : point;
+        for (int i = end - 3; i > digitsStart; i -= 3) {
+            sb.insert(i, ',');
+        }
+    }
+
+    public static Vehicle fromPipe(String line) {
+        if (line == null) {
+            return null;
+        }
+        return PipeRecordParser.forCurrentThread().parse(line);
     }
 
     @Override
@@ -135,9 +226,19 @@ public class Vehicle {
                 Objects.equals(color, vehicle.color);
     }
 
+    // Same value as Objects.hash(vin, year, make, model, type, color, odometer, price), without boxing
     @Override
     public int hashCode() {
-        return Objects.hash(vin, year, make, model, type, color, odometer, price);
+        int h = 1;
+        h = 31 * h + vin;
+        h = 31 * h + year;
+        h = 31 * h + Objects.hashCode(make);
+        h = 31 * h + Objects.hashCode(model);
+        h = 31 * h + Objects.hashCode(type);
+        h = 31 * h + Objects.hashCode(color);
+        h = 31 * h + Long.hashCode(odometer);
+        h = 31 * h + Double.hashCode(price);
+        return h;
     }
 
     public String toDataString() {
@@ -0,0 +1,129 @@
+package com.pluralsight.dealership;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a result list into pages, in its own order or a chosen one.
+ *
+ * With a sort, only as many vehicles as the pages shown so far need are put
+ * in order: a bounded heap picks the first k of n in O(n log k), and k
+ * doubles as the reader pages on, until it is cheaper to sort everything.
+ * Ties keep the list's own order, so a row never shows up on two pages.
+ */
+final class VehiclePager {
+
+    // A heap of k beats sorting all n while k is well under n
+    private static final int FULL_SORT_RATIO = 8;
+
+    private final List<Vehicle> vehicles;
+    private final int pageSize;
+    private Comparator<Vehicle> order;
+    private List<Vehicle> ordered; // the first ordered.size() vehicles in order
+
+    VehiclePager(List<Vehicle> vehicles, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive");
+        this.vehicles = vehicles;
+        this.pageSize = pageSize;
+        this.ordered = vehicles;
+    }
+
+    /**
+     * Reorders the pages; null goes back to the list's own order.
+     */
+    void sortBy(Comparator<Vehicle> order) {
+        this.order = order;
+        this.ordered = order == null ? vehicles : List.of();
+    }
+
+    int size() {
+        return vehicles.size();
+    }
+
+    int pageCount() {
+        return (vehicles.size() + pageSize - 1) / pageSize;
+    }
+
+    List<Vehicle> page(int index) {
+        if (index < 0 || index >= pageCount()) {
+            throw new IndexOutOfBoundsException("Page " + index + " of " + pageCount());
+        }
+        int from = index * pageSize;
+        int to = Math.min(from + pageSize, vehicles.size());
+        if (ordered.size() < to) {
+            int wanted = Math.max(to, ordered.size() * 2);
+            ordered = (long) wanted * FULL_SORT_RATIO < vehicles.size()
+                    ? smallest(vehicles, wanted, order)
+                    : sorted(vehicles, order);
+        }
+        return ordered.subList(from, to);
+    }
+
+    private static List<Vehicle> sorted(List<Vehicle> vehicles, Comparator<Vehicle> order) {
+        List<Vehicle> all = new ArrayList<>(vehicles);
+        all.sort(order); // stable: ties keep list order, like smallest()
+        return all;
+    }
+
+    /**
+     * The first {@code k} vehicles under {@code order}, in order, ties broken
+     * by list position. Keeps a max-heap of list positions, so the worst of
+     * the k best so far is at the root and is the one compared against.
+     */
+    static List<Vehicle> smallest(List<Vehicle> vehicles, int k, Comparator<Vehicle> order) {
+        int n = vehicles.size();
+        k = Math.min(k, n);
+        if (k == 0) return List.of();
+
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, vehicles, order);
+            } else if (before(vehicles, order, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, 0, size, vehicles, order);
+            }
+        }
+
+        // Pop the worst each time, filling the result from the back
+        Vehicle[] result = new Vehicle[size];
+        for (int last = size - 1; last >= 0; last--) {
+            result[last] = vehicles.get(heap[0]);
+            heap[0] = heap[last];
+            siftDown(heap, 0, last, vehicles, order);
+        }
+        return List.of(result);
+    }
+
+    private static boolean before(List<Vehicle> vehicles, Comparator<Vehicle> order, int a, int b) {
+        int c = order.compare(vehicles.get(a), vehicles.get(b));
+        return c != 0 ? c < 0 : a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, List<Vehicle> vehicles, Comparator<Vehicle> order) {
+        int item = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(vehicles, order, heap[parent], item)) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = item;
+    }
+
+    private static void siftDown(int[] heap, int index, int size, List<Vehicle> vehicles, Comparator<Vehicle> order) {
+        int item = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && before(vehicles, order, heap[child], heap[child + 1])) child++;
+            if (!before(vehicles, order, item, heap[child])) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = item;
+    }
+}
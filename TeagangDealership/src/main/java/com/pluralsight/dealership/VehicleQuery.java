@@ -0,0 +1,180 @@
+package com.pluralsight.dealership;
+
+import java.util.Comparator;
+
+/**
+ * A combined vehicle search: any mix of range and substring filters plus sort and paging.
+ *
+ * Example:
+ * <pre>
+ *   new VehicleQuery()
+ *       .priceBetween(10000, 20000)
+ *       .makeContains("honda")
+ *       .yearBetween(2018, Integer.MAX_VALUE)
+ *       .sortBy(VehicleQuery.SortField.PRICE, false)
+ *       .limit(20);
+ * </pre>
+ * Run it with {@link Dealership#query(VehicleQuery)}. Blank text filters mean "any".
+ */
+public class VehicleQuery {
+
+    public enum SortField {
+        VIN(Comparator.comparingInt(Vehicle::getVin)),
+        YEAR(Comparator.comparingInt(Vehicle::getYear)),
+        MAKE(Comparator.comparing(Vehicle::getMake, String.CASE_INSENSITIVE_ORDER)),
+        MODEL(Comparator.comparing(Vehicle::getModel, String.CASE_INSENSITIVE_ORDER)),
+        TYPE(Comparator.comparing(Vehicle::getType, String.CASE_INSENSITIVE_ORDER)),
+        COLOR(Comparator.comparing(Vehicle::getColor, String.CASE_INSENSITIVE_ORDER)),
+        MILEAGE(Comparator.comparingLong(Vehicle::getOdometer)),
+        PRICE(Comparator.comparingDouble(Vehicle::getPrice));
+
+        private final Comparator<Vehicle> comparator;
+
+        SortField(Comparator<Vehicle> comparator) {
+            this.comparator = comparator;
+        }
+
+        public Comparator<Vehicle> comparator() {
+            return comparator;
+        }
+    }
+
+    private Integer vin;
+    private boolean hasPrice;
+    private double minPrice = Double.NEGATIVE_INFINITY;
+    private double maxPrice = Double.POSITIVE_INFINITY;
+    private boolean hasYear;
+    private int minYear = Integer.MIN_VALUE;
+    private int maxYear = Integer.MAX_VALUE;
+    private boolean hasMileage;
+    private long minMileage = Long.MIN_VALUE;
+    private long maxMileage = Long.MAX_VALUE;
+    private String make = "";
+    private String model = "";
+    private String color = "";
+    private String type = "";
+
+    private SortField sortField;
+    private boolean descending;
+    private int offset = 0;
+    private int limit = Integer.MAX_VALUE;
+
+    // --- Filters ---
+    public VehicleQuery vin(int vin) {
+        this.vin = vin;
+        return this;
+    }
+
+    public VehicleQuery priceBetween(double min, double max) {
+        this.hasPrice = true;
+        this.minPrice = min;
+        this.maxPrice = max;
+        return this;
+    }
+
+    public VehicleQuery yearBetween(int min, int max) {
+        this.hasYear = true;
+        this.minYear = min;
+        this.maxYear = max;
+        return this;
+    }
+
+    public VehicleQuery mileageBetween(long min, long max) {
+        this.hasMileage = true;
+        this.minMileage = min;
+        this.maxMileage = max;
+        return this;
+    }
+
+    public VehicleQuery makeContains(String make) {
+        this.make = TextIndex.normalizeQuery(make);
+        return this;
+    }
+
+    public VehicleQuery modelContains(String model) {
+        this.model = TextIndex.normalizeQuery(model);
+        return this;
+    }
+
+    public VehicleQuery colorContains(String color) {
+        this.color = TextIndex.normalizeQuery(color);
+        return this;
+    }
+
+    public VehicleQuery typeContains(String type) {
+        this.type = TextIndex.normalizeQuery(type);
+        return this;
+    }
+
+    // --- Ordering and paging ---
+    public VehicleQuery sortBy(SortField field, boolean descending) {
+        this.sortField = field;
+        this.descending = descending;
+        return this;
+    }
+
+    public VehicleQuery offset(int offset) {
+        if (offset < 0) throw new IllegalArgumentException("Offset cannot be negative");
+        this.offset = offset;
+        return this;
+    }
+
+    public VehicleQuery limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Limit cannot be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    // --- Accessors used by the planner ---
+    Integer getVin() { return vin; }
+    boolean hasPrice() { return hasPrice; }
+    double getMinPrice() { return minPrice; }
+    double getMaxPrice() { return maxPrice; }
+    boolean hasYear() { return hasYear; }
+    int getMinYear() { return minYear; }
+    int getMaxYear() { return maxYear; }
+    boolean hasMileage() { return hasMileage; }
+    long getMinMileage() { return minMileage; }
+    long getMaxMileage() { return maxMileage; }
+    String getMake() { return make; }
+    String getModel() { return model; }
+    String getColor() { return color; }
+    String getType() { return type; }
+    SortField getSortField() { return sortField; }
+    boolean isDescending() { return descending; }
+    int getOffset() { return offset; }
+    int getLimit() { return limit; }
+
+    Comparator<Vehicle> comparator() {
+        if (sortField == null) return null;
+        return descending ? sortField.comparator().reversed() : sortField.comparator();
+    }
+
+    /** Checks the numeric filters; text filters are checked through the indexes. */
+    boolean matchesRanges(Vehicle v) {
+        return (vin == null || v.getVin() == vin)
+                && (!hasPrice || (v.getPrice() >= minPrice && v.getPrice() <= maxPrice))
+                && (!hasYear || (v.getYear() >= minYear && v.getYear() <= maxYear))
+                && (!hasMileage || (v.getOdometer() >= minMileage && v.getOdometer() <= maxMileage));
+    }
+
+    /**
+     * Canonical text form; two queries with equal strings return the same vehicles.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("query");
+        if (vin != null) sb.append(" vin=").append(vin);
+        if (hasPrice) sb.append(" price=[").append(minPrice).append(',').append(maxPrice).append(']');
+        if (hasYear) sb.append(" year=[").append(minYear).append(',').append(maxYear).append(']');
+        if (hasMileage) sb.append(" mileage=[").append(minMileage).append(',').append(maxMileage).append(']');
+        if (!make.isEmpty()) sb.append(" make~'").append(make).append('\'');
+        if (!model.isEmpty()) sb.append(" model~'").append(model).append('\'');
+        if (!color.isEmpty()) sb.append(" color~'").append(color).append('\'');
+        if (!type.isEmpty()) sb.append(" type~'").append(type).append('\'');
+        if (sortField != null) sb.append(" sort=").append(sortField).append(descending ? " desc" : " asc");
+        if (offset > 0) sb.append(" offset=").append(offset);
+        if (limit != Integer.MAX_VALUE) sb.append(" limit=").append(limit);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.pluralsight.dealership;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Where a Dealership keeps its vehicles, by position.
+ *
+ * Dealership and its indexes decide what goes at which position; a store
+ * only holds it. Removal is always from the end (Dealership moves the last
+ * vehicle into the hole first), so positions stay dense.
+ */
+public interface VehicleStore {
+
+    int size();
+
+    Vehicle get(int position);
+
+    void add(Vehicle vehicle);
+
+    void set(int position, Vehicle vehicle);
+
+    /** Removes the vehicle at the last position and returns it. */
+    Vehicle removeLast();
+
+    /** Removes every vehicle. */
+    void clear();
+
+    /** An independent store with the same contents, for copy-on-write lots. */
+    VehicleStore copy();
+
+    /**
+     * Read-only, random-access view of the store. Stores that do not keep
+     * Vehicle objects build one on every {@code get}.
+     */
+    List<Vehicle> asList();
+
+    /** One Vehicle object per vehicle, in an ArrayList; the default. */
+    static VehicleStore onHeap() {
+        return new HeapVehicleStore();
+    }
+
+    /** Dictionary-encoded columns; see CompactVehicleStore. */
+    static VehicleStore compact() {
+        return new CompactVehicleStore();
+    }
+
+    /**
+     * Fixed-width records in memory-mapped files under {@code directory},
+     * kept across restarts; see MappedVehicleStore. Opens what is already
+     * there, or starts an empty store.
+     */
+    static VehicleStore mapped(Path directory) throws IOException {
+        return MappedVehicleStore.open(directory);
+    }
+}
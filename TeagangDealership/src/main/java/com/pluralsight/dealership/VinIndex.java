@@ -0,0 +1,154 @@
+package com.pluralsight.dealership;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int -> int hash map from VIN to inventory position.
+ * Keys and values live in primitive arrays, so nothing is boxed per vehicle.
+ */
+final class VinIndex {
+
+    private static final int EMPTY = 0; // stored values are position + 1
+    private static final float MAX_LOAD = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    VinIndex() {
+        this(16);
+    }
+
+    VinIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private VinIndex(VinIndex other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.mask = other.mask;
+        this.resizeAt = other.resizeAt;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the position stored for this VIN, or -1 if it is not indexed
+     */
+    int get(int vin) {
+        int slot = mix(vin) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == vin) return values[slot] - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    boolean contains(int vin) {
+        return get(vin) >= 0;
+    }
+
+    /**
+     * Adds or overwrites the position for a VIN.
+     */
+    void put(int vin, int position) {
+        int slot = mix(vin) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == vin) {
+                values[slot] = position + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = vin;
+        values[slot] = position + 1;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * @return the removed position, or -1 if the VIN was not indexed
+     */
+    int remove(int vin) {
+        int slot = mix(vin) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == vin) {
+                int position = values[slot] - 1;
+                shiftBack(slot);
+                size--;
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    VinIndex copy() {
+        return new VinIndex(this);
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == EMPTY) break;
+
+            int home = mix(keys[slot]) & mask;
+            // Move the entry into the gap unless its home lies cyclically in (gap, slot]
+            boolean homeBetween = gap <= slot
+                    ? gap < home && home <= slot
+                    : gap < home || home <= slot;
+            if (!homeBetween) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = EMPTY;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == EMPTY) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / MAX_LOAD) + 1;
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // VINs are often sequential; spread them so they don't cluster in one run
+    private static int mix(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
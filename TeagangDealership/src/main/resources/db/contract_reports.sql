@@ -0,0 +1,58 @@
+-- Columns, trigger and indexes used by ContractReports.
+--
+-- Contracts only record the customer and the VIN, and the vehicle row can be
+-- repriced, edited or deleted after the sale. created_at dates each contract,
+-- and a trigger copies the vehicle's price, make and model onto the contract
+-- as it is inserted, so reports describe what was actually signed. Contracts
+-- stored before this script ran are dated now and filled in from the vehicles
+-- table where the VIN still exists; the rest are reported as unpriced.
+--
+-- Safe to run more than once.
+
+ALTER TABLE sales_contracts
+    ADD COLUMN IF NOT EXISTS created_at    TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN IF NOT EXISTS vehicle_price NUMERIC(10, 2),
+    ADD COLUMN IF NOT EXISTS vehicle_make  TEXT,
+    ADD COLUMN IF NOT EXISTS vehicle_model TEXT;
+
+ALTER TABLE lease_contracts
+    ADD COLUMN IF NOT EXISTS created_at    TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN IF NOT EXISTS vehicle_price NUMERIC(10, 2),
+    ADD COLUMN IF NOT EXISTS vehicle_make  TEXT,
+    ADD COLUMN IF NOT EXISTS vehicle_model TEXT;
+
+CREATE OR REPLACE FUNCTION record_contract_vehicle() RETURNS trigger AS $$
+BEGIN
+    IF NEW.vehicle_price IS NULL THEN
+        SELECT v.price, v.make, v.model
+        INTO NEW.vehicle_price, NEW.vehicle_make, NEW.vehicle_model
+        FROM vehicles v
+        WHERE v.vin = NEW.vehicle_vin;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS contract_vehicle ON sales_contracts;
+CREATE TRIGGER contract_vehicle
+    BEFORE INSERT ON sales_contracts
+    FOR EACH ROW EXECUTE FUNCTION record_contract_vehicle();
+
+DROP TRIGGER IF EXISTS contract_vehicle ON lease_contracts;
+CREATE TRIGGER contract_vehicle
+    BEFORE INSERT ON lease_contracts
+    FOR EACH ROW EXECUTE FUNCTION record_contract_vehicle();
+
+UPDATE sales_contracts c
+SET vehicle_price = v.price, vehicle_make = v.make, vehicle_model = v.model
+FROM vehicles v
+WHERE v.vin = c.vehicle_vin AND c.vehicle_price IS NULL;
+
+UPDATE lease_contracts c
+SET vehicle_price = v.price, vehicle_make = v.make, vehicle_model = v.model
+FROM vehicles v
+WHERE v.vin = c.vehicle_vin AND c.vehicle_price IS NULL;
+
+-- Every report is over a date range
+CREATE INDEX IF NOT EXISTS sales_contracts_created_at ON sales_contracts (created_at);
+CREATE INDEX IF NOT EXISTS lease_contracts_created_at ON lease_contracts (created_at);
@@ -0,0 +1,37 @@
+-- Change feed for the vehicles table, read by InventoryChangeFeed.
+--
+-- Every insert, update or delete on vehicles appends the affected VIN to
+-- vehicle_changes and sends a NOTIFY on the vehicle_changes channel (one per
+-- transaction, since Postgres folds identical notifications). Readers keep the
+-- last seq they have applied and fetch the current row for each newer VIN, so
+-- the NOTIFY is only a wake-up call: a missed one is caught by the next poll.
+--
+-- Safe to run more than once. Old rows can be pruned at any time with
+--   DELETE FROM vehicle_changes WHERE changed_at < now() - interval '7 days';
+-- as long as no terminal stays running (and disconnected) for longer than that.
+
+CREATE TABLE IF NOT EXISTS vehicle_changes (
+    seq        BIGSERIAL PRIMARY KEY,
+    vin        TEXT        NOT NULL,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS vehicle_changes_changed_at ON vehicle_changes (changed_at);
+
+CREATE OR REPLACE FUNCTION record_vehicle_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        INSERT INTO vehicle_changes (vin) VALUES (OLD.vin);
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW.vin IS DISTINCT FROM OLD.vin) THEN
+        INSERT INTO vehicle_changes (vin) VALUES (NEW.vin);
+    END IF;
+    PERFORM pg_notify('vehicle_changes', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS vehicle_change ON vehicles;
+CREATE TRIGGER vehicle_change
+    AFTER INSERT OR UPDATE OR DELETE ON vehicles
+    FOR EACH ROW EXECUTE FUNCTION record_vehicle_change();